@@ -0,0 +1,51 @@
+package org.nemesiscodex.transfers.core.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.nemesiscodex.transfers.naive.dto.BalanceResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tools.jackson.databind.json.JsonMapper;
+
+// Response bodies written on the login, user and balance endpoints
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonSerializationBenchmark {
+
+    private JsonMapper jsonMapper;
+    private BalanceResponse balance;
+    private UserResponse user;
+    private LoginResponse login;
+
+    @Setup
+    public void setUp() {
+        this.jsonMapper = JsonMapper.builder().build();
+        Instant now = Instant.now();
+        this.balance = new BalanceResponse(UUID.randomUUID(), new BigDecimal("12345.67"));
+        this.user = new UserResponse(UUID.randomUUID(), "benchmark-user", "benchmark-user@example.com", now, now);
+        this.login = new LoginResponse("eyJhbGciOiJIUzM4NCJ9.eyJzdWIiOiJiZW5jaG1hcmstdXNlciJ9.signature", this.user);
+    }
+
+    @Benchmark
+    public byte[] balanceResponse() {
+        return this.jsonMapper.writeValueAsBytes(this.balance);
+    }
+
+    @Benchmark
+    public byte[] userResponse() {
+        return this.jsonMapper.writeValueAsBytes(this.user);
+    }
+
+    @Benchmark
+    public byte[] loginResponse() {
+        return this.jsonMapper.writeValueAsBytes(this.login);
+    }
+}
@@ -0,0 +1,49 @@
+package org.nemesiscodex.transfers.core.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.nemesiscodex.transfers.core.service.JwtService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+// Bearer token extraction runs on every request, authenticated or not
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtAuthenticationWebFilterBenchmark {
+
+    private JwtAuthenticationWebFilter filter;
+    private MockServerWebExchange bearer;
+    private MockServerWebExchange anonymous;
+
+    @Setup
+    public void setUp() {
+        JwtService jwtService = new JwtService("benchmarkSecretKeyForJwtServiceWithAtLeast256BitsOfKeyMaterial", 24);
+        this.filter = new JwtAuthenticationWebFilter(
+            jwtService, new JwtPrincipalCache(10_000, Duration.ofMinutes(5), new SimpleMeterRegistry()));
+        String token = jwtService.generateToken(UUID.randomUUID(), "benchmark-user");
+        this.bearer = MockServerWebExchange.from(MockServerHttpRequest.get("/users/me")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token));
+        this.anonymous = MockServerWebExchange.from(MockServerHttpRequest.get("/users/me"));
+    }
+
+    @Benchmark
+    public String extractBearerToken() {
+        return this.filter.extractToken(this.bearer);
+    }
+
+    @Benchmark
+    public String extractMissingToken() {
+        return this.filter.extractToken(this.anonymous);
+    }
+}
@@ -0,0 +1,47 @@
+package org.nemesiscodex.transfers.core.service;
+
+import io.jsonwebtoken.Claims;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Token issuing on login and signature + claims verification on every authenticated request
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = "benchmarkSecretKeyForJwtServiceWithAtLeast256BitsOfKeyMaterial";
+
+    private JwtService jwtService;
+    private UUID userId;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        this.jwtService = new JwtService(SECRET, 24);
+        this.userId = UUID.randomUUID();
+        this.token = this.jwtService.generateToken(this.userId, "benchmark-user");
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return this.jwtService.generateToken(this.userId, "benchmark-user");
+    }
+
+    @Benchmark
+    public Claims verify() {
+        return this.jwtService.verify(this.token).block();
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return this.jwtService.extractUsername(this.token).block();
+    }
+}
@@ -0,0 +1,39 @@
+package org.nemesiscodex.transfers.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.nemesiscodex.transfers.core.client.AdaptiveConcurrencyLimiter;
+import org.nemesiscodex.transfers.core.client.BankApiClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "bank.api", name = "enabled", havingValue = "true")
+public class BankApiConfig {
+
+    // Replaces a fixed bulkhead: the in-flight limit follows how the bank answers, between min and max
+    @Bean
+    public AdaptiveConcurrencyLimiter bankApiLimiter(
+        MeterRegistry meterRegistry,
+        @Value("${bank.api.limiter.initial-limit:20}") int initialLimit,
+        @Value("${bank.api.limiter.min-limit:1}") int minLimit,
+        @Value("${bank.api.limiter.max-limit:200}") int maxLimit,
+        @Value("${bank.api.limiter.backoff-ratio:0.9}") double backoffRatio,
+        @Value("${bank.api.limiter.latency-threshold:500ms}") Duration latencyThreshold,
+        @Value("${bank.api.limiter.max-queue:100}") int maxQueue,
+        @Value("${bank.api.limiter.max-wait:500ms}") Duration maxWait) {
+        return new AdaptiveConcurrencyLimiter(
+            "bank-api",
+            meterRegistry,
+            initialLimit,
+            minLimit,
+            maxLimit,
+            backoffRatio,
+            latencyThreshold,
+            maxQueue,
+            maxWait,
+            BankApiClient::isDrop);
+    }
+}
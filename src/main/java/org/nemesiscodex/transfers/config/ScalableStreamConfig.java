@@ -0,0 +1,21 @@
+package org.nemesiscodex.transfers.config;
+
+import java.util.List;
+import java.util.function.Consumer;
+import org.nemesiscodex.transfers.scalable.dto.TransferCommand;
+import org.nemesiscodex.transfers.scalable.service.TransferCommandProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ScalableStreamConfig {
+
+    // Bound to processTransfers-in-0 in batch mode. The binder calls it on its own consumer threads,
+    // so blocking until the whole batch is applied is what gives back-pressure and at-least-once commits.
+    @Bean
+    @ConditionalOnProperty(prefix = "scalable.processor", name = "enabled", havingValue = "true")
+    public Consumer<List<TransferCommand>> processTransfers(TransferCommandProcessor processor) {
+        return commands -> processor.process(commands).block();
+    }
+}
@@ -0,0 +1,10 @@
+package org.nemesiscodex.transfers.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Jobs run on Spring Boot's scheduler, sized by spring.task.scheduling.pool.size
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,10 +1,17 @@
 package org.nemesiscodex.transfers.config;
 
-import org.nemesiscodex.transfers.core.repository.UserRepository;
+import java.time.Duration;
+import org.nemesiscodex.transfers.core.security.AuthRateLimitWebFilter;
+import org.nemesiscodex.transfers.core.security.AuthRateLimiter;
+import org.nemesiscodex.transfers.core.security.AuthenticatedUser;
+import org.nemesiscodex.transfers.core.security.BCryptWorkFactor;
 import org.nemesiscodex.transfers.core.security.JwtAuthenticationWebFilter;
+import org.nemesiscodex.transfers.core.service.UserService;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
@@ -18,31 +25,37 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
 import reactor.core.publisher.Mono;
+import tools.jackson.databind.json.JsonMapper;
 
 @Configuration
 @EnableWebFluxSecurity
 @EnableReactiveMethodSecurity
 public class SecurityConfig {
 
+    // Security: strength 0 tunes the work factor to target-hash-time at startup; hashes stored with a
+    // lower strength are upgraded on the next successful login
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+        @Value("${security.password.bcrypt.strength:0}") int strength,
+        @Value("${security.password.bcrypt.target-hash-time:250ms}") Duration targetHashTime) {
+        return new BCryptPasswordEncoder(strength > 0 ? strength : BCryptWorkFactor.tune(targetHashTime));
     }
 
+    // newPassword is already encoded, as in Spring Security's own upgrade path, so it is stored as is
     @Bean
     public ReactiveUserDetailsPasswordService reactiveUserDetailsPasswordService(
-        ObjectProvider<UserRepository> userRepositoryProvider,
-        PasswordEncoder passwordEncoder
+        ObjectProvider<UserService> userServiceProvider
     ) {
-        UserRepository userRepository = userRepositoryProvider.getIfAvailable();
-        if (userRepository != null) {
-            return (userDetails, newPassword) -> userRepository.findByUsername(userDetails.getUsername())
+        UserService userService = userServiceProvider.getIfAvailable();
+        if (userService != null) {
+            // Credentials are never cached; saving through UserService still evicts the cached user
+            return (userDetails, newPassword) -> userService.findCredentialsByUsername(userDetails.getUsername())
                 .switchIfEmpty(Mono.error(new UsernameNotFoundException("User not found: " + userDetails.getUsername())))
                 .flatMap(existing -> {
                     var updated = existing.toBuilder()
-                        .passwordHash(passwordEncoder.encode(newPassword))
+                        .passwordHash(newPassword)
                         .build();
-                    return userRepository.save(updated);
+                    return userService.save(updated);
                 })
                 .map(saved -> User.withUsername(saved.username())
                     .password(saved.passwordHash())
@@ -51,7 +64,7 @@ public class SecurityConfig {
         }
         return (userDetails, newPassword) -> Mono.just(
             User.withUsername(userDetails.getUsername())
-                .password(passwordEncoder.encode(newPassword))
+                .password(newPassword)
                 .authorities(userDetails.getAuthorities())
                 .build()
         );
@@ -60,7 +73,9 @@ public class SecurityConfig {
     @Bean
     public SecurityWebFilterChain securityWebFilterChain(
         ServerHttpSecurity http,
-        ObjectProvider<JwtAuthenticationWebFilter> jwtAuthenticationWebFilterProvider) {
+        ObjectProvider<JwtAuthenticationWebFilter> jwtAuthenticationWebFilterProvider,
+        ObjectProvider<AuthRateLimiter> authRateLimiterProvider,
+        ObjectProvider<JsonMapper> jsonMapperProvider) {
         var httpSpec = http
             .csrf(ServerHttpSecurity.CsrfSpec::disable)
             .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
@@ -70,7 +85,10 @@ public class SecurityConfig {
             .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
             .authorizeExchange(exchanges -> exchanges
                 .pathMatchers("/auth/signup", "/auth/login").permitAll()
-                .pathMatchers("/actuator/**").permitAll()
+                // Security: metrics and cache stats describe the traffic and users, only health is public
+                .pathMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                .pathMatchers("/actuator/**").hasRole(AuthenticatedUser.ADMIN_ROLE)
+                .pathMatchers(HttpMethod.POST, "/naive/balances:batchGet", "/naive/ledger:verify").hasRole(AuthenticatedUser.BACKOFFICE_ROLE)
                 .anyExchange().authenticated()
             )
             .exceptionHandling(spec -> spec
@@ -89,6 +107,14 @@ public class SecurityConfig {
             httpSpec.addFilterAt(jwtFilter, SecurityWebFiltersOrder.AUTHENTICATION);
         }
 
+        // Security: throttle login and signup before they cost a database read and a BCrypt hash
+        AuthRateLimiter authRateLimiter = authRateLimiterProvider.getIfAvailable();
+        if (authRateLimiter != null) {
+            httpSpec.addFilterBefore(
+                new AuthRateLimitWebFilter(authRateLimiter, jsonMapperProvider.getObject()),
+                SecurityWebFiltersOrder.AUTHENTICATION);
+        }
+
         return httpSpec.build();
     }
 }
@@ -0,0 +1,65 @@
+package org.nemesiscodex.transfers.core.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+// Request coalescing: concurrent subscribers asking the same query for the same id share one in-flight
+// call. The entry is dropped as soon as that call terminates, so nothing is served after the fact; a
+// subscriber arriving later starts a new call. A joiner can get a result read up to one call duration
+// before it arrived. The call runs with the first subscriber's context, so only use it for plain reads
+// outside a transaction.
+@Component
+public class SingleFlight {
+
+    private final Map<Key, Mono<?>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public SingleFlight(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("singleflight.inflight", this.inFlight, Map::size)
+            .description("Distinct calls currently shared")
+            .register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> execute(String query, Object id, Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            Key key = new Key(query, id);
+            boolean[] leader = {false};
+            Mono<T> shared = (Mono<T>) this.inFlight.computeIfAbsent(key, k -> {
+                leader[0] = true;
+                return share(k, call);
+            });
+            counter(query, leader[0] ? "executed" : "collapsed").increment();
+            return shared;
+        });
+    }
+
+    // share() subscribes to the call once and hands its result to every subscriber. A subscriber that
+    // cancels only detaches while others are still waiting, so one client going away never fails the rest.
+    private <T> Mono<T> share(Key key, Supplier<Mono<T>> call) {
+        Mono<?>[] self = new Mono<?>[1];
+        Mono<T> shared = Mono.defer(call)
+            .doFinally(signal -> this.inFlight.remove(key, self[0]))
+            .share();
+        self[0] = shared;
+        return shared;
+    }
+
+    private Counter counter(String query, String result) {
+        return Counter.builder("singleflight.calls")
+            .description("Calls started (executed) and calls that joined one already in flight (collapsed)")
+            .tag("query", query)
+            .tag("result", result)
+            .register(this.meterRegistry);
+    }
+
+    private record Key(String query, Object id) {
+    }
+}
@@ -0,0 +1,210 @@
+package org.nemesiscodex.transfers.core.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.nemesiscodex.transfers.core.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+// Two-tier user cache: a small in-process near cache in front of Valkey.
+// Valkey failures are treated as misses so lookups always fall back to Postgres.
+@Slf4j
+@Component
+public class UserCache {
+
+    private static final String USERNAME_KEY_PREFIX = "user:username:";
+    private static final String ID_KEY_PREFIX = "user:id:";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final Duration remoteTtl;
+    private final Cache<String, User> nearByUsername;
+    private final Cache<UUID, User> nearById;
+    private final Counter remoteHits;
+    private final Counter remoteMisses;
+    private final Counter remoteErrors;
+
+    public UserCache(
+        ReactiveStringRedisTemplate redisTemplate,
+        @Value("${cache.user.near-max-size:10000}") long nearMaxSize,
+        @Value("${cache.user.near-ttl:5s}") Duration nearTtl,
+        @Value("${cache.user.remote-ttl:10m}") Duration remoteTtl,
+        MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.remoteTtl = remoteTtl;
+        this.nearByUsername = Caffeine.newBuilder()
+            .maximumSize(nearMaxSize)
+            .expireAfterWrite(nearTtl)
+            .recordStats()
+            .build();
+        this.nearById = Caffeine.newBuilder()
+            .maximumSize(nearMaxSize)
+            .expireAfterWrite(nearTtl)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, this.nearByUsername, "user.near.username");
+        CaffeineCacheMetrics.monitor(meterRegistry, this.nearById, "user.near.id");
+        this.remoteHits = remoteCounter(meterRegistry, "hit");
+        this.remoteMisses = remoteCounter(meterRegistry, "miss");
+        this.remoteErrors = remoteCounter(meterRegistry, "error");
+    }
+
+    public Mono<User> getByUsername(String username) {
+        User near = this.nearByUsername.getIfPresent(username);
+        if (near != null) {
+            return Mono.just(near);
+        }
+        return readRemote(USERNAME_KEY_PREFIX + username);
+    }
+
+    public Mono<User> getById(UUID id) {
+        User near = this.nearById.getIfPresent(id);
+        if (near != null) {
+            return Mono.just(near);
+        }
+        return readRemote(ID_KEY_PREFIX + id);
+    }
+
+    // Callers get back what later reads will return, so a hit and a fill look the same
+    public static User cacheable(User user) {
+        return user.toBuilder()
+            .passwordHash(null)
+            .build();
+    }
+
+    public Mono<Void> put(User user) {
+        if (user.passwordHash() != null) {
+            return Mono.error(new IllegalArgumentException("Password hashes are never cached, see cacheable"));
+        }
+        putNear(user);
+        Map<String, String> fields = toHash(user);
+        return Mono.when(
+                writeRemote(USERNAME_KEY_PREFIX + user.username(), fields),
+                writeRemote(ID_KEY_PREFIX + user.id(), fields))
+            .onErrorResume(ex -> {
+                log.warn("Failed to write user {} to Valkey", user.id(), ex);
+                this.remoteErrors.increment();
+                return Mono.empty();
+            });
+    }
+
+    public Mono<Void> evict(User user) {
+        this.nearByUsername.invalidate(user.username());
+        this.nearById.invalidate(user.id());
+        return this.redisTemplate.delete(USERNAME_KEY_PREFIX + user.username(), ID_KEY_PREFIX + user.id())
+            .onErrorResume(ex -> {
+                log.warn("Failed to evict user {} from Valkey", user.id(), ex);
+                this.remoteErrors.increment();
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    public Stats stats() {
+        CacheStats byUsername = this.nearByUsername.stats();
+        CacheStats byId = this.nearById.stats();
+        long nearHits = byUsername.hitCount() + byId.hitCount();
+        long nearMisses = byUsername.missCount() + byId.missCount();
+        long remoteHits = (long) this.remoteHits.count();
+        long remoteMisses = (long) this.remoteMisses.count();
+        return new Stats(
+            nearHits,
+            nearMisses,
+            hitRate(nearHits, nearMisses),
+            remoteHits,
+            remoteMisses,
+            hitRate(remoteHits, remoteMisses),
+            (long) this.remoteErrors.count(),
+            this.nearByUsername.estimatedSize() + this.nearById.estimatedSize()
+        );
+    }
+
+    private Mono<User> readRemote(String key) {
+        return this.redisTemplate.<String, String>opsForHash().entries(key)
+            .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+            .filter(fields -> !fields.isEmpty())
+            .map(UserCache::fromHash)
+            .doOnNext(user -> {
+                this.remoteHits.increment();
+                putNear(user);
+            })
+            .switchIfEmpty(Mono.fromRunnable(this.remoteMisses::increment))
+            .onErrorResume(ex -> {
+                log.warn("Failed to read {} from Valkey, falling back to the database", key, ex);
+                this.remoteErrors.increment();
+                return Mono.empty();
+            });
+    }
+
+    private Mono<Boolean> writeRemote(String key, Map<String, String> fields) {
+        return this.redisTemplate.<String, String>opsForHash().putAll(key, fields)
+            .then(this.redisTemplate.expire(key, this.remoteTtl));
+    }
+
+    private void putNear(User user) {
+        this.nearByUsername.put(user.username(), user);
+        this.nearById.put(user.id(), user);
+    }
+
+    // Security: only what lookups need; credentials are always read from Postgres
+    private static Map<String, String> toHash(User user) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("id", user.id().toString());
+        fields.put("username", user.username());
+        fields.put("email", user.email());
+        if (user.createdAt() != null) {
+            fields.put("createdAt", user.createdAt().toString());
+        }
+        if (user.updatedAt() != null) {
+            fields.put("updatedAt", user.updatedAt().toString());
+        }
+        return fields;
+    }
+
+    private static User fromHash(Map<String, String> fields) {
+        return User.builder()
+            .id(UUID.fromString(fields.get("id")))
+            .username(fields.get("username"))
+            .email(fields.get("email"))
+            .createdAt(parseInstant(fields.get("createdAt")))
+            .updatedAt(parseInstant(fields.get("updatedAt")))
+            .build();
+    }
+
+    private static Instant parseInstant(String value) {
+        return value != null ? Instant.parse(value) : null;
+    }
+
+    private static double hitRate(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    private static Counter remoteCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("user.cache.remote")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    public record Stats(
+        long nearHits,
+        long nearMisses,
+        double nearHitRate,
+        long remoteHits,
+        long remoteMisses,
+        double remoteHitRate,
+        long remoteErrors,
+        long nearSize) {
+    }
+}
@@ -0,0 +1,19 @@
+package org.nemesiscodex.transfers.core.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@Endpoint(id = "usercache")
+@RequiredArgsConstructor
+public class UserCacheEndpoint {
+
+    private final UserCache userCache;
+
+    @ReadOperation
+    public UserCache.Stats stats() {
+        return this.userCache.stats();
+    }
+}
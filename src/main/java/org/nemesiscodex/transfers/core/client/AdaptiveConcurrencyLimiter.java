@@ -0,0 +1,233 @@
+package org.nemesiscodex.transfers.core.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+// AIMD concurrency limit driven by the calls it guards. While at least half of the limit is in use, a
+// call that answers within latency-threshold grows the limit by 1/limit, roughly one permit per fully
+// used window. A call that errors with a drop (timeout, 5xx, open circuit) or answers slower than
+// latency-threshold multiplies it by backoff-ratio. Calls over the limit wait in a bounded FIFO queue
+// for up to max-wait and are shed with ConcurrencyLimitExceededException once the queue is full or
+// the wait runs out.
+public class AdaptiveConcurrencyLimiter {
+
+    private enum WaiterState { WAITING, GRANTED, ABANDONED }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final int maxQueue;
+    private final Duration maxWait;
+    private final Predicate<Throwable> isDrop;
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Counter queueFull;
+    private final Counter waitTimeout;
+    // Written under the monitor only, volatile for the gauges
+    private volatile double limit;
+    private volatile int inFlight;
+
+    public AdaptiveConcurrencyLimiter(
+        String name,
+        MeterRegistry meterRegistry,
+        int initialLimit,
+        int minLimit,
+        int maxLimit,
+        double backoffRatio,
+        Duration latencyThreshold,
+        int maxQueue,
+        Duration maxWait,
+        Predicate<Throwable> isDrop) {
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.maxQueue = maxQueue;
+        this.maxWait = maxWait;
+        this.isDrop = isDrop;
+        Gauge.builder("concurrency.limit", this, AdaptiveConcurrencyLimiter::limit)
+            .tag("name", name)
+            .description("Current adaptive in-flight limit")
+            .register(meterRegistry);
+        Gauge.builder("concurrency.inflight", this, AdaptiveConcurrencyLimiter::inFlight)
+            .tag("name", name)
+            .register(meterRegistry);
+        Gauge.builder("concurrency.queued", this.queued, AtomicInteger::get)
+            .tag("name", name)
+            .description("Calls waiting for a permit")
+            .register(meterRegistry);
+        this.queueFull = Counter.builder("concurrency.rejected")
+            .tag("name", name)
+            .tag("reason", "queue_full")
+            .register(meterRegistry);
+        this.waitTimeout = Counter.builder("concurrency.rejected")
+            .tag("name", name)
+            .tag("reason", "wait_timeout")
+            .register(meterRegistry);
+    }
+
+    public int limit() {
+        return (int) this.limit;
+    }
+
+    public int inFlight() {
+        return this.inFlight;
+    }
+
+    public int queued() {
+        return this.queued.get();
+    }
+
+    // The round trip is measured from the moment the permit is granted, queueing time is not a signal
+    public <T> Mono<T> execute(Supplier<Mono<T>> call) {
+        return Mono.usingWhen(
+            acquire(),
+            permit -> {
+                permit.start = System.nanoTime();
+                return call.get();
+            },
+            permit -> Mono.fromRunnable(() -> permit.release(false)),
+            (permit, ex) -> Mono.fromRunnable(() -> permit.release(this.isDrop.test(ex))),
+            permit -> Mono.fromRunnable(permit::cancel));
+    }
+
+    private Mono<Permit> acquire() {
+        return Mono.create(sink -> {
+            Permit permit = tryAcquire();
+            if (permit != null) {
+                sink.success(permit);
+                return;
+            }
+            if (this.queued.incrementAndGet() > this.maxQueue) {
+                this.queued.decrementAndGet();
+                this.queueFull.increment();
+                sink.error(new ConcurrencyLimitExceededException("Concurrency limit reached and queue is full"));
+                return;
+            }
+            Waiter waiter = new Waiter(sink);
+            this.waiters.add(waiter);
+            waiter.timeout = Schedulers.parallel().schedule(() -> {
+                if (waiter.abandon()) {
+                    this.waitTimeout.increment();
+                    sink.error(new ConcurrencyLimitExceededException("Timed out waiting for a concurrency permit"));
+                }
+            }, this.maxWait.toMillis(), TimeUnit.MILLISECONDS);
+            sink.onCancel(() -> {
+                if (!waiter.abandon() && waiter.state.get() == WaiterState.GRANTED) {
+                    // Granted while being cancelled, the permit never reached usingWhen
+                    waiter.permit.cancel();
+                }
+            });
+            // A permit may have been released between tryAcquire and joining the queue
+            grant(drainWaiters());
+        });
+    }
+
+    private synchronized Permit tryAcquire() {
+        if (this.waiters.isEmpty() && this.inFlight < (int) this.limit) {
+            this.inFlight++;
+            return new Permit();
+        }
+        return null;
+    }
+
+    private void release(long rttNanos, boolean dropped, boolean adjust) {
+        List<Waiter> granted;
+        synchronized (this) {
+            this.inFlight--;
+            if (adjust) {
+                if (dropped || rttNanos > this.latencyThresholdNanos) {
+                    this.limit = Math.max(this.minLimit, this.limit * this.backoffRatio);
+                } else if ((this.inFlight + 1) * 2 >= this.limit) {
+                    // An idle limiter learns nothing about the bank, it must not drift up to max-limit
+                    this.limit = Math.min(this.maxLimit, this.limit + 1 / this.limit);
+                }
+            }
+            granted = drainWaiters();
+        }
+        grant(granted);
+    }
+
+    private synchronized List<Waiter> drainWaiters() {
+        List<Waiter> granted = new ArrayList<>();
+        while (this.inFlight < (int) this.limit) {
+            Waiter waiter = this.waiters.poll();
+            if (waiter == null) {
+                break;
+            }
+            if (waiter.state.compareAndSet(WaiterState.WAITING, WaiterState.GRANTED)) {
+                this.queued.decrementAndGet();
+                this.inFlight++;
+                granted.add(waiter);
+            }
+        }
+        return granted;
+    }
+
+    // Sinks are signalled outside the monitor, the granted call may run inline
+    private static void grant(List<Waiter> granted) {
+        for (Waiter waiter : granted) {
+            waiter.timeout.dispose();
+            waiter.sink.success(waiter.permit);
+        }
+    }
+
+    private final class Permit {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile long start;
+
+        void release(boolean dropped) {
+            if (this.released.compareAndSet(false, true)) {
+                AdaptiveConcurrencyLimiter.this.release(System.nanoTime() - this.start, dropped, true);
+            }
+        }
+
+        // A cancelled call says nothing about the downstream, the limit is left alone
+        void cancel() {
+            if (this.released.compareAndSet(false, true)) {
+                AdaptiveConcurrencyLimiter.this.release(0, false, false);
+            }
+        }
+    }
+
+    private final class Waiter {
+
+        private final MonoSink<Permit> sink;
+        private final Permit permit = new Permit();
+        private final AtomicReference<WaiterState> state = new AtomicReference<>(WaiterState.WAITING);
+        private volatile Disposable timeout = () -> { };
+
+        Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+
+        boolean abandon() {
+            if (this.state.compareAndSet(WaiterState.WAITING, WaiterState.ABANDONED)) {
+                this.timeout.dispose();
+                AdaptiveConcurrencyLimiter.this.waiters.remove(this);
+                AdaptiveConcurrencyLimiter.this.queued.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.nemesiscodex.transfers.core.client;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.nemesiscodex.transfers.core.dto.BankTransferRequest;
+import org.nemesiscodex.transfers.core.dto.BankTransferResponse;
+import org.nemesiscodex.transfers.core.service.IdempotencyService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+// Client for the third-party bank API, on its own bounded connection pool. From the outside in:
+// - retries with jittered backoff cover 5xx, timeouts and connection errors, never 4xx
+// - each try is hedged: if it has not answered within hedge-delay a second identical request races it
+// - an adaptive concurrency limiter sizes in-flight requests from their latency and drops, queueing or
+//   shedding the excess with ConcurrencyLimitExceededException (429). Every request, hedges included,
+//   holds its own permit for as long as it is on the wire, none is held through a retry backoff.
+// - a circuit breaker around every request stops calling a bank that keeps failing
+// Retries and hedges are only safe because the transfer id is sent as the bank's Idempotency-Key.
+// Open-circuit rejections surface as RejectedExecutionException, 4xx as BankRejectedException.
+@Component
+@ConditionalOnProperty(prefix = "bank.api", name = "enabled", havingValue = "true")
+public class BankApiClient {
+
+    private final WebClient webClient;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final CircuitBreaker circuitBreaker;
+    private final Retry retry;
+    private final Duration attemptTimeout;
+    private final Duration hedgeDelay;
+    private final MeterRegistry meterRegistry;
+    private final Counter hedges;
+
+    public BankApiClient(
+        WebClient.Builder webClientBuilder,
+        MeterRegistry meterRegistry,
+        AdaptiveConcurrencyLimiter bankApiLimiter,
+        @Value("${bank.api.base-url:http://localhost:8089}") String baseUrl,
+        @Value("${bank.api.pool.max-connections:100}") int maxConnections,
+        @Value("${bank.api.pool.pending-acquire-timeout:1s}") Duration pendingAcquireTimeout,
+        @Value("${bank.api.pool.max-idle-time:30s}") Duration maxIdleTime,
+        @Value("${bank.api.connect-timeout:1s}") Duration connectTimeout,
+        @Value("${bank.api.attempt-timeout:2s}") Duration attemptTimeout,
+        @Value("${bank.api.hedge-delay:300ms}") Duration hedgeDelay,
+        @Value("${bank.api.max-retries:2}") int maxRetries,
+        @Value("${bank.api.retry-backoff:100ms}") Duration retryBackoff,
+        @Value("${bank.api.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+        @Value("${bank.api.circuit-breaker.sliding-window-size:50}") int slidingWindowSize,
+        @Value("${bank.api.circuit-breaker.wait-in-open-state:10s}") Duration waitInOpenState) {
+        ConnectionProvider pool = ConnectionProvider.builder("bank-api")
+            .maxConnections(maxConnections)
+            .pendingAcquireTimeout(pendingAcquireTimeout)
+            .maxIdleTime(maxIdleTime)
+            .metrics(true)
+            .build();
+        HttpClient httpClient = HttpClient.create(pool)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis());
+        this.webClient = webClientBuilder
+            .baseUrl(baseUrl)
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .build();
+        this.attemptTimeout = attemptTimeout;
+        this.hedgeDelay = hedgeDelay;
+        this.meterRegistry = meterRegistry;
+        this.limiter = bankApiLimiter;
+        this.circuitBreaker = CircuitBreaker.of("bank-api", CircuitBreakerConfig.custom()
+            .failureRateThreshold(failureRateThreshold)
+            .slidingWindowSize(slidingWindowSize)
+            .minimumNumberOfCalls(Math.min(slidingWindowSize, 10))
+            .waitDurationInOpenState(waitInOpenState)
+            // A rejected transfer is the bank working correctly, it must not open the circuit
+            .recordException(ex -> !isClientError(ex))
+            .build());
+        this.retry = Retry.backoff(maxRetries, retryBackoff)
+            .jitter(0.5)
+            .filter(BankApiClient::isRetryable)
+            .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+        this.hedges = Counter.builder("bank.api.hedged")
+            .description("Hedge requests sent because the first one was slow")
+            .register(meterRegistry);
+        meterRegistry.gauge("bank.api.circuit.state", this.circuitBreaker,
+            value -> value.getState().getOrder());
+    }
+
+    public Mono<BankTransferResponse> submitTransfer(BankTransferRequest request) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return hedged(request).retryWhen(this.retry)
+                .onErrorMap(CallNotPermittedException.class, ex ->
+                    new RejectedExecutionException("Bank API circuit is open", ex))
+                .onErrorMap(BankApiClient::isClientError, ex ->
+                    new BankRejectedException("Rejected by bank: " + ((WebClientResponseException) ex).getStatusCode(), ex))
+                .doOnSuccess(response -> record("success", start))
+                .doOnError(ex -> record(outcome(ex), start));
+        });
+    }
+
+    // firstWithValue cancels the loser; when both fail the first failure is surfaced to the retry filter
+    private Mono<BankTransferResponse> hedged(BankTransferRequest request) {
+        Mono<BankTransferResponse> hedge = Mono.delay(this.hedgeDelay)
+            .doOnNext(tick -> this.hedges.increment())
+            .then(attempt(request));
+        return Mono.firstWithValue(attempt(request), hedge)
+            .onErrorMap(NoSuchElementException.class, BankApiClient::firstFailure);
+    }
+
+    // The attempt timeout starts once the permit is granted, time spent queueing is bounded by max-wait
+    private Mono<BankTransferResponse> attempt(BankTransferRequest request) {
+        return this.limiter.execute(() -> this.webClient.post()
+            .uri("/transfers")
+            .header(IdempotencyService.HEADER, request.transferId().toString())
+            .bodyValue(request)
+            .retrieve()
+            .bodyToMono(BankTransferResponse.class)
+            .timeout(this.attemptTimeout)
+            .transformDeferred(CircuitBreakerOperator.of(this.circuitBreaker)));
+    }
+
+    private void record(String outcome, long start) {
+        Timer.builder("bank.api.call")
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(this.meterRegistry)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private static String outcome(Throwable ex) {
+        if (ex instanceof ConcurrencyLimitExceededException) {
+            return "shed";
+        }
+        if (ex instanceof RejectedExecutionException) {
+            return "rejected";
+        }
+        if (ex instanceof BankRejectedException) {
+            return "client_error";
+        }
+        return "error";
+    }
+
+    private static Throwable firstFailure(NoSuchElementException ex) {
+        for (Throwable suppressed : ex.getSuppressed()) {
+            List<Throwable> causes = Exceptions.unwrapMultiple(suppressed);
+            if (!causes.isEmpty()) {
+                return causes.getFirst();
+            }
+        }
+        return ex;
+    }
+
+    private static boolean isRetryable(Throwable ex) {
+        return ex instanceof TimeoutException
+            || ex instanceof WebClientRequestException
+            || ex instanceof WebClientResponseException response && response.getStatusCode().is5xxServerError();
+    }
+
+    // Anything but a 4xx tells the limiter the bank is struggling
+    public static boolean isDrop(Throwable ex) {
+        return !isClientError(ex);
+    }
+
+    private static boolean isClientError(Throwable ex) {
+        return ex instanceof WebClientResponseException response && response.getStatusCode().is4xxClientError();
+    }
+}
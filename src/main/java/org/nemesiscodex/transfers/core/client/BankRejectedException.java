@@ -0,0 +1,9 @@
+package org.nemesiscodex.transfers.core.client;
+
+// A 4xx from the bank: the transfer itself was refused, so retrying or hedging it cannot help
+public class BankRejectedException extends RuntimeException {
+
+    public BankRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,12 @@
+package org.nemesiscodex.transfers.core.client;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+// Work shed by an AdaptiveConcurrencyLimiter, answered with 429 wherever it reaches a controller
+public class ConcurrencyLimitExceededException extends ResponseStatusException {
+
+    public ConcurrencyLimitExceededException(String reason) {
+        super(HttpStatus.TOO_MANY_REQUESTS, reason);
+    }
+}
@@ -1,6 +1,7 @@
 package org.nemesiscodex.transfers.core.controller;
 
 import jakarta.validation.Valid;
+import java.util.concurrent.RejectedExecutionException;
 import org.nemesiscodex.transfers.core.dto.LoginRequest;
 import org.nemesiscodex.transfers.core.dto.LoginResponse;
 import org.nemesiscodex.transfers.core.dto.SignupRequest;
@@ -34,6 +35,9 @@ public class AuthController {
             .map(response -> ResponseEntity.status(HttpStatus.CREATED).body(response))
             .onErrorMap(IllegalStateException.class, ex ->
                 new ResponseStatusException(HttpStatus.CONFLICT, ex.getMessage(), ex)
+            )
+            .onErrorMap(RejectedExecutionException.class, ex ->
+                new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), ex)
             );
     }
 
@@ -44,6 +48,9 @@ public class AuthController {
             .map(ResponseEntity::ok)
             .onErrorMap(BadCredentialsException.class, ex ->
                 new ResponseStatusException(HttpStatus.UNAUTHORIZED, ex.getMessage(), ex)
+            )
+            .onErrorMap(RejectedExecutionException.class, ex ->
+                new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), ex)
             );
     }
 
@@ -2,9 +2,9 @@ package org.nemesiscodex.transfers.core.controller;
 
 import org.nemesiscodex.transfers.core.dto.UserResponse;
 import org.nemesiscodex.transfers.core.entity.User;
-import org.nemesiscodex.transfers.core.repository.UserRepository;
-import org.springframework.security.core.context.ReactiveSecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.nemesiscodex.transfers.core.security.AuthenticatedUser;
+import org.nemesiscodex.transfers.core.service.UserService;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -14,17 +14,15 @@ import reactor.core.publisher.Mono;
 @RequestMapping("/user")
 public class UserController {
 
-    private final UserRepository userRepository;
+    private final UserService userService;
 
-    public UserController(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public UserController(UserService userService) {
+        this.userService = userService;
     }
 
     @GetMapping
-    public Mono<UserResponse> getCurrentUser() {
-        return ReactiveSecurityContextHolder.getContext()
-            .map(context -> (UserDetails) context.getAuthentication().getPrincipal())
-            .flatMap(userDetails -> this.userRepository.findByUsername(userDetails.getUsername()))
+    public Mono<UserResponse> getCurrentUser(@AuthenticationPrincipal AuthenticatedUser principal) {
+        return this.userService.findById(principal.userId())
             .map(this::toUserResponse);
     }
 
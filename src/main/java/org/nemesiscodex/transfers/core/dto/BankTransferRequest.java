@@ -0,0 +1,11 @@
+package org.nemesiscodex.transfers.core.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record BankTransferRequest(
+    UUID transferId,
+    UUID senderId,
+    UUID recipientId,
+    BigDecimal amount) {
+}
@@ -0,0 +1,6 @@
+package org.nemesiscodex.transfers.core.dto;
+
+public record BankTransferResponse(
+    String reference,
+    String status) {
+}
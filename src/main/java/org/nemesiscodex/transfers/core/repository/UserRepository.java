@@ -2,6 +2,7 @@ package org.nemesiscodex.transfers.core.repository;
 
 import java.util.UUID;
 import org.nemesiscodex.transfers.core.entity.User;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Mono;
@@ -11,7 +12,12 @@ public interface UserRepository extends ReactiveCrudRepository<User, UUID> {
 
     Mono<User> findByUsername(String username);
 
-    Mono<Boolean> existsByUsername(String username);
-
-    Mono<Boolean> existsByEmail(String email);
+    // Defaults and timestamps come back with the insert, and a taken username or email fails on the
+    // unique constraints with DuplicateKeyException instead of needing a check first
+    @Query("""
+        insert into users (username, password_hash, email)
+        values (:username, :passwordHash, :email)
+        returning *
+        """)
+    Mono<User> insert(String username, String passwordHash, String email);
 }
@@ -0,0 +1,113 @@
+package org.nemesiscodex.transfers.core.security;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.net.InetSocketAddress;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tools.jackson.databind.json.JsonMapper;
+
+// Throttles POST /auth/login and /auth/signup before they reach the database and BCrypt. Registered by
+// SecurityConfig rather than as a bean, so it only runs inside the security chain. Limited requests get
+// 429 with Retry-After in whole seconds.
+// The client is the socket peer; behind a proxy, enable server.forward-headers-strategy so it is the
+// forwarded client address instead.
+public class AuthRateLimitWebFilter implements WebFilter {
+
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+
+    private final AuthRateLimiter rateLimiter;
+    private final JsonMapper jsonMapper;
+
+    public AuthRateLimitWebFilter(AuthRateLimiter rateLimiter, JsonMapper jsonMapper) {
+        this.rateLimiter = rateLimiter;
+        this.jsonMapper = jsonMapper;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getMethod() != HttpMethod.POST) {
+            return chain.filter(exchange);
+        }
+        return switch (request.getPath().pathWithinApplication().value()) {
+            case "/auth/login" -> limitLogin(exchange, chain);
+            case "/auth/signup" -> apply(this.rateLimiter.tryAcquireSignup(clientIp(request)), exchange, chain);
+            default -> chain.filter(exchange);
+        };
+    }
+
+    // The username is in the body, so it is read once here and replayed to the controller
+    private Mono<Void> limitLogin(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        return DataBufferUtils.join(request.getBody(), MAX_BODY_BYTES)
+            .map(buffer -> {
+                byte[] bytes = new byte[buffer.readableByteCount()];
+                buffer.read(bytes);
+                DataBufferUtils.release(buffer);
+                return bytes;
+            })
+            .defaultIfEmpty(new byte[0])
+            .flatMap(body -> {
+                ServerWebExchange replayed = exchange.mutate()
+                    .request(new ServerHttpRequestDecorator(request) {
+                        @Override
+                        public Flux<DataBuffer> getBody() {
+                            return Flux.defer(() -> Flux.just(exchange.getResponse().bufferFactory().wrap(body)));
+                        }
+                    })
+                    .build();
+                return apply(this.rateLimiter.tryAcquireLogin(clientIp(request), username(body)), replayed, chain);
+            })
+            .onErrorResume(DataBufferLimitException.class, ex -> {
+                exchange.getResponse().setStatusCode(HttpStatus.PAYLOAD_TOO_LARGE);
+                return exchange.getResponse().setComplete();
+            });
+    }
+
+    private Mono<Void> apply(Mono<AuthRateLimiter.Decision> decision, ServerWebExchange exchange, WebFilterChain chain) {
+        return decision.flatMap(result -> {
+            if (result.allowed()) {
+                return chain.filter(exchange);
+            }
+            long seconds = Math.max(1, (result.retryAfter().toMillis() + 999) / 1000);
+            exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+            return exchange.getResponse().setComplete();
+        });
+    }
+
+    // A body that is not a login request is only limited per IP and left to validation
+    private String username(byte[] body) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            return this.jsonMapper.readValue(body, UsernameOnly.class).username();
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private static String clientIp(ServerHttpRequest request) {
+        InetSocketAddress remote = request.getRemoteAddress();
+        if (remote == null) {
+            return "unknown";
+        }
+        return remote.getAddress() != null ? remote.getAddress().getHostAddress() : remote.getHostString();
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record UsernameOnly(String username) {
+    }
+}
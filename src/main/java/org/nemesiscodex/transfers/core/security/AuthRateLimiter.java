@@ -0,0 +1,235 @@
+package org.nemesiscodex.transfers.core.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+// Token buckets for the unauthenticated auth endpoints, per client IP and per username from that IP. A
+// username is never limited on its own, so nobody can lock a user out by failing logins under their name
+// from somewhere else. All buckets of one request are checked and charged atomically in a single Valkey
+// script call. When Valkey is slow or unavailable the same buckets are kept in process, so each instance
+// still throttles on its own.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "security.rate-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AuthRateLimiter {
+
+    // KEYS: one bucket per limit. ARGV: capacity and milliseconds per token, for each key in order.
+    // Every bucket is refilled from the elapsed time, and one token is taken from each only when all of
+    // them have one. Valkey's clock is used so that all instances agree. Returns {allowed, retry_after_ms}.
+    private static final String TOKEN_BUCKET = """
+        local time = redis.call('TIME')
+        local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+        local available = {}
+        local retry = 0
+        for i, key in ipairs(KEYS) do
+            local capacity = tonumber(ARGV[2 * i - 1])
+            local interval = tonumber(ARGV[2 * i])
+            local state = redis.call('HMGET', key, 'tokens', 'ts')
+            local tokens = tonumber(state[1]) or capacity
+            local ts = tonumber(state[2]) or now
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) / interval)
+            available[i] = tokens
+            if tokens < 1 then
+                retry = math.max(retry, math.ceil((1 - tokens) * interval))
+            end
+        end
+        local allowed = 0
+        if retry == 0 then
+            allowed = 1
+        end
+        for i, key in ipairs(KEYS) do
+            local capacity = tonumber(ARGV[2 * i - 1])
+            local interval = tonumber(ARGV[2 * i])
+            local tokens = available[i] - allowed
+            redis.call('HSET', key, 'tokens', tostring(tokens), 'ts', now)
+            redis.call('PEXPIRE', key, math.ceil((capacity - tokens) * interval) + 1000)
+        end
+        return {allowed, retry}
+        """;
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SCRIPT = RedisScript.of(TOKEN_BUCKET, List.class);
+
+    private static final String KEY_PREFIX = "rate:";
+    private static final List<String> ENDPOINTS = List.of("login", "signup");
+    private static final List<String> STORES = List.of("valkey", "local");
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final Duration valkeyTimeout;
+    private final Bucket loginPerIp;
+    private final Bucket loginPerUsername;
+    private final Bucket signupPerIp;
+    private final Cache<String, LocalBucket> localBuckets;
+    private final Counter fallbacks;
+    private final Map<String, Timer> checkTimers;
+    private final Map<String, Counter> decisions;
+
+    public AuthRateLimiter(
+        ReactiveStringRedisTemplate redisTemplate,
+        MeterRegistry meterRegistry,
+        @Value("${security.rate-limit.valkey-timeout:50ms}") Duration valkeyTimeout,
+        @Value("${security.rate-limit.login.per-ip.capacity:20}") int loginPerIpCapacity,
+        @Value("${security.rate-limit.login.per-ip.refill-interval:3s}") Duration loginPerIpInterval,
+        @Value("${security.rate-limit.login.per-username.capacity:5}") int loginPerUsernameCapacity,
+        @Value("${security.rate-limit.login.per-username.refill-interval:1m}") Duration loginPerUsernameInterval,
+        @Value("${security.rate-limit.signup.per-ip.capacity:5}") int signupPerIpCapacity,
+        @Value("${security.rate-limit.signup.per-ip.refill-interval:1m}") Duration signupPerIpInterval,
+        @Value("${security.rate-limit.local-max-size:100000}") long localMaxSize) {
+        this.redisTemplate = redisTemplate;
+        this.valkeyTimeout = valkeyTimeout;
+        this.loginPerIp = new Bucket("login:ip:", loginPerIpCapacity, loginPerIpInterval);
+        this.loginPerUsername = new Bucket("login:user-ip:", loginPerUsernameCapacity, loginPerUsernameInterval);
+        this.signupPerIp = new Bucket("signup:ip:", signupPerIpCapacity, signupPerIpInterval);
+        this.localBuckets = Caffeine.newBuilder()
+            .maximumSize(localMaxSize)
+            // A bucket idle for this long has refilled completely, forgetting it changes nothing
+            .expireAfterAccess(List.of(loginPerIp, loginPerUsername, signupPerIp).stream()
+                .map(Bucket::fullRefill)
+                .max(Duration::compareTo)
+                .orElseThrow())
+            .build();
+        this.fallbacks = Counter.builder("auth.rate.limit.fallback")
+            .description("Checks answered by the in-process buckets because Valkey failed")
+            .register(meterRegistry);
+        this.checkTimers = STORES.stream()
+            .collect(Collectors.toUnmodifiableMap(Function.identity(), store -> Timer.builder("auth.rate.limit.check")
+                .tag("store", store)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry)));
+        Map<String, Counter> decisions = new HashMap<>();
+        for (String endpoint : ENDPOINTS) {
+            for (boolean allowed : new boolean[] {true, false}) {
+                decisions.put(decisionKey(endpoint, allowed), Counter.builder("auth.rate.limit")
+                    .tag("endpoint", endpoint)
+                    .tag("result", allowed ? "allowed" : "limited")
+                    .register(meterRegistry));
+            }
+        }
+        this.decisions = Map.copyOf(decisions);
+    }
+
+    public Mono<Decision> tryAcquireLogin(String clientIp, String username) {
+        List<Limit> limits = new ArrayList<>(2);
+        limits.add(this.loginPerIp.limit(clientIp));
+        if (username != null && !username.isBlank()) {
+            limits.add(this.loginPerUsername.limit(clientIp + "/" + username.trim().toLowerCase(Locale.ROOT)));
+        }
+        return tryAcquire("login", limits);
+    }
+
+    public Mono<Decision> tryAcquireSignup(String clientIp) {
+        return tryAcquire("signup", List.of(this.signupPerIp.limit(clientIp)));
+    }
+
+    private Mono<Decision> tryAcquire(String endpoint, List<Limit> limits) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return remote(limits)
+                .map(decision -> record(endpoint, "valkey", decision, start))
+                .onErrorResume(ex -> {
+                    log.debug("Rate limit check fell back to local buckets", ex);
+                    this.fallbacks.increment();
+                    return Mono.fromSupplier(() -> record(endpoint, "local", local(limits), start));
+                });
+        });
+    }
+
+    private Mono<Decision> remote(List<Limit> limits) {
+        List<String> keys = new ArrayList<>(limits.size());
+        List<String> args = new ArrayList<>(limits.size() * 2);
+        for (Limit limit : limits) {
+            keys.add(KEY_PREFIX + limit.key());
+            args.add(String.valueOf(limit.capacity()));
+            args.add(String.valueOf(limit.millisPerToken()));
+        }
+        return this.redisTemplate.execute(SCRIPT, keys, args)
+            .next()
+            .map(result -> new Decision(
+                ((Number) result.get(0)).longValue() == 1,
+                Duration.ofMillis(((Number) result.get(1)).longValue())))
+            .timeout(this.valkeyTimeout);
+    }
+
+    // Same algorithm as the script. Buckets are only touched under the limiter's lock, which keeps the
+    // all-or-nothing charge simple; this path only runs while Valkey is failing.
+    private synchronized Decision local(List<Limit> limits) {
+        long now = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+        List<LocalBucket> buckets = new ArrayList<>(limits.size());
+        long retry = 0;
+        for (Limit limit : limits) {
+            LocalBucket bucket = this.localBuckets.get(limit.key(), key -> new LocalBucket(limit.capacity(), now));
+            bucket.refill(limit, now);
+            if (bucket.tokens < 1) {
+                retry = Math.max(retry, (long) Math.ceil((1 - bucket.tokens) * limit.millisPerToken()));
+            }
+            buckets.add(bucket);
+        }
+        if (retry == 0) {
+            buckets.forEach(bucket -> bucket.tokens -= 1);
+        }
+        return new Decision(retry == 0, Duration.ofMillis(retry));
+    }
+
+    private Decision record(String endpoint, String store, Decision decision, long start) {
+        this.checkTimers.get(store).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        this.decisions.get(decisionKey(endpoint, decision.allowed())).increment();
+        return decision;
+    }
+
+    private static String decisionKey(String endpoint, boolean allowed) {
+        return endpoint + (allowed ? ":allowed" : ":limited");
+    }
+
+    public record Decision(boolean allowed, Duration retryAfter) {
+    }
+
+    record Limit(String key, int capacity, long millisPerToken) {
+    }
+
+    // capacity requests in a burst, then one more every refillInterval
+    private record Bucket(String prefix, int capacity, Duration refillInterval) {
+
+        Limit limit(String subject) {
+            return new Limit(this.prefix + subject, this.capacity, Math.max(1, this.refillInterval.toMillis()));
+        }
+
+        Duration fullRefill() {
+            return this.refillInterval.multipliedBy(this.capacity);
+        }
+    }
+
+    private static final class LocalBucket {
+
+        private double tokens;
+        private long updatedAt;
+
+        LocalBucket(int capacity, long now) {
+            this.tokens = capacity;
+            this.updatedAt = now;
+        }
+
+        void refill(Limit limit, long now) {
+            this.tokens = Math.min(limit.capacity(), this.tokens + (double) (now - this.updatedAt) / limit.millisPerToken());
+            this.updatedAt = now;
+        }
+    }
+}
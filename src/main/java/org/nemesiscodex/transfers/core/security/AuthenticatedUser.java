@@ -0,0 +1,46 @@
+package org.nemesiscodex.transfers.core.security;
+
+import io.jsonwebtoken.Claims;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+// Security: principal built only from verified JWT claims, so authenticated requests need no user lookup
+public record AuthenticatedUser(UUID userId, String username, List<String> roles) implements AuthenticatedPrincipal {
+
+    public static final String USER_ID_CLAIM = "userId";
+    public static final String ROLES_CLAIM = "roles";
+    public static final List<String> DEFAULT_ROLES = List.of("USER");
+    // Back-office and batch tooling; tokens carrying it are issued out of band, never by /auth/login
+    public static final String BACKOFFICE_ROLE = "BACKOFFICE";
+    // Operators: actuator endpoints other than health; issued out of band like BACKOFFICE
+    public static final String ADMIN_ROLE = "ADMIN";
+
+    public static AuthenticatedUser from(Claims claims) {
+        String userId = claims.get(USER_ID_CLAIM, String.class);
+        if (userId == null) {
+            throw new IllegalArgumentException("Token has no " + USER_ID_CLAIM + " claim");
+        }
+        List<?> roles = claims.get(ROLES_CLAIM, List.class);
+        return new AuthenticatedUser(
+            UUID.fromString(userId),
+            claims.getSubject(),
+            // Tokens issued before roles were embedded carry the default role
+            roles == null ? DEFAULT_ROLES : roles.stream().map(Object::toString).toList()
+        );
+    }
+
+    public Collection<GrantedAuthority> authorities() {
+        return this.roles.stream()
+            .<GrantedAuthority>map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+            .toList();
+    }
+
+    @Override
+    public String getName() {
+        return this.username;
+    }
+}
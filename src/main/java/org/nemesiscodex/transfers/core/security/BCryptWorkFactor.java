@@ -0,0 +1,45 @@
+package org.nemesiscodex.transfers.core.security;
+
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+// Picks the BCrypt strength whose hash time is closest to, without exceeding, a target on this machine.
+// Each strength step doubles the cost, so one measurement at MIN_STRENGTH is enough to extrapolate.
+@Slf4j
+public final class BCryptWorkFactor {
+
+    // Security: never go below the OWASP floor, whatever the hardware
+    static final int MIN_STRENGTH = 10;
+    static final int MAX_STRENGTH = 16;
+    private static final String PROBE = "work-factor-probe";
+
+    private BCryptWorkFactor() {
+    }
+
+    public static int tune(Duration targetHashTime) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(MIN_STRENGTH);
+        // The first call pays for class loading and JIT, measure the best of a few after it
+        probe.encode(PROBE);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            probe.encode(PROBE);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        int strength = strengthFor(targetHashTime.toNanos(), best);
+        log.info("BCrypt strength {} selected: {} ms at strength {}, target {} ms",
+            strength, best / 1_000_000, MIN_STRENGTH, targetHashTime.toMillis());
+        return strength;
+    }
+
+    static int strengthFor(long targetNanos, long nanosAtMinStrength) {
+        int strength = MIN_STRENGTH;
+        long cost = Math.max(1, nanosAtMinStrength);
+        while (strength < MAX_STRENGTH && cost * 2 <= targetNanos) {
+            cost *= 2;
+            strength++;
+        }
+        return strength;
+    }
+}
@@ -1,13 +1,13 @@
 package org.nemesiscodex.transfers.core.security;
 
+import java.time.Instant;
+import java.util.Optional;
 import org.nemesiscodex.transfers.core.service.JwtService;
 import org.springframework.http.HttpHeaders;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
-import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
@@ -21,39 +21,52 @@ public class JwtAuthenticationWebFilter implements WebFilter {
     private static final String BEARER_PREFIX = "Bearer ";
 
     private final JwtService jwtService;
-    private final ReactiveUserDetailsService userDetailsService;
+    private final JwtPrincipalCache principalCache;
 
-    public JwtAuthenticationWebFilter(JwtService jwtService, ReactiveUserDetailsService userDetailsService) {
+    public JwtAuthenticationWebFilter(JwtService jwtService, JwtPrincipalCache principalCache) {
         this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
+        this.principalCache = principalCache;
     }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        // Run the chain exactly once: Mono<Void> completes empty, so switchIfEmpty after it would re-run it
         return Mono.justOrEmpty(extractToken(exchange))
-            .flatMap(token -> authenticate(token)
-                .flatMap(authentication -> chain.filter(exchange)
-                    .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication))))
-            .switchIfEmpty(chain.filter(exchange));
+            .flatMap(this::authenticate)
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .flatMap(authentication -> authentication
+                .map(value -> chain.filter(exchange)
+                    .contextWrite(ReactiveSecurityContextHolder.withAuthentication(value)))
+                .orElseGet(() -> chain.filter(exchange)));
     }
 
     private Mono<Authentication> authenticate(String token) {
-        return this.jwtService.extractUsername(token)
-            .flatMap(username -> this.userDetailsService.findByUsername(username)
-                .filter(userDetails -> this.jwtService.isTokenValid(token, userDetails.getUsername()))
-                .map(userDetails -> buildAuthentication(userDetails, token))
-            );
+        String cacheKey = this.principalCache.keyFor(token);
+        Authentication cached = this.principalCache.get(cacheKey);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        // Security: the principal comes straight from the verified claims, no user lookup is needed
+        return this.jwtService.verify(token)
+            .map(claims -> {
+                Authentication authentication = buildAuthentication(AuthenticatedUser.from(claims), token);
+                Instant expiresAt = claims.getExpiration() != null ? claims.getExpiration().toInstant() : null;
+                this.principalCache.put(cacheKey, authentication, expiresAt);
+                return authentication;
+            });
     }
 
-    private Authentication buildAuthentication(UserDetails userDetails, String token) {
+    private Authentication buildAuthentication(AuthenticatedUser user, String token) {
         return UsernamePasswordAuthenticationToken.authenticated(
-            userDetails,
+            user,
             token,
-            userDetails.getAuthorities()
+            user.authorities()
         );
     }
 
-    private String extractToken(ServerWebExchange exchange) {
+    // Package-private for the JMH benchmark
+    String extractToken(ServerWebExchange exchange) {
         return exchange.getRequest()
             .getHeaders()
             .getOrEmpty(HttpHeaders.AUTHORIZATION)
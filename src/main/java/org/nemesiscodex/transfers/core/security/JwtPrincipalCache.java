@@ -0,0 +1,83 @@
+package org.nemesiscodex.transfers.core.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+@Component
+public class JwtPrincipalCache {
+
+    private final Cache<String, CachedAuthentication> cache;
+    private final Duration maxTtl;
+
+    public JwtPrincipalCache(
+        @Value("${jwt.cache.max-size:10000}") long maxSize,
+        @Value("${jwt.cache.max-ttl:5m}") Duration maxTtl,
+        MeterRegistry meterRegistry) {
+        this.maxTtl = maxTtl;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new AuthenticationExpiry())
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache, "jwt.principal");
+    }
+
+    // Security: key entries by a token digest so raw bearer tokens are never retained as map keys
+    public String keyFor(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    public Authentication get(String key) {
+        CachedAuthentication cached = this.cache.getIfPresent(key);
+        return cached != null ? cached.authentication() : null;
+    }
+
+    // Security: an entry never outlives its token, it expires at min(exp, now + max-ttl)
+    public void put(String key, Authentication authentication, Instant tokenExpiresAt) {
+        Instant expiresAt = Instant.now().plus(this.maxTtl);
+        if (tokenExpiresAt != null && tokenExpiresAt.isBefore(expiresAt)) {
+            expiresAt = tokenExpiresAt;
+        }
+        if (expiresAt.isAfter(Instant.now())) {
+            this.cache.put(key, new CachedAuthentication(authentication, expiresAt));
+        }
+    }
+
+    private record CachedAuthentication(Authentication authentication, Instant expiresAt) {
+    }
+
+    private static final class AuthenticationExpiry implements Expiry<String, CachedAuthentication> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedAuthentication value, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), value.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedAuthentication value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedAuthentication value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
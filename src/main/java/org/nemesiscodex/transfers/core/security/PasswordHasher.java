@@ -0,0 +1,86 @@
+package org.nemesiscodex.transfers.core.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+// Runs BCrypt off the event loop. Hashing is CPU bound, so it gets a fixed pool sized to the cores
+// rather than boundedElastic; at most max-pending calls may be running or queued, the rest fail fast
+// with RejectedExecutionException (503) instead of stalling every other endpoint behind a login storm.
+@Component
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final Scheduler scheduler;
+    private final int maxPending;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    public PasswordHasher(
+        PasswordEncoder passwordEncoder,
+        MeterRegistry meterRegistry,
+        @Value("${security.password.hashing.threads:0}") int threads,
+        @Value("${security.password.hashing.max-pending:256}") int maxPending) {
+        this.passwordEncoder = passwordEncoder;
+        this.scheduler = Schedulers.newParallel(
+            "password-hash", threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        this.maxPending = maxPending;
+        this.encodeTimer = Timer.builder("password.hash")
+            .tag("operation", "encode")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.matchesTimer = Timer.builder("password.hash")
+            .tag("operation", "matches")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.rejected = Counter.builder("password.hash.rejected")
+            .description("Hashing requests shed because max-pending was reached")
+            .register(meterRegistry);
+        Gauge.builder("password.hash.pending", this.pending, AtomicInteger::get)
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        this.scheduler.dispose();
+    }
+
+    public Mono<String> encode(CharSequence rawPassword) {
+        return offload(() -> this.passwordEncoder.encode(rawPassword), this.encodeTimer);
+    }
+
+    public Mono<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        return offload(() -> this.passwordEncoder.matches(rawPassword, encodedPassword), this.matchesTimer);
+    }
+
+    // Only parses the hash prefix, cheap enough for the calling thread
+    public boolean upgradeEncoding(String encodedPassword) {
+        return this.passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> Mono<T> offload(Supplier<T> work, Timer timer) {
+        return Mono.defer(() -> {
+            if (this.pending.incrementAndGet() > this.maxPending) {
+                this.pending.decrementAndGet();
+                this.rejected.increment();
+                return Mono.error(new RejectedExecutionException("Password hashing is saturated"));
+            }
+            return Mono.fromSupplier(() -> timer.record(work))
+                .subscribeOn(this.scheduler)
+                .doFinally(signal -> this.pending.decrementAndGet());
+        });
+    }
+}
@@ -1,6 +1,6 @@
 package org.nemesiscodex.transfers.core.security;
 
-import org.nemesiscodex.transfers.core.repository.UserRepository;
+import org.nemesiscodex.transfers.core.service.UserService;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -11,15 +11,15 @@ import reactor.core.publisher.Mono;
 @Service
 public class ReactiveUserDetailsServiceImpl implements ReactiveUserDetailsService {
 
-    private final UserRepository userRepository;
+    private final UserService userService;
 
-    public ReactiveUserDetailsServiceImpl(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public ReactiveUserDetailsServiceImpl(UserService userService) {
+        this.userService = userService;
     }
 
     @Override
     public Mono<UserDetails> findByUsername(String username) {
-        return this.userRepository.findByUsername(username)
+        return this.userService.findCredentialsByUsername(username)
             .switchIfEmpty(Mono.error(new UsernameNotFoundException("User not found: " + username)))
             .map(user -> User.withUsername(user.username())
                 .password(user.passwordHash())
@@ -1,52 +1,61 @@
 package org.nemesiscodex.transfers.core.service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.nemesiscodex.transfers.core.dto.LoginRequest;
 import org.nemesiscodex.transfers.core.dto.SignupRequest;
 import org.nemesiscodex.transfers.core.entity.User;
 import org.nemesiscodex.transfers.core.repository.UserRepository;
-import org.nemesiscodex.transfers.core.util.DbTransactionUtil;
+import org.nemesiscodex.transfers.core.security.PasswordHasher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class AuthService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
+    private final ReactiveUserDetailsPasswordService passwordService;
     private final JwtService jwtService;
-    private final DbTransactionUtil db;
 
+    // Performance: BCrypt runs on the password hasher's own threads, never on the event loop.
+    // The user is created in a single round trip; the unique constraints decide between concurrent
+    // signups for the same username or email, which an exists-check before the insert could not.
     public Mono<User> signup(SignupRequest request) {
-        return validateUniqueness(request)
-            .then(Mono.defer(() -> {
-                String encodedPassword = passwordEncoder.encode(request.password().trim());
-                User newUser = User.from(request, encodedPassword);
-                return db.runInTransaction(() -> userRepository.save(newUser))
-                    .flatMap(user -> userRepository.findById(user.id()));
-            }));
+        return Mono.defer(() -> passwordHasher.encode(request.password().trim()))
+            .flatMap(encodedPassword -> userRepository.insert(request.username(), encodedPassword, request.email()))
+            .onErrorMap(DuplicateKeyException.class, ex ->
+                new IllegalStateException("Username or email already exists", ex));
     }
 
     public Mono<AuthenticationResult> login(LoginRequest request) {
         return userRepository.findByUsername(request.username())
-            .filter(user -> passwordEncoder.matches(request.password(), user.passwordHash()))
+            .filterWhen(user -> passwordHasher.matches(request.password(), user.passwordHash()))
             .switchIfEmpty(Mono.error(new BadCredentialsException("Invalid username or password")))
+            .flatMap(user -> upgradePassword(user, request.password()).thenReturn(user))
             .map(user -> new AuthenticationResult(user, this.jwtService.generateToken(user.id(), user.username())));
     }
 
-    private Mono<Void> validateUniqueness(SignupRequest request) {
-        var existEmail = userRepository.existsByEmail(request.email());
-        var existUsername = userRepository.existsByUsername(request.username());
-        return Mono.zip(existEmail, existUsername)
-            .flatMap(tuple -> {
-                if (Boolean.TRUE.equals(tuple.getT1()) || Boolean.TRUE.equals(tuple.getT2())) {
-                    return Mono.error(new IllegalStateException("Username or email already exists"));
-                }
-                return Mono.empty();
-            });
+    // Security: hashes stored with a lower work factor are rehashed while the raw password is at hand.
+    // The upgrade is best effort, a failure (or a saturated hasher) never fails the login.
+    private Mono<Void> upgradePassword(User user, String rawPassword) {
+        if (!passwordHasher.upgradeEncoding(user.passwordHash())) {
+            return Mono.empty();
+        }
+        var userDetails = org.springframework.security.core.userdetails.User.withUsername(user.username())
+            .password(user.passwordHash())
+            .roles("USER")
+            .build();
+        return passwordHasher.encode(rawPassword)
+            .flatMap(encodedPassword -> passwordService.updatePassword(userDetails, encodedPassword))
+            .doOnError(ex -> log.warn("Password hash upgrade failed for user {}", user.id(), ex))
+            .onErrorResume(ex -> Mono.empty())
+            .then();
     }
 
     public record AuthenticationResult(User user, String token) {
@@ -0,0 +1,325 @@
+package org.nemesiscodex.transfers.core.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.nemesiscodex.transfers.core.util.DbTransactionUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import tools.jackson.databind.json.JsonMapper;
+
+// Idempotency-Key handling: Valkey SET NX is the fast path for reservations and replays,
+// idempotency_record in Postgres is the durable source of truth when Valkey misses or is down.
+// The response is stored in the same transaction as the action's writes, so a key whose action committed
+// is always COMPLETED and can never be released or taken over by a retry.
+// Duplicates never block a thread: they poll the stored record until it completes or wait-timeout passes.
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final String KEY_PREFIX = "idempotency:";
+
+    // Takes over a row only once it has expired, e.g. a reservation left behind by a crashed instance.
+    // A COMPLETED row is only taken over after ttl, when its response is no longer replayed anyway.
+    private static final String RESERVE = """
+        insert into idempotency_record (user_id, idempotency_key, fingerprint, status, token, expires_at)
+        values (:userId, :key, :fingerprint, 'PENDING', :token, now() + make_interval(secs => :ttlSeconds))
+        on conflict (user_id, idempotency_key) do update
+            set fingerprint = excluded.fingerprint,
+                status = excluded.status,
+                token = excluded.token,
+                response = null,
+                expires_at = excluded.expires_at
+            where idempotency_record.expires_at < now()
+        """;
+
+    private static final String FIND = """
+        select status, fingerprint, response from idempotency_record
+        where user_id = :userId and idempotency_key = :key and expires_at >= now()
+        """;
+
+    // Matches only while the reservation is still this attempt's: once pending-ttl has run out a retry may
+    // have taken the key over, and then this attempt must roll back instead of committing a second time
+    private static final String COMPLETE = """
+        update idempotency_record
+        set status = 'COMPLETED',
+            response = :response,
+            expires_at = now() + make_interval(secs => :ttlSeconds)
+        where user_id = :userId and idempotency_key = :key and token = :token and status = 'PENDING'
+        """;
+
+    private static final String RELEASE = """
+        delete from idempotency_record
+        where user_id = :userId and idempotency_key = :key and token = :token and status = 'PENDING'
+        """;
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final DatabaseClient databaseClient;
+    private final DbTransactionUtil db;
+    private final JsonMapper jsonMapper;
+    private final Duration ttl;
+    private final Duration pendingTtl;
+    private final Duration pollInterval;
+    private final long maxPolls;
+    private final Counter executed;
+    private final Counter inProgress;
+    private final Counter mismatched;
+    private final Counter replayedFromValkey;
+    private final Counter replayedFromPostgres;
+
+    public IdempotencyService(
+        ReactiveStringRedisTemplate redisTemplate,
+        DatabaseClient databaseClient,
+        DbTransactionUtil db,
+        JsonMapper jsonMapper,
+        @Value("${idempotency.ttl:24h}") Duration ttl,
+        @Value("${idempotency.pending-ttl:30s}") Duration pendingTtl,
+        @Value("${idempotency.wait-timeout:2s}") Duration waitTimeout,
+        @Value("${idempotency.poll-interval:50ms}") Duration pollInterval,
+        MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.databaseClient = databaseClient;
+        this.db = db;
+        this.jsonMapper = jsonMapper;
+        this.ttl = ttl;
+        this.pendingTtl = pendingTtl;
+        this.pollInterval = pollInterval;
+        this.maxPolls = Math.max(1, waitTimeout.toMillis() / Math.max(1, pollInterval.toMillis()));
+        this.executed = requestCounter(meterRegistry, "executed");
+        this.inProgress = requestCounter(meterRegistry, "in_progress");
+        this.mismatched = requestCounter(meterRegistry, "mismatch");
+        this.replayedFromValkey = replayCounter(meterRegistry, "valkey");
+        this.replayedFromPostgres = replayCounter(meterRegistry, "postgres");
+    }
+
+    // Runs the action at most once per (user, key). A retry with the same key and request gets the stored
+    // response back, a retry with a different request is rejected, and a retry racing the first attempt
+    // waits for it and then replays, or fails with IllegalStateException when it is still running.
+    // The action runs inside a transaction; its writes must join it (DbTransactionUtil, REQUIRED) for
+    // them to commit together with the stored response.
+    public <T> Mono<T> execute(UUID userId, String idempotencyKey, String request, Class<T> type, Supplier<Mono<T>> action) {
+        if (idempotencyKey == null) {
+            return Mono.defer(action);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return Mono.error(new IllegalArgumentException("Invalid " + HEADER + " header"));
+        }
+        return execute(new Entry(userId, idempotencyKey, fingerprint(request)), type, action);
+    }
+
+    private <T> Mono<T> execute(Entry entry, Class<T> type, Supplier<Mono<T>> action) {
+        UUID token = UUID.randomUUID();
+        return reserveRemote(entry)
+            .flatMap(reserved -> reserved
+                ? reserveDurable(entry, token).flatMap(owner -> owner
+                    ? run(entry, token, action)
+                    // Valkey lost the key but Postgres still has it: defer to the durable record
+                    : releaseRemote(entry).then(await(entry, type, action)))
+                : await(entry, type, action));
+    }
+
+    // Nothing of the action is committed unless the response is, so releasing the key on any error is safe:
+    // RELEASE only matches a PENDING row, which a committed attempt never leaves behind
+    private <T> Mono<T> run(Entry entry, UUID token, Supplier<Mono<T>> action) {
+        return this.db.runInTransaction(() -> Mono.defer(action)
+                .flatMap(result -> complete(entry, token, result)
+                    .map(response -> new Completed<>(result, response))))
+            .onErrorResume(ex -> release(entry, token).then(Mono.error(ex)))
+            .flatMap(completed -> writeRemote(
+                    entry, new StoredRecord(Status.COMPLETED, entry.fingerprint(), completed.response()))
+                .thenReturn(completed.result()))
+            .doOnSuccess(result -> this.executed.increment());
+    }
+
+    private <T> Mono<T> await(Entry entry, Class<T> type, Supplier<Mono<T>> action) {
+        return Mono.defer(() -> lookup(entry))
+            .doOnNext(record -> record.ifPresent(value -> checkFingerprint(entry, value)))
+            .filter(record -> record.isEmpty() || record.get().status() == Status.COMPLETED)
+            .repeatWhenEmpty(polls -> polls.concatMap(poll -> Mono.delay(this.pollInterval)).take(this.maxPolls))
+            .switchIfEmpty(Mono.error(() -> {
+                this.inProgress.increment();
+                return new IllegalStateException("A request with this " + HEADER + " is still in progress");
+            }))
+            // An empty record means the first attempt failed and released the key in both stores, so this one
+            // can run it
+            .flatMap(record -> record
+                .map(value -> Mono.fromCallable(() -> this.jsonMapper.readValue(value.response(), type)))
+                .orElseGet(() -> execute(entry, type, action)));
+    }
+
+    private void checkFingerprint(Entry entry, StoredRecord record) {
+        if (!entry.fingerprint().equals(record.fingerprint())) {
+            this.mismatched.increment();
+            throw new IllegalArgumentException(HEADER + " was already used for a different request");
+        }
+    }
+
+    // Valkey errors count as a successful reservation so Postgres alone decides who runs the request
+    private Mono<Boolean> reserveRemote(Entry entry) {
+        String pending = write(new StoredRecord(Status.PENDING, entry.fingerprint(), null));
+        return this.redisTemplate.opsForValue().setIfAbsent(entry.remoteKey(), pending, this.pendingTtl)
+            .onErrorResume(ex -> {
+                log.warn("Failed to reserve {} in Valkey, falling back to the database", entry.remoteKey(), ex);
+                return Mono.just(true);
+            });
+    }
+
+    private Mono<Boolean> reserveDurable(Entry entry, UUID token) {
+        return this.databaseClient.sql(RESERVE)
+            .bind("userId", entry.userId())
+            .bind("key", entry.key())
+            .bind("fingerprint", entry.fingerprint())
+            .bind("token", token)
+            .bind("ttlSeconds", this.pendingTtl.toSeconds())
+            .fetch()
+            .rowsUpdated()
+            .map(rows -> rows > 0);
+    }
+
+    // A PENDING key in Valkey without a live row in Postgres belongs to an attempt between its two
+    // reservations, or one that crashed there. It counts as in progress until the Valkey key expires, so
+    // duplicates keep polling at the poll interval instead of re-entering execute straight away.
+    private Mono<Optional<StoredRecord>> lookup(Entry entry) {
+        return this.redisTemplate.opsForValue().get(entry.remoteKey())
+            .map(this::read)
+            .onErrorResume(ex -> {
+                log.warn("Failed to read {} from Valkey, falling back to the database", entry.remoteKey(), ex);
+                return Mono.empty();
+            })
+            .flatMap(remote -> remote.status() == Status.COMPLETED
+                ? Mono.just(remote).doOnNext(record -> this.replayedFromValkey.increment())
+                : lookupDurable(entry).defaultIfEmpty(remote))
+            .switchIfEmpty(Mono.defer(() -> lookupDurable(entry)))
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty());
+    }
+
+    private Mono<StoredRecord> lookupDurable(Entry entry) {
+        return this.databaseClient.sql(FIND)
+            .bind("userId", entry.userId())
+            .bind("key", entry.key())
+            .map((row, metadata) -> new StoredRecord(
+                Status.valueOf(row.get("status", String.class)),
+                row.get("fingerprint", String.class),
+                row.get("response", String.class)))
+            .one()
+            .doOnNext(record -> {
+                if (record.status() == Status.COMPLETED) {
+                    this.replayedFromPostgres.increment();
+                }
+            })
+            .flatMap(record -> record.status() == Status.COMPLETED
+                ? writeRemote(entry, record).thenReturn(record)
+                : Mono.just(record));
+    }
+
+    // Runs in the action's transaction, so a failure here rolls the action back with it
+    private <T> Mono<String> complete(Entry entry, UUID token, T result) {
+        return Mono.fromCallable(() -> this.jsonMapper.writeValueAsString(result))
+            .flatMap(response -> this.databaseClient.sql(COMPLETE)
+                .bind("userId", entry.userId())
+                .bind("key", entry.key())
+                .bind("token", token)
+                .bind("response", response)
+                .bind("ttlSeconds", this.ttl.toSeconds())
+                .fetch()
+                .rowsUpdated()
+                .flatMap(rows -> rows > 0
+                    ? Mono.just(response)
+                    : Mono.error(new IllegalStateException(
+                        "The " + HEADER + " reservation expired before the request completed"))));
+    }
+
+    private Mono<Void> release(Entry entry, UUID token) {
+        return this.databaseClient.sql(RELEASE)
+            .bind("userId", entry.userId())
+            .bind("key", entry.key())
+            .bind("token", token)
+            .fetch()
+            .rowsUpdated()
+            .then(releaseRemote(entry))
+            .onErrorResume(ex -> {
+                log.warn("Failed to release {}", entry.remoteKey(), ex);
+                return Mono.empty();
+            });
+    }
+
+    private Mono<Void> writeRemote(Entry entry, StoredRecord record) {
+        return this.redisTemplate.opsForValue().set(entry.remoteKey(), write(record), this.ttl)
+            .onErrorResume(ex -> {
+                log.warn("Failed to write {} to Valkey", entry.remoteKey(), ex);
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    private Mono<Void> releaseRemote(Entry entry) {
+        return this.redisTemplate.delete(entry.remoteKey())
+            .onErrorResume(ex -> {
+                log.warn("Failed to delete {} from Valkey", entry.remoteKey(), ex);
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    private String write(StoredRecord record) {
+        return this.jsonMapper.writeValueAsString(record);
+    }
+
+    private StoredRecord read(String value) {
+        return this.jsonMapper.readValue(value, StoredRecord.class);
+    }
+
+    static String fingerprint(String request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(request.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("idempotency.requests")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private static Counter replayCounter(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("idempotency.replayed")
+            .tag("source", source)
+            .register(meterRegistry);
+    }
+
+    private record Entry(UUID userId, String key, String fingerprint) {
+
+        String remoteKey() {
+            return KEY_PREFIX + this.userId + ":" + this.key;
+        }
+    }
+
+    enum Status {
+        PENDING,
+        COMPLETED
+    }
+
+    record StoredRecord(Status status, String fingerprint, String response) {
+    }
+
+    private record Completed<T>(T result, String response) {
+    }
+}
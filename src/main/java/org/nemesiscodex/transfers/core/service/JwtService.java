@@ -1,8 +1,10 @@
 package org.nemesiscodex.transfers.core.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import org.nemesiscodex.transfers.core.security.AuthenticatedUser;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
@@ -12,36 +14,58 @@ import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
 @Service
 public class JwtService {
 
     private final SecretKey secretKey;
+    private final JwtParser parser;
     private final long expirationHours;
 
     public JwtService(
         @Value("${jwt.secret}") String secret,
         @Value("${jwt.expiration-hours}") long expirationHours) {
         this.secretKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        // The parser is immutable and thread-safe, so build it once instead of per token
+        this.parser = Jwts.parser()
+            .verifyWith(secretKey)
+            .build();
         this.expirationHours = expirationHours;
     }
 
-    // Security: generate token with user claims (id, username) and expiration
+    // Security: generate token with user claims (id, username, roles) and expiration
     public String generateToken(UUID userId, String username) {
+        return generateToken(userId, username, AuthenticatedUser.DEFAULT_ROLES);
+    }
+
+    // Security: privileged roles (ADMIN, BACKOFFICE) are only ever granted through this overload by
+    // operator tooling, never by /auth/login
+    public String generateToken(UUID userId, String username, List<String> roles) {
         Instant now = Instant.now();
         Instant expiration = now.plus(expirationHours, ChronoUnit.HOURS);
 
         return Jwts.builder()
             .subject(username)
-            .claim("userId", userId.toString())
+            .claim(AuthenticatedUser.USER_ID_CLAIM, userId.toString())
             .claim("username", username)
+            .claim(AuthenticatedUser.ROLES_CLAIM, roles)
             .issuedAt(Date.from(now))
             .expiration(Date.from(expiration))
             .signWith(secretKey)
             .compact();
     }
 
+    // Security: verify signature and expiration in a single pass and return the verified claims
+    public Mono<Claims> verify(String token) {
+        try {
+            return Mono.just(extractClaims(token));
+        } catch (Exception ex) {
+            return Mono.error(new IllegalArgumentException("Invalid token", ex));
+        }
+    }
+
     // Security: extract username from token subject claim
     public Mono<String> extractUsername(String token) {
         try {
@@ -65,11 +89,7 @@ public class JwtService {
 
     // Security: extract all claims after verifying signature
     private Claims extractClaims(String token) {
-        return Jwts.parser()
-            .verifyWith(secretKey)
-            .build()
-            .parseSignedClaims(token)
-            .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     // Security: check if token expiration time has passed
@@ -0,0 +1,55 @@
+package org.nemesiscodex.transfers.core.service;
+
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.nemesiscodex.transfers.core.cache.SingleFlight;
+import org.nemesiscodex.transfers.core.cache.UserCache;
+import org.nemesiscodex.transfers.core.entity.User;
+import org.nemesiscodex.transfers.core.repository.UserRepository;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+@Service
+@RequiredArgsConstructor
+public class UserService {
+
+    private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final SingleFlight singleFlight;
+
+    // Performance: concurrent misses for the same user share one database read and cache fill.
+    // Security: users come back without their password hash, see findCredentialsByUsername.
+    public Mono<User> findByUsername(String username) {
+        return this.userCache.getByUsername(username)
+            .switchIfEmpty(this.singleFlight.execute("user.by-username", username, () ->
+                this.userRepository.findByUsername(username)
+                    .flatMap(this::fill)));
+    }
+
+    public Mono<User> findById(UUID id) {
+        return this.userCache.getById(id)
+            .switchIfEmpty(this.singleFlight.execute("user.by-id", id, () ->
+                this.userRepository.findById(id)
+                    .flatMap(this::fill)));
+    }
+
+    // Uncached, the only read that carries the password hash
+    public Mono<User> findCredentialsByUsername(String username) {
+        return this.userRepository.findByUsername(username);
+    }
+
+    // Invalidate instead of writing the saved entity: updated_at is set by a trigger and is not
+    // returned by save, so the next read repopulates the cache from the database
+    public Mono<User> save(User user) {
+        if (user.passwordHash() == null) {
+            return Mono.error(new IllegalArgumentException("Cannot save a user without its password hash"));
+        }
+        return this.userRepository.save(user)
+            .flatMap(saved -> this.userCache.evict(saved).thenReturn(saved));
+    }
+
+    private Mono<User> fill(User user) {
+        User cacheable = UserCache.cacheable(user);
+        return this.userCache.put(cacheable).thenReturn(cacheable);
+    }
+}
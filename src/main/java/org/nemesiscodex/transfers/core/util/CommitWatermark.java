@@ -0,0 +1,54 @@
+package org.nemesiscodex.transfers.core.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+// Highest value of a sequence that no open transaction can still commit a row below. Sequence values
+// are handed out in call order, not commit order: a transaction may draw a value and commit after one
+// that drew a higher value. Readers that must not skip or reorder rows only go up to this watermark.
+// Every writer has to hold a transaction id (a row lock or an earlier write) before it draws a value.
+public class CommitWatermark {
+
+    // Runs as its own statement after the sequence read, so the snapshot is taken after the value was read
+    private static final String SNAPSHOT = """
+        select pg_snapshot_xmin(pg_current_snapshot())::text::bigint as xmin,
+               pg_snapshot_xmax(pg_current_snapshot())::text::bigint as xmax
+        """;
+
+    private final DatabaseClient databaseClient;
+    private final String lastValue;
+    // Values read by earlier calls whose transactions may still be running, oldest first
+    private final Deque<Watermark> pending = new ArrayDeque<>();
+
+    public CommitWatermark(DatabaseClient databaseClient, String sequence) {
+        this.databaseClient = databaseClient;
+        this.lastValue = "select coalesce(pg_sequence_last_value('" + sequence + "'), 0) as value";
+    }
+
+    // Emits the highest safe value, or -1 when none is safe yet
+    public Mono<Long> next() {
+        return this.databaseClient.sql(this.lastValue)
+            .map((row, metadata) -> row.get("value", Long.class))
+            .one()
+            .flatMap(value -> this.databaseClient.sql(SNAPSHOT)
+                .map((row, metadata) -> safe(
+                    new Watermark(value, row.get("xmax", Long.class)), row.get("xmin", Long.class)))
+                .one());
+    }
+
+    // A value read before the snapshot belongs to a transaction below the snapshot's xmax. Once xmin has
+    // passed that xmax every such transaction has finished, and the value is safe to read up to.
+    synchronized long safe(Watermark candidate, long xmin) {
+        this.pending.addLast(candidate);
+        long safe = -1;
+        while (!this.pending.isEmpty() && this.pending.peekFirst().xmax() <= xmin) {
+            safe = this.pending.pollFirst().value();
+        }
+        return safe;
+    }
+
+    record Watermark(long value, long xmax) {
+    }
+}
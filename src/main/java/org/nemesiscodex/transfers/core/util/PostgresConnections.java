@@ -0,0 +1,34 @@
+package org.nemesiscodex.transfers.core.util;
+
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+
+// Pooled connections wrap the driver's own; LISTEN/NOTIFY is only reachable on the unwrapped one
+public final class PostgresConnections {
+
+    private PostgresConnections() {
+    }
+
+    public static PostgresqlConnection unwrap(Connection connection) {
+        Object current = connection;
+        while (!(current instanceof PostgresqlConnection) && current instanceof Wrapped<?> wrapped) {
+            current = wrapped.unwrap();
+        }
+        if (current instanceof PostgresqlConnection postgres) {
+            return postgres;
+        }
+        throw new IllegalStateException("LISTEN/NOTIFY needs a PostgreSQL connection");
+    }
+
+    // The driver's factory behind the pool. Long-lived LISTEN connections are opened here so they
+    // never hold one of the pool's max-size connections for the life of the process.
+    public static ConnectionFactory unpooled(ConnectionFactory connectionFactory) {
+        ConnectionFactory current = connectionFactory;
+        while (current instanceof Wrapped<?> wrapped && wrapped.unwrap() instanceof ConnectionFactory inner) {
+            current = inner;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,33 @@
+package org.nemesiscodex.transfers.naive.controller;
+
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.nemesiscodex.transfers.naive.dto.BalanceResponse;
+import org.nemesiscodex.transfers.naive.service.BalanceBatchService;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+// Back-office only, here and in SecurityConfig. The ids are decoded element by element from a JSON array
+// or NDJSON and balances are written as NDJSON while later chunks are still being read.
+// The full path is on the method: under a class-level /naive/balances, ":batchGet" would be appended as
+// its own segment and served at /naive/balances/:batchGet.
+@RestController
+@RequiredArgsConstructor
+public class NaiveBalanceBatchController {
+
+    private final BalanceBatchService balanceBatchService;
+
+    @PreAuthorize("hasRole('BACKOFFICE')")
+    @PostMapping(
+        path = "/naive/balances:batchGet",
+        consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+        produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BalanceResponse> batchGet(@RequestBody Flux<UUID> userIds) {
+        return this.balanceBatchService.getBalances(userIds)
+            .map(entry -> new BalanceResponse(entry.getKey(), entry.getValue()));
+    }
+}
@@ -1,13 +1,14 @@
 package org.nemesiscodex.transfers.naive.controller;
 
+import java.time.Instant;
 import lombok.RequiredArgsConstructor;
-import org.nemesiscodex.transfers.core.repository.UserRepository;
+import org.nemesiscodex.transfers.core.security.AuthenticatedUser;
 import org.nemesiscodex.transfers.naive.dto.BalanceResponse;
 import org.nemesiscodex.transfers.naive.service.BalanceService;
-import org.springframework.security.core.context.ReactiveSecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Mono;
 
@@ -17,15 +18,14 @@ import reactor.core.publisher.Mono;
 public class NaiveBalanceController {
 
     private final BalanceService balanceService;
-    private final UserRepository userRepository;
 
     @GetMapping
-    public Mono<BalanceResponse> getCurrentBalance() {
-        return ReactiveSecurityContextHolder.getContext()
-            .map(context -> (UserDetails) context.getAuthentication().getPrincipal())
-            .flatMap(userDetails -> this.userRepository.findByUsername(userDetails.getUsername()))
-            .flatMap(user -> this.balanceService.getBalance(user.id())
-                .map(amount -> new BalanceResponse(user.id(), amount)));
+    public Mono<BalanceResponse> getCurrentBalance(
+        @AuthenticationPrincipal AuthenticatedUser principal,
+        @RequestParam(required = false) Instant asOf) {
+        var balance = asOf == null
+            ? this.balanceService.getBalance(principal.userId())
+            : this.balanceService.getBalanceAsOf(principal.userId(), asOf);
+        return balance.map(amount -> new BalanceResponse(principal.userId(), amount));
     }
 }
-
@@ -0,0 +1,79 @@
+package org.nemesiscodex.transfers.naive.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.nemesiscodex.transfers.core.security.AuthenticatedUser;
+import org.nemesiscodex.transfers.naive.dto.HistoryCursor;
+import org.nemesiscodex.transfers.naive.dto.LedgerEntryResponse;
+import org.nemesiscodex.transfers.naive.dto.TransferHistoryItem;
+import org.nemesiscodex.transfers.naive.entity.NaiveLedger;
+import org.nemesiscodex.transfers.naive.entity.NaiveTransfer;
+import org.nemesiscodex.transfers.naive.service.HistoryService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/naive")
+@RequiredArgsConstructor
+public class NaiveHistoryController {
+
+    private final HistoryService historyService;
+
+    @GetMapping(path = "/transfers", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<TransferHistoryItem> getTransfers(
+        @AuthenticationPrincipal AuthenticatedUser principal,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "100") int limit) {
+        return decode(cursor)
+            .flatMapMany(start -> this.historyService.transfers(principal.userId(), start, limit))
+            .map(transfer -> toTransferHistoryItem(principal, transfer));
+    }
+
+    @GetMapping(path = "/ledger", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<LedgerEntryResponse> getLedger(
+        @AuthenticationPrincipal AuthenticatedUser principal,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "100") int limit) {
+        return decode(cursor)
+            .flatMapMany(start -> this.historyService.ledger(principal.userId(), start, limit))
+            .map(this::toLedgerEntryResponse);
+    }
+
+    private Mono<HistoryCursor> decode(String cursor) {
+        return Mono.fromCallable(() -> HistoryCursor.decode(cursor))
+            .onErrorMap(IllegalArgumentException.class, ex ->
+                new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex)
+            );
+    }
+
+    private TransferHistoryItem toTransferHistoryItem(AuthenticatedUser principal, NaiveTransfer transfer) {
+        return new TransferHistoryItem(
+            transfer.id(),
+            transfer.userId(),
+            transfer.recipientId(),
+            transfer.amount(),
+            principal.userId().equals(transfer.userId())
+                ? TransferHistoryItem.Direction.SENT
+                : TransferHistoryItem.Direction.RECEIVED,
+            transfer.createdAt(),
+            HistoryCursor.of(transfer.createdAt(), transfer.id()).encode()
+        );
+    }
+
+    private LedgerEntryResponse toLedgerEntryResponse(NaiveLedger ledger) {
+        return new LedgerEntryResponse(
+            ledger.id(),
+            ledger.amount(),
+            ledger.transferId(),
+            ledger.createdAt(),
+            HistoryCursor.of(ledger.createdAt(), ledger.id()).encode()
+        );
+    }
+}
@@ -0,0 +1,26 @@
+package org.nemesiscodex.transfers.naive.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.nemesiscodex.transfers.naive.service.LedgerVerifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+// Back-office only, here and in SecurityConfig. A pass reads the whole ledger, so the response can take minutes.
+// The full path is on the method: under a class-level /naive/ledger, ":verify" would be appended as its own
+// segment and served at /naive/ledger/:verify.
+@RestController
+@ConditionalOnProperty(prefix = "naive.ledger.verifier", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class NaiveLedgerController {
+
+    private final LedgerVerifier ledgerVerifier;
+
+    @PreAuthorize("hasRole('BACKOFFICE')")
+    @PostMapping("/naive/ledger:verify")
+    public Mono<LedgerVerifier.Report> verify() {
+        return this.ledgerVerifier.verify();
+    }
+}
@@ -0,0 +1,73 @@
+package org.nemesiscodex.transfers.naive.controller;
+
+import jakarta.validation.Valid;
+import java.util.concurrent.RejectedExecutionException;
+import lombok.RequiredArgsConstructor;
+import org.nemesiscodex.transfers.core.security.AuthenticatedUser;
+import org.nemesiscodex.transfers.core.service.IdempotencyService;
+import org.nemesiscodex.transfers.naive.dto.TransferRequest;
+import org.nemesiscodex.transfers.naive.dto.TransferResponse;
+import org.nemesiscodex.transfers.naive.service.TransferService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/naive/transfer")
+@RequiredArgsConstructor
+public class NaiveTransferController {
+
+    private final TransferService transferService;
+    private final IdempotencyService idempotencyService;
+
+    @PostMapping
+    public Mono<ResponseEntity<TransferResponse>> transfer(
+        @AuthenticationPrincipal AuthenticatedUser principal,
+        @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey,
+        @Valid @RequestBody TransferRequest request) {
+        // Retries carrying the same Idempotency-Key replay the stored response without touching the transfer path
+        return this.idempotencyService.execute(
+                principal.userId(),
+                idempotencyKey,
+                request.recipientId() + "|" + request.amount().stripTrailingZeros().toPlainString(),
+                TransferResponse.class,
+                () -> transfer(principal, idempotencyKey, request).map(this::toTransferResponse))
+            .map(response -> ResponseEntity.status(HttpStatus.CREATED).body(response))
+            .onErrorMap(IllegalArgumentException.class, ex ->
+                new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex)
+            )
+            .onErrorMap(IllegalStateException.class, ex ->
+                new ResponseStatusException(HttpStatus.CONFLICT, ex.getMessage(), ex)
+            )
+            .onErrorMap(RejectedExecutionException.class, ex ->
+                new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), ex)
+            );
+    }
+
+    // With a key the transfer joins the transaction the stored response commits in, which the batching
+    // writer cannot do
+    private Mono<TransferService.TransferResult> transfer(
+        AuthenticatedUser principal, String idempotencyKey, TransferRequest request) {
+        return idempotencyKey == null
+            ? this.transferService.transfer(principal.userId(), request.recipientId(), request.amount())
+            : this.transferService.transferInTransaction(principal.userId(), request.recipientId(), request.amount());
+    }
+
+    private TransferResponse toTransferResponse(TransferService.TransferResult result) {
+        return new TransferResponse(
+            result.transfer().id(),
+            result.transfer().userId(),
+            result.transfer().recipientId(),
+            result.transfer().amount(),
+            result.senderBalance(),
+            result.transfer().createdAt()
+        );
+    }
+}
@@ -0,0 +1,45 @@
+package org.nemesiscodex.transfers.naive.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+// Opaque keyset cursor: the (created_at, id) of the last row a client has seen.
+// created_at is kept as the column's timestamp so the next page compares exactly; the driver reads a
+// timestamp without time zone into an Instant as UTC, so UTC turns it back whatever the JVM zone is.
+public record HistoryCursor(LocalDateTime createdAt, UUID id) {
+
+    public static final HistoryCursor FIRST_PAGE = new HistoryCursor(
+        LocalDateTime.of(9999, 12, 31, 23, 59, 59),
+        new UUID(-1L, -1L)
+    );
+
+    public static HistoryCursor of(Instant createdAt, UUID id) {
+        return new HistoryCursor(LocalDateTime.ofInstant(createdAt, ZoneOffset.UTC), id);
+    }
+
+    public static HistoryCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST_PAGE;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf('|');
+            return new HistoryCursor(
+                LocalDateTime.parse(decoded.substring(0, separator)),
+                UUID.fromString(decoded.substring(separator + 1))
+            );
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid cursor", ex);
+        }
+    }
+
+    public String encode() {
+        String raw = this.createdAt + "|" + this.id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,13 @@
+package org.nemesiscodex.transfers.naive.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+public record LedgerEntryResponse(
+    UUID id,
+    BigDecimal amount,
+    UUID transferId,
+    Instant createdAt,
+    String cursor) {
+}
@@ -0,0 +1,20 @@
+package org.nemesiscodex.transfers.naive.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+public record TransferHistoryItem(
+    UUID id,
+    UUID userId,
+    UUID recipientId,
+    BigDecimal amount,
+    Direction direction,
+    Instant createdAt,
+    String cursor) {
+
+    public enum Direction {
+        SENT,
+        RECEIVED
+    }
+}
@@ -0,0 +1,17 @@
+package org.nemesiscodex.transfers.naive.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record TransferRequest(
+    @NotNull(message = "Recipient is required")
+    UUID recipientId,
+
+    @NotNull(message = "Amount is required")
+    @DecimalMin(value = "0.01", message = "Amount must be positive")
+    @Digits(integer = 16, fraction = 2, message = "Amount must have at most 2 decimals")
+    BigDecimal amount) {
+}
@@ -0,0 +1,14 @@
+package org.nemesiscodex.transfers.naive.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+public record TransferResponse(
+    UUID id,
+    UUID userId,
+    UUID recipientId,
+    BigDecimal amount,
+    BigDecimal balance,
+    Instant createdAt) {
+}
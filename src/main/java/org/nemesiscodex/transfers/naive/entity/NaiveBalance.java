@@ -16,6 +16,7 @@ public record NaiveBalance(
     BigDecimal amount,
     UUID openLedgerId,
     UUID closeLedgerId,
+    long openLedgerSeq,
     Instant createdAt,
     Instant updatedAt
 ) {
@@ -15,6 +15,12 @@ public record NaiveTransfer(
     UUID userId,
     UUID recipientId,
     BigDecimal amount,
+    TransferState state,
+    Long version,
+    Instant stateChangedAt,
+    String failureReason,
+    String bankReference,
+    Integer recoveryAttempts,
     Instant createdAt,
     Instant updatedAt
 ) {
@@ -0,0 +1,26 @@
+package org.nemesiscodex.transfers.naive.entity;
+
+import java.util.Set;
+
+public enum TransferState {
+    PENDING,
+    PROCESSING,
+    SUBMITTING,
+    COMPLETED,
+    FAILED;
+
+    public boolean isTerminal() {
+        return this == COMPLETED || this == FAILED;
+    }
+
+    // PROCESSING -> PENDING hands a transfer back for another attempt, e.g. after its worker died.
+    // SUBMITTING -> PENDING does the same mid bank call; the bank call is idempotent, so it is safe to repeat.
+    public boolean canTransitionTo(TransferState target) {
+        return switch (this) {
+            case PENDING -> Set.of(PROCESSING, FAILED).contains(target);
+            case PROCESSING -> Set.of(PENDING, SUBMITTING, COMPLETED, FAILED).contains(target);
+            case SUBMITTING -> Set.of(PENDING, COMPLETED, FAILED).contains(target);
+            case COMPLETED, FAILED -> false;
+        };
+    }
+}
@@ -2,12 +2,21 @@ package org.nemesiscodex.transfers.naive.repository;
 
 import java.util.UUID;
 import org.nemesiscodex.transfers.naive.entity.NaiveBalance;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Repository
 public interface NaiveBalanceRepository extends ReactiveCrudRepository<NaiveBalance, UUID> {
     Mono<NaiveBalance> findByUserIdAndCloseLedgerIdIsNull(UUID userId);
+
+    // One probe of the partial unique index on (user_id) where close_ledger_id is null per id
+    @Query("""
+        select * from naive_balance
+        where user_id = any(:userIds) and close_ledger_id is null
+        """)
+    Flux<NaiveBalance> findOpenByUserIds(UUID[] userIds);
 }
 
@@ -1,11 +1,46 @@
 package org.nemesiscodex.transfers.naive.repository;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.UUID;
 import org.nemesiscodex.transfers.naive.entity.NaiveLedger;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @Repository
 public interface NaiveLedgerRepository extends ReactiveCrudRepository<NaiveLedger, UUID> {
-}
 
+    // Nearest checkpoint at or before asOf plus the ledger rows after it up to asOf, so the replay is
+    // bounded by the checkpoint interval instead of the user's whole history. Rows after the checkpoint
+    // are found by seq: a long transaction may commit a row created before the checkpoint's as_of.
+    @Query("""
+        with latest_checkpoint as (
+            select amount, ledger_seq from naive_balance_checkpoint
+            where user_id = :userId and as_of <= :asOf
+            order by as_of desc
+            limit 1
+        )
+        select coalesce((select amount from latest_checkpoint), 0)
+             + coalesce((
+                   select sum(amount) from naive_ledger
+                   where user_id = :userId
+                     and seq > coalesce((select ledger_seq from latest_checkpoint), 0)
+                     and created_at <= :asOf
+               ), 0) as amount
+        """)
+    Mono<BigDecimal> findBalanceAsOf(UUID userId, Instant asOf);
+
+    // The plain created_at bound is implied by the row comparison, it is there so partitions after the
+    // cursor are pruned
+    @Query("""
+        select * from naive_ledger
+        where user_id = :userId and created_at <= :createdAt and (created_at, id) < (:createdAt, :id)
+        order by created_at desc, id desc
+        limit :limit
+        """)
+    Flux<NaiveLedger> findPageBefore(UUID userId, LocalDateTime createdAt, UUID id, int limit);
+}
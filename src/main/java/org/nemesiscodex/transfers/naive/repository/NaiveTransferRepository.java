@@ -1,11 +1,33 @@
 package org.nemesiscodex.transfers.naive.repository;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 import org.nemesiscodex.transfers.naive.entity.NaiveTransfer;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 
 @Repository
 public interface NaiveTransferRepository extends ReactiveCrudRepository<NaiveTransfer, UUID> {
-}
 
+    // Sent and received pages are read with separate index range scans and merged, an OR across
+    // user_id and recipient_id could not use either composite index. The plain created_at bounds are
+    // implied by the row comparisons, they are there so partitions after the cursor are pruned.
+    @Query("""
+        select * from (
+            (select * from naive_transfer
+             where user_id = :userId and created_at <= :createdAt and (created_at, id) < (:createdAt, :id)
+             order by created_at desc, id desc
+             limit :limit)
+            union all
+            (select * from naive_transfer
+             where recipient_id = :userId and created_at <= :createdAt and (created_at, id) < (:createdAt, :id)
+             order by created_at desc, id desc
+             limit :limit)
+        ) history
+        order by created_at desc, id desc
+        limit :limit
+        """)
+    Flux<NaiveTransfer> findPageBefore(UUID userId, LocalDateTime createdAt, UUID id, int limit);
+}
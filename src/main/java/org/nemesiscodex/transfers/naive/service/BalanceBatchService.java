@@ -0,0 +1,55 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.nemesiscodex.transfers.naive.entity.NaiveBalance;
+import org.nemesiscodex.transfers.naive.repository.NaiveBalanceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+// Open balances for many users at once, for reconciliation and back-office tooling. Reads Postgres
+// rather than the Valkey projection, since these callers compare against the source of truth.
+// Ids are consumed chunk-size at a time with at most concurrency chunks in flight, so memory stays
+// bounded however many ids are streamed in.
+@Service
+public class BalanceBatchService {
+
+    private final NaiveBalanceRepository balanceRepository;
+    private final int chunkSize;
+    private final int concurrency;
+    private final DistributionSummary chunkSizes;
+
+    public BalanceBatchService(
+        NaiveBalanceRepository balanceRepository,
+        MeterRegistry meterRegistry,
+        @Value("${naive.balance.batch.chunk-size:1000}") int chunkSize,
+        @Value("${naive.balance.batch.concurrency:4}") int concurrency) {
+        this.balanceRepository = balanceRepository;
+        this.chunkSize = chunkSize;
+        this.concurrency = concurrency;
+        this.chunkSizes = DistributionSummary.builder("naive.balance.batch.chunk")
+            .description("User ids resolved per query")
+            .register(meterRegistry);
+    }
+
+    // One entry per requested id, in chunk order; users without an open balance get zero like getBalance
+    public Flux<Map.Entry<UUID, BigDecimal>> getBalances(Flux<UUID> userIds) {
+        return userIds
+            .buffer(this.chunkSize)
+            .flatMapSequential(this::resolve, this.concurrency);
+    }
+
+    private Flux<Map.Entry<UUID, BigDecimal>> resolve(List<UUID> chunk) {
+        this.chunkSizes.record(chunk.size());
+        return this.balanceRepository.findOpenByUserIds(chunk.stream().distinct().toArray(UUID[]::new))
+            .collectMap(NaiveBalance::userId, NaiveBalance::amount)
+            .flatMapIterable(found -> chunk.stream()
+                .map(userId -> Map.entry(userId, found.getOrDefault(userId, BigDecimal.ZERO)))
+                .toList());
+    }
+}
@@ -0,0 +1,90 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.nemesiscodex.transfers.core.util.CommitWatermark;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+// Writes a naive_balance_checkpoint row for every user with ledger activity since the previous
+// checkpoint. Each checkpoint is the previous one plus the ledger rows in between, so a pass only
+// reads recent ledger rows. Passes advance on naive_ledger.seq up to a watermark no open transaction
+// can still commit below. Every ledger writer holds a transaction id (the users' row locks, or the
+// transfer inserted first) before it draws a seq, which is what CommitWatermark relies on.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "naive.balance.checkpoint", name = "enabled", havingValue = "true")
+public class BalanceCheckpointJob {
+
+    // as_of only moves forward, so when every new row is older than the previous as_of the previous
+    // row is replaced by one covering more of the ledger; a pass with an older bound never replaces it
+    private static final String WRITE_CHECKPOINTS = """
+        with since as (
+            select coalesce(max(ledger_seq), 0) as seq from naive_balance_checkpoint
+        ),
+        activity as (
+            select ledger.user_id, sum(ledger.amount) as amount, max(ledger.created_at) as created_at
+            from naive_ledger ledger, since
+            where ledger.seq > since.seq
+              and ledger.seq <= :bound
+            group by ledger.user_id
+        )
+        insert into naive_balance_checkpoint (user_id, amount, as_of, ledger_seq)
+        select activity.user_id,
+               coalesce(previous.amount, 0) + activity.amount,
+               greatest(previous.as_of, activity.created_at),
+               :bound
+        from activity
+        left join lateral (
+            select amount, as_of from naive_balance_checkpoint cp
+            where cp.user_id = activity.user_id
+            order by ledger_seq desc
+            limit 1
+        ) previous on true
+        on conflict (user_id, as_of) do update
+            set amount = excluded.amount, ledger_seq = excluded.ledger_seq
+            where naive_balance_checkpoint.ledger_seq < excluded.ledger_seq
+        """;
+
+    private final DatabaseClient databaseClient;
+    private final CommitWatermark watermark;
+    private final Counter written;
+
+    public BalanceCheckpointJob(DatabaseClient databaseClient, MeterRegistry meterRegistry) {
+        this.databaseClient = databaseClient;
+        this.watermark = new CommitWatermark(databaseClient, "naive_ledger_seq_seq");
+        this.written = Counter.builder("naive.balance.checkpoint.written")
+            .register(meterRegistry);
+    }
+
+    // Blocking is fine on the scheduler thread and keeps a slow pass from overlapping the next one
+    @Scheduled(
+        initialDelayString = "${naive.balance.checkpoint.initial-delay:PT1M}",
+        fixedDelayString = "${naive.balance.checkpoint.interval:PT1H}")
+    void runScheduled() {
+        writeCheckpoints().block();
+    }
+
+    public Mono<Long> writeCheckpoints() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return this.watermark.next()
+                .flatMap(bound -> bound < 0
+                    ? Mono.just(0L)
+                    : this.databaseClient.sql(WRITE_CHECKPOINTS)
+                        .bind("bound", bound)
+                        .fetch()
+                        .rowsUpdated())
+                .doOnNext(count -> {
+                    this.written.increment(count);
+                    log.info("Wrote {} balance checkpoints in {} ms",
+                        count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                });
+        });
+    }
+}
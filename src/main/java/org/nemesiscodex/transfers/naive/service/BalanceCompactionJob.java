@@ -0,0 +1,115 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+// Deletes (or archives) closed naive_balance rows older than the retention window. Only rows with
+// a close_ledger_id are touched, so the open row read by the live path is never locked, and each
+// batch commits on its own with SKIP LOCKED so concurrent passes or instances never wait on each other.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "naive.balance.compaction", name = "enabled", havingValue = "true")
+public class BalanceCompactionJob {
+
+    private static final String DOOMED_ROWS = """
+        doomed as (
+            select id from naive_balance
+            where close_ledger_id is not null
+              and updated_at < now() - make_interval(secs => :retentionSeconds)
+            order by updated_at
+            limit :batchSize
+            for update skip locked
+        )
+        """;
+
+    private static final String DELETE_BATCH = "with " + DOOMED_ROWS + """
+        delete from naive_balance
+        using doomed
+        where naive_balance.id = doomed.id
+        """;
+
+    private static final String ARCHIVE_BATCH = "with " + DOOMED_ROWS + """
+        , deleted as (
+            delete from naive_balance
+            using doomed
+            where naive_balance.id = doomed.id
+            returning naive_balance.*
+        )
+        insert into naive_balance_archive
+        select * from deleted
+        """;
+
+    private final DatabaseClient databaseClient;
+    private final Duration retention;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration pause;
+    private final boolean archive;
+    private final Counter reclaimed;
+    private final Timer passDuration;
+
+    public BalanceCompactionJob(
+        DatabaseClient databaseClient,
+        MeterRegistry meterRegistry,
+        @Value("${naive.balance.compaction.retention:30d}") Duration retention,
+        @Value("${naive.balance.compaction.batch-size:1000}") int batchSize,
+        @Value("${naive.balance.compaction.max-batches:100}") int maxBatches,
+        @Value("${naive.balance.compaction.pause:50ms}") Duration pause,
+        @Value("${naive.balance.compaction.archive:false}") boolean archive) {
+        this.databaseClient = databaseClient;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.pause = pause;
+        this.archive = archive;
+        this.reclaimed = Counter.builder("naive.balance.compaction.reclaimed")
+            .description("Closed naive_balance rows deleted or archived")
+            .register(meterRegistry);
+        this.passDuration = Timer.builder("naive.balance.compaction.duration")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(
+        initialDelayString = "${naive.balance.compaction.initial-delay:PT1M}",
+        fixedDelayString = "${naive.balance.compaction.interval:PT1H}")
+    void runScheduled() {
+        compact().block();
+    }
+
+    public Mono<Long> compact() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return compactBatch()
+                // Pause between batches so compaction never saturates the database
+                .flatMap(deleted -> Mono.delay(this.pause).thenReturn(deleted))
+                .repeat(this.maxBatches - 1L)
+                .takeUntil(deleted -> deleted < this.batchSize)
+                .reduce(0L, Long::sum)
+                .doOnNext(total -> {
+                    long elapsed = System.nanoTime() - start;
+                    this.passDuration.record(elapsed, TimeUnit.NANOSECONDS);
+                    log.info("Balance compaction reclaimed {} rows in {} ms",
+                        total, TimeUnit.NANOSECONDS.toMillis(elapsed));
+                });
+        });
+    }
+
+    private Mono<Long> compactBatch() {
+        return this.databaseClient.sql(this.archive ? ARCHIVE_BATCH : DELETE_BATCH)
+            .bind("retentionSeconds", this.retention.toSeconds())
+            .bind("batchSize", this.batchSize)
+            .fetch()
+            .rowsUpdated()
+            .doOnNext(this.reclaimed::increment);
+    }
+}
@@ -0,0 +1,269 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.nemesiscodex.transfers.core.util.CommitWatermark;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Read-side copy of every user's open balance: a Valkey hash {amount, seq} per user, where seq is the
+// naive_ledger.seq that opened the balance. Three things write it, all through the same fenced script,
+// so none of them can move a balance backwards:
+// - transfer writers, once their transaction commits and before their caller sees the result, so a
+//   client always reads its own transfer back
+// - a poll of the balances opened since the last one, up to a CommitWatermark on naive_ledger.seq,
+//   which catches writes whose write-through was lost, e.g. because the process died right after commit
+// - reads, which repair misses from Postgres
+// Reads only use the projection while the poll keeps up; otherwise they go to Postgres.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "naive.balance.projection", name = "enabled", havingValue = "true")
+public class BalanceProjection {
+
+    // seq stored for a user without any balance row, so their first balance always applies
+    public static final long NO_BALANCE_SEQ = -1;
+
+    private static final String KEY_PREFIX = "balance:";
+
+    private static final String OPEN_BALANCES = """
+        select user_id, amount, open_ledger_seq from naive_balance
+        where user_id = any(:userIds) and close_ledger_id is null
+        """;
+
+    // Served by idx_naive_balance_open_ledger_seq, which only holds open balances
+    private static final String OPENED_SINCE = """
+        select user_id, amount, open_ledger_seq from naive_balance
+        where open_ledger_seq > :after
+          and open_ledger_seq <= :until
+          and close_ledger_id is null
+        order by open_ledger_seq
+        limit :batchSize
+        """;
+
+    // ARGV: amount, seq, ttl in milliseconds. Returns 1 when written, 0 when fenced out by a newer seq.
+    private static final String FENCED_WRITE = """
+        local current = tonumber(redis.call('HGET', KEYS[1], 'seq'))
+        if current ~= nil and current >= tonumber(ARGV[2]) then
+            return 0
+        end
+        redis.call('HSET', KEYS[1], 'amount', ARGV[1], 'seq', ARGV[2])
+        redis.call('PEXPIRE', KEYS[1], ARGV[3])
+        return 1
+        """;
+
+    private static final RedisScript<Long> SCRIPT = RedisScript.of(FENCED_WRITE, Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final DatabaseClient databaseClient;
+    private final CommitWatermark watermark;
+    private final Duration ttl;
+    private final int updateConcurrency;
+    private final int batchSize;
+    private final long maxLagNanos;
+    // Every balance opened at or below this seq has been applied; -1 until the first poll
+    private final AtomicLong position = new AtomicLong(-1);
+    private final AtomicLong polledAt = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypassed;
+    private final Counter readErrors;
+    private final Counter applied;
+    private final Counter fenced;
+    private final Counter writeErrors;
+
+    public BalanceProjection(
+        ReactiveStringRedisTemplate redisTemplate,
+        DatabaseClient databaseClient,
+        MeterRegistry meterRegistry,
+        @Value("${naive.balance.projection.ttl:1h}") Duration ttl,
+        @Value("${naive.balance.projection.update-concurrency:64}") int updateConcurrency,
+        @Value("${naive.balance.projection.batch-size:1000}") int batchSize,
+        @Value("${naive.balance.projection.max-lag:5s}") Duration maxLag) {
+        this.redisTemplate = redisTemplate;
+        this.databaseClient = databaseClient;
+        this.watermark = new CommitWatermark(databaseClient, "naive_ledger_seq_seq");
+        this.ttl = ttl;
+        this.updateConcurrency = updateConcurrency;
+        this.batchSize = batchSize;
+        this.maxLagNanos = maxLag.toNanos();
+        this.hits = counter(meterRegistry, "naive.balance.projection.read", "hit");
+        this.misses = counter(meterRegistry, "naive.balance.projection.read", "miss");
+        this.bypassed = counter(meterRegistry, "naive.balance.projection.read", "bypassed");
+        this.readErrors = counter(meterRegistry, "naive.balance.projection.read", "error");
+        this.applied = counter(meterRegistry, "naive.balance.projection.write", "applied");
+        this.fenced = counter(meterRegistry, "naive.balance.projection.write", "fenced");
+        this.writeErrors = counter(meterRegistry, "naive.balance.projection.write", "error");
+    }
+
+    // Blocking keeps a slow poll from overlapping the next one
+    @Scheduled(
+        initialDelayString = "${naive.balance.projection.initial-delay:PT1S}",
+        fixedDelayString = "${naive.balance.projection.poll-interval:PT1S}")
+    void runScheduled() {
+        poll().onErrorResume(ex -> {
+            log.warn("Failed to poll opened balances", ex);
+            return Mono.empty();
+        }).block();
+    }
+
+    // The first poll starts at the watermark: balances opened while no instance was polling are only
+    // repaired by reads after they expire, or by BalanceProjectionChecker
+    public Mono<Long> poll() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return this.watermark.next()
+                .flatMap(until -> {
+                    if (until < 0) {
+                        return Mono.just(0L);
+                    }
+                    if (this.position.compareAndSet(-1, until)) {
+                        return Mono.just(0L);
+                    }
+                    return drain(until);
+                })
+                .doOnNext(applied -> this.polledAt.set(start));
+        });
+    }
+
+    // Current while the last poll that got through started less than max-lag ago
+    public boolean isCurrent() {
+        long polled = this.polledAt.get();
+        return polled != 0 && System.nanoTime() - polled < this.maxLagNanos;
+    }
+
+    // Empty on a miss, a Valkey failure, or while the poll is behind
+    public Mono<Snapshot> get(UUID userId) {
+        if (!isCurrent()) {
+            this.bypassed.increment();
+            return Mono.empty();
+        }
+        return read(userId)
+            .doOnNext(snapshot -> this.hits.increment())
+            .switchIfEmpty(Mono.fromRunnable(this.misses::increment))
+            .onErrorResume(ex -> {
+                log.warn("Failed to read the balance of {} from Valkey, falling back to the database", userId, ex);
+                this.readErrors.increment();
+                return Mono.empty();
+            });
+    }
+
+    // true when written, false when a newer balance was already there or Valkey failed
+    public Mono<Boolean> apply(UUID userId, BigDecimal amount, long seq) {
+        return this.redisTemplate.execute(SCRIPT,
+                List.of(KEY_PREFIX + userId),
+                List.of(amount.toPlainString(), String.valueOf(seq), String.valueOf(this.ttl.toMillis())))
+            .next()
+            .map(result -> result == 1L)
+            .doOnNext(written -> (written ? this.applied : this.fenced).increment())
+            .onErrorResume(ex -> {
+                log.warn("Failed to write the balance of {} to Valkey", userId, ex);
+                this.writeErrors.increment();
+                return Mono.just(false);
+            });
+    }
+
+    public Mono<Void> evict(UUID userId) {
+        return this.redisTemplate.delete(KEY_PREFIX + userId)
+            .onErrorResume(ex -> {
+                log.warn("Failed to evict the balance of {} from Valkey", userId, ex);
+                this.writeErrors.increment();
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    // Raw read for the consistency checker, errors are left to the caller
+    Mono<Snapshot> read(UUID userId) {
+        return this.redisTemplate.<String, String>opsForHash()
+            .multiGet(KEY_PREFIX + userId, List.of("amount", "seq"))
+            .filter(values -> values.get(0) != null && values.get(1) != null)
+            .map(values -> new Snapshot(new BigDecimal(values.get(0)), Long.parseLong(values.get(1))));
+    }
+
+    // Called by a writer inside its transaction, with every user whose balance it opened
+    public Mono<Void> refreshAfterCommit(Collection<UUID> userIds) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+            .flatMap(synchronization -> {
+                if (!synchronization.isSynchronizationActive()) {
+                    return refresh(userIds);
+                }
+                synchronization.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCommit() {
+                        return refresh(userIds);
+                    }
+                });
+                return Mono.<Void>empty();
+            })
+            .onErrorResume(NoTransactionException.class, ex -> refresh(userIds));
+    }
+
+    // Re-reads the committed balances, so a newer commit by someone else is written instead, never an older one
+    private Mono<Void> refresh(Collection<UUID> userIds) {
+        return openBalances(this.databaseClient.sql(OPEN_BALANCES)
+                .bind("userIds", userIds.toArray(UUID[]::new)))
+            .flatMap(opened -> apply(opened.userId(), opened.amount(), opened.seq()), this.updateConcurrency)
+            .onErrorResume(ex -> {
+                log.warn("Failed to refresh the balances of {} after commit", userIds, ex);
+                this.writeErrors.increment();
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    // Applies may finish out of order, the fence keeps the newest one
+    private Mono<Long> drain(long until) {
+        return Mono.defer(() -> openBalances(this.databaseClient.sql(OPENED_SINCE)
+                    .bind("after", this.position.get())
+                    .bind("until", until)
+                    .bind("batchSize", this.batchSize))
+                .collectList()
+                .flatMap(batch -> Flux.fromIterable(batch)
+                    .flatMap(opened -> apply(opened.userId(), opened.amount(), opened.seq()), this.updateConcurrency)
+                    .then(Mono.fromSupplier(() -> {
+                        this.position.set(batch.size() < this.batchSize ? until : batch.getLast().seq());
+                        return (long) batch.size();
+                    }))))
+            .repeat()
+            .takeUntil(applied -> applied < this.batchSize)
+            .reduce(0L, Long::sum);
+    }
+
+    private Flux<Opened> openBalances(DatabaseClient.GenericExecuteSpec spec) {
+        return spec
+            .map((row, metadata) -> new Opened(
+                row.get("user_id", UUID.class),
+                row.get("amount", BigDecimal.class),
+                row.get("open_ledger_seq", Long.class)))
+            .all();
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String name, String result) {
+        return Counter.builder(name)
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    public record Snapshot(BigDecimal amount, long seq) {
+    }
+
+    private record Opened(UUID userId, BigDecimal amount, long seq) {
+    }
+}
@@ -0,0 +1,135 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.nemesiscodex.transfers.naive.repository.NaiveBalanceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Compares the Valkey balance projection against the open naive_balance rows for a sample of users.
+// Postgres is read before Valkey, so a projection ahead of Postgres is a commit that landed in between
+// (raced); behind it is a missed or pending update (stale) and is repaired through the fence; the same
+// seq with a different amount should never happen (diverged) and is evicted. Users without a projection
+// entry are not counted.
+@Slf4j
+@Component
+@ConditionalOnProperty(
+    prefix = "naive.balance.projection", name = {"enabled", "checker.enabled"}, havingValue = "true")
+public class BalanceProjectionChecker {
+
+    // A random point in the uuid space keeps each pass to one short primary key range scan
+    private static final String SAMPLE_USERS = """
+        select id from users
+        where id >= :from
+        order by id
+        limit :limit
+        """;
+
+    private final BalanceProjection projection;
+    private final NaiveBalanceRepository balanceRepository;
+    private final DatabaseClient databaseClient;
+    private final MeterRegistry meterRegistry;
+    private final int sampleSize;
+    private final int concurrency;
+
+    public BalanceProjectionChecker(
+        BalanceProjection projection,
+        NaiveBalanceRepository balanceRepository,
+        DatabaseClient databaseClient,
+        MeterRegistry meterRegistry,
+        @Value("${naive.balance.projection.checker.sample-size:200}") int sampleSize,
+        @Value("${naive.balance.projection.checker.concurrency:8}") int concurrency) {
+        this.projection = projection;
+        this.balanceRepository = balanceRepository;
+        this.databaseClient = databaseClient;
+        this.meterRegistry = meterRegistry;
+        this.sampleSize = sampleSize;
+        this.concurrency = concurrency;
+    }
+
+    @Scheduled(
+        initialDelayString = "${naive.balance.projection.checker.initial-delay:PT1M}",
+        fixedDelayString = "${naive.balance.projection.checker.interval:PT1M}")
+    void runScheduled() {
+        checkSample().block();
+    }
+
+    public Mono<Report> checkSample() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return check(sampleUsers())
+                .doOnNext(report -> log.info("Checked the balance projection of {} users in {} ms: {}",
+                    report.checked(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), report));
+        });
+    }
+
+    public Mono<Report> check(Flux<UUID> userIds) {
+        return userIds
+            .flatMap(this::check, this.concurrency)
+            .reduce(Report.EMPTY, Report::add);
+    }
+
+    private Mono<Result> check(UUID userId) {
+        return this.balanceRepository.findByUserIdAndCloseLedgerIdIsNull(userId)
+            .map(balance -> new BalanceProjection.Snapshot(balance.amount(), balance.openLedgerSeq()))
+            .defaultIfEmpty(new BalanceProjection.Snapshot(BigDecimal.ZERO, BalanceProjection.NO_BALANCE_SEQ))
+            .flatMap(expected -> this.projection.read(userId)
+                .flatMap(cached -> resolve(userId, expected, cached)))
+            .doOnNext(result -> this.meterRegistry.counter(
+                "naive.balance.projection.check", "result", result.name().toLowerCase(Locale.ROOT)).increment())
+            .onErrorResume(ex -> {
+                log.warn("Balance projection check failed for user {}", userId, ex);
+                return Mono.empty();
+            });
+    }
+
+    private Mono<Result> resolve(UUID userId, BalanceProjection.Snapshot expected, BalanceProjection.Snapshot cached) {
+        if (cached.seq() > expected.seq()) {
+            return Mono.just(Result.RACED);
+        }
+        if (cached.seq() < expected.seq()) {
+            return this.projection.apply(userId, expected.amount(), expected.seq()).thenReturn(Result.STALE);
+        }
+        if (cached.amount().compareTo(expected.amount()) == 0) {
+            return Mono.just(Result.CONSISTENT);
+        }
+        log.warn("Balance projection of user {} diverged at seq {}: {} cached, {} in Postgres",
+            userId, expected.seq(), cached.amount(), expected.amount());
+        return this.projection.evict(userId).thenReturn(Result.DIVERGED);
+    }
+
+    private Flux<UUID> sampleUsers() {
+        return this.databaseClient.sql(SAMPLE_USERS)
+            .bind("from", UUID.randomUUID())
+            .bind("limit", this.sampleSize)
+            .map((row, metadata) -> row.get("id", UUID.class))
+            .all();
+    }
+
+    enum Result {
+        CONSISTENT, STALE, DIVERGED, RACED
+    }
+
+    public record Report(long checked, long consistent, long stale, long diverged, long raced) {
+
+        static final Report EMPTY = new Report(0, 0, 0, 0, 0);
+
+        Report add(Result result) {
+            return new Report(
+                this.checked + 1,
+                this.consistent + (result == Result.CONSISTENT ? 1 : 0),
+                this.stale + (result == Result.STALE ? 1 : 0),
+                this.diverged + (result == Result.DIVERGED ? 1 : 0),
+                this.raced + (result == Result.RACED ? 1 : 0));
+        }
+    }
+}
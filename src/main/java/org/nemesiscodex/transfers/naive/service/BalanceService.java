@@ -1,10 +1,14 @@
 package org.nemesiscodex.transfers.naive.service;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
+import org.nemesiscodex.transfers.core.cache.SingleFlight;
 import org.nemesiscodex.transfers.naive.entity.NaiveBalance;
 import org.nemesiscodex.transfers.naive.repository.NaiveBalanceRepository;
+import org.nemesiscodex.transfers.naive.repository.NaiveLedgerRepository;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
@@ -12,10 +16,43 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class BalanceService {
     private final NaiveBalanceRepository balanceRepository;
+    private final NaiveLedgerRepository ledgerRepository;
+    private final ObjectProvider<BalanceProjection> projectionProvider;
+    private final SingleFlight singleFlight;
 
+    // Performance: served from the Valkey projection when enabled; a miss reads Postgres and repairs it.
+    // Concurrent Postgres reads for the same user share one query.
     public Mono<BigDecimal> getBalance(UUID userId) {
-        return balanceRepository.findByUserIdAndCloseLedgerIdIsNull(userId)
-            .map(NaiveBalance::amount)
+        BalanceProjection projection = projectionProvider.getIfAvailable();
+        if (projection == null) {
+            return openBalance(userId)
+                .map(NaiveBalance::amount)
+                .defaultIfEmpty(BigDecimal.ZERO);
+        }
+        return projection.get(userId)
+            .map(BalanceProjection.Snapshot::amount)
+            .switchIfEmpty(Mono.defer(() -> openBalance(userId)
+                .map(balance -> new BalanceProjection.Snapshot(balance.amount(), balance.openLedgerSeq()))
+                .defaultIfEmpty(new BalanceProjection.Snapshot(BigDecimal.ZERO, BalanceProjection.NO_BALANCE_SEQ))
+                .flatMap(snapshot -> repair(projection, userId, snapshot))));
+    }
+
+    public Mono<BigDecimal> getBalanceAsOf(UUID userId, Instant asOf) {
+        return ledgerRepository.findBalanceAsOf(userId, asOf)
             .defaultIfEmpty(BigDecimal.ZERO);
     }
+
+    private Mono<NaiveBalance> openBalance(UUID userId) {
+        return singleFlight.execute("naive_balance.open", userId,
+            () -> balanceRepository.findByUserIdAndCloseLedgerIdIsNull(userId));
+    }
+
+    // The fenced write cannot overwrite a newer balance that was applied since the Postgres read
+    private Mono<BigDecimal> repair(BalanceProjection projection, UUID userId, BalanceProjection.Snapshot snapshot) {
+        if (!projection.isCurrent()) {
+            return Mono.just(snapshot.amount());
+        }
+        return projection.apply(userId, snapshot.amount(), snapshot.seq())
+            .thenReturn(snapshot.amount());
+    }
 }
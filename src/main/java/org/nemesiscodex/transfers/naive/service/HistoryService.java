@@ -0,0 +1,35 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.nemesiscodex.transfers.naive.dto.HistoryCursor;
+import org.nemesiscodex.transfers.naive.entity.NaiveLedger;
+import org.nemesiscodex.transfers.naive.entity.NaiveTransfer;
+import org.nemesiscodex.transfers.naive.repository.NaiveLedgerRepository;
+import org.nemesiscodex.transfers.naive.repository.NaiveTransferRepository;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+@Service
+@RequiredArgsConstructor
+public class HistoryService {
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private final NaiveTransferRepository transferRepository;
+    private final NaiveLedgerRepository ledgerRepository;
+
+    // Pages are capped so a request never holds more than MAX_PAGE_SIZE rows, and the keyset
+    // predicate makes every page an index range scan no matter how deep the cursor is
+    public Flux<NaiveTransfer> transfers(UUID userId, HistoryCursor cursor, int limit) {
+        return transferRepository.findPageBefore(userId, cursor.createdAt(), cursor.id(), pageSize(limit));
+    }
+
+    public Flux<NaiveLedger> ledger(UUID userId, HistoryCursor cursor, int limit) {
+        return ledgerRepository.findPageBefore(userId, cursor.createdAt(), cursor.id(), pageSize(limit));
+    }
+
+    private static int pageSize(int limit) {
+        return Math.clamp(limit, 1, MAX_PAGE_SIZE);
+    }
+}
@@ -0,0 +1,54 @@
+package org.nemesiscodex.transfers.naive.service;
+
+// The one statement that moves money, shared by the synchronous, batched and asynchronous transfer paths.
+// A caller puts a CTE named transfer (id, user_id, recipient_id, amount, position) in front of it and its
+// own select after it. Every transfer appends a debit and a credit to naive_ledger in position order, each
+// user's open balance is closed by its first new entry, and every entry opens one balance row closed by
+// the next entry of the same user, so only the last row per user stays open. ledger, closed and opened
+// can be selected from. The caller holds the users' row locks and has already checked the sender covers it.
+public final class LedgerChain {
+
+    private static final String CHAIN = """
+        ledger as (
+            insert into naive_ledger (user_id, amount, transfer_id)
+            select entry.user_id, entry.amount, transfer.id
+            from transfer
+            cross join lateral (values
+                (transfer.user_id, -transfer.amount, 1),
+                (transfer.recipient_id, transfer.amount, 2)
+            ) as entry(user_id, amount, side)
+            order by transfer.position, entry.side
+            returning id, user_id, amount, seq
+        ),
+        closed as (
+            update naive_balance
+            set close_ledger_id = first_entry.id
+            from (
+                select distinct on (user_id) user_id, id
+                from ledger
+                order by user_id, seq
+            ) as first_entry
+            where naive_balance.user_id = first_entry.user_id
+              and naive_balance.close_ledger_id is null
+            returning naive_balance.user_id, naive_balance.amount
+        ),
+        opened as (
+            insert into naive_balance (user_id, amount, open_ledger_id, close_ledger_id, open_ledger_seq)
+            select ledger.user_id,
+                   coalesce(closed.amount, 0) + sum(ledger.amount) over (partition by ledger.user_id order by ledger.seq),
+                   ledger.id,
+                   lead(ledger.id) over (partition by ledger.user_id order by ledger.seq),
+                   ledger.seq
+            from ledger
+            left join closed on closed.user_id = ledger.user_id
+            returning user_id, amount, close_ledger_id
+        )
+        """;
+
+    private LedgerChain() {
+    }
+
+    public static String statement(String transfer, String select) {
+        return "with " + transfer.stripTrailing() + ",\n" + CHAIN + select;
+    }
+}
@@ -0,0 +1,374 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.IsolationLevel;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.nemesiscodex.transfers.core.cache.SingleFlight;
+import org.nemesiscodex.transfers.core.util.PostgresConnections;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Full pass over naive_ledger and naive_balance checking that:
+// - every user's open balance equals the sum of their ledger entries, and exactly one is open
+// - each balance row was opened by one of the user's ledger entries, and no entry opened two rows
+// - each closed row was closed by one of the user's entries, and the row that entry opened holds
+//   the closed amount plus the entry
+// - money is conserved: transfer entries sum to zero and all open balances sum to the whole ledger
+// Closed rows removed by compaction are simply absent, so only links between surviving rows are checked.
+// An opening balance (NaiveBalance.from, or rows seeded before the ledger) has no ledger entry behind it:
+// a row with no opener, open_ledger_seq 0 and no row closed into it counts as money deposited outside the
+// ledger rather than as orphaned. Compacting a closed opening row takes that amount out of the check.
+//
+// The users id space is split into key ranges walked by up to concurrency connections at once, each
+// reading chunk-size users per query, so memory stays constant however large the ledger is. Every
+// connection imports one snapshot exported at the start, so the totals add up even with transfers
+// running; the snapshot does hold back vacuum until the pass ends.
+//
+// Those connections come from a pool of its own over the driver's factory, at most concurrency + 1 of
+// them, so a pass that holds them for minutes never starves requests of spring.r2dbc.pool. Concurrent
+// passes share one run; separate runs would each keep an exporter open and could take the whole pool.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "naive.ledger.verifier", name = "enabled", havingValue = "true")
+public class LedgerVerifier {
+
+    private static final String VERIFY_CHUNK = """
+        with chunk as (
+            select id as user_id from users
+            where id >= $1 and id <= $2
+            order by id
+            limit $3
+        )
+        select chunk.user_id,
+               ledger.entries,
+               coalesce(ledger.total, 0) as ledger_total,
+               coalesce(ledger.transferred, 0) as transferred,
+               opened.rows as open_rows,
+               coalesce(opened.amount, 0) as open_amount,
+               coalesce(links.opening, 0) as opening_amount,
+               links.rows - links.openers as double_opened,
+               links.orphaned,
+               links.broken
+        from chunk
+        cross join lateral (
+            select count(*) as entries,
+                   sum(amount) as total,
+                   sum(amount) filter (where transfer_id is not null) as transferred
+            from naive_ledger
+            where naive_ledger.user_id = chunk.user_id
+        ) ledger
+        cross join lateral (
+            select count(*) as rows, sum(amount) as amount
+            from naive_balance
+            where naive_balance.user_id = chunk.user_id and close_ledger_id is null
+        ) opened
+        cross join lateral (
+            select count(distinct balance.id) as rows,
+                   count(distinct balance.open_ledger_id) as openers,
+                   sum(balance.amount) filter (where kind.opening) as opening,
+                   count(*) filter (where opener.id is null and not kind.opening) as orphaned,
+                   count(*) filter (where balance.close_ledger_id is not null
+                       and (closer.id is null or successor.amount <> balance.amount + closer.amount)) as broken
+            from naive_balance balance
+            left join naive_ledger opener
+                on opener.id = balance.open_ledger_id and opener.user_id = balance.user_id
+            left join naive_ledger closer
+                on closer.id = balance.close_ledger_id and closer.user_id = balance.user_id
+            left join naive_balance successor
+                on successor.user_id = balance.user_id and successor.open_ledger_id = balance.close_ledger_id
+            cross join lateral (
+                select opener.id is null and balance.open_ledger_seq = 0 and not exists (
+                    select 1 from naive_balance predecessor
+                    where predecessor.user_id = balance.user_id
+                      and predecessor.close_ledger_id = balance.open_ledger_id
+                ) as opening
+            ) kind
+            where balance.user_id = chunk.user_id
+        ) links
+        order by chunk.user_id
+        """;
+
+    // Violations logged per pass; the report still counts all of them
+    private static final int MAX_LOGGED = 100;
+
+    private final ConnectionPool connectionPool;
+    private final SingleFlight singleFlight;
+    private final MeterRegistry meterRegistry;
+    private final int partitions;
+    private final int concurrency;
+    private final int chunkSize;
+    private final Timer passDuration;
+
+    public LedgerVerifier(
+        ConnectionFactory connectionFactory,
+        SingleFlight singleFlight,
+        MeterRegistry meterRegistry,
+        @Value("${naive.ledger.verifier.partitions:16}") int partitions,
+        @Value("${naive.ledger.verifier.concurrency:4}") int concurrency,
+        @Value("${naive.ledger.verifier.chunk-size:1000}") int chunkSize) {
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration
+            .builder(PostgresConnections.unpooled(connectionFactory))
+            .name("ledger-verifier")
+            .initialSize(0)
+            .maxSize(concurrency + 1)
+            .maxIdleTime(Duration.ofMinutes(1))
+            .build());
+        this.singleFlight = singleFlight;
+        this.meterRegistry = meterRegistry;
+        this.partitions = partitions;
+        this.concurrency = concurrency;
+        this.chunkSize = chunkSize;
+        this.passDuration = Timer.builder("naive.ledger.verify.duration")
+            .register(meterRegistry);
+    }
+
+    // Off unless naive.ledger.verifier.cron is set; POST /naive/ledger:verify runs it on demand
+    @Scheduled(cron = "${naive.ledger.verifier.cron:-}")
+    void runScheduled() {
+        verify().block();
+    }
+
+    @PreDestroy
+    void close() {
+        this.connectionPool.dispose();
+    }
+
+    public Mono<Report> verify() {
+        return this.singleFlight.execute("naive_ledger.verify", "all", this::pass);
+    }
+
+    private Mono<Report> pass() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            AtomicInteger logged = new AtomicInteger();
+            return Mono.usingWhen(
+                    this.connectionPool.create(),
+                    exporter -> Mono.from(exporter.beginTransaction(IsolationLevel.REPEATABLE_READ))
+                        .then(exportSnapshot(exporter))
+                        .flatMap(snapshot -> Flux.fromIterable(partitions())
+                            .flatMap(partition -> verifyPartition(snapshot, partition, logged), this.concurrency)
+                            .reduce(Report.EMPTY, Report::merge)),
+                    LedgerVerifier::release)
+                .doOnNext(report -> {
+                    long elapsed = System.nanoTime() - start;
+                    this.passDuration.record(elapsed, TimeUnit.NANOSECONDS);
+                    record(report);
+                    log.info("Verified the ledger of {} users in {} ms: {}",
+                        report.users(), TimeUnit.NANOSECONDS.toMillis(elapsed), report);
+                });
+        });
+    }
+
+    private Mono<Report> verifyPartition(String snapshot, Partition partition, AtomicInteger logged) {
+        return Mono.usingWhen(
+            this.connectionPool.create(),
+            connection -> Mono.from(connection.beginTransaction(IsolationLevel.REPEATABLE_READ))
+                // Must run before any query of the transaction; the id comes from pg_export_snapshot
+                .thenMany(connection.createStatement("set transaction snapshot '" + snapshot + "'").execute())
+                .flatMap(Result::getRowsUpdated)
+                .then(verifyChunk(connection, partition.from(), partition.to(), logged))
+                .expand(chunk -> chunk.users() < this.chunkSize || chunk.last().equals(partition.to())
+                    ? Mono.empty()
+                    : verifyChunk(connection, successor(chunk.last()), partition.to(), logged))
+                .map(Chunk::report)
+                .reduce(Report.EMPTY, Report::merge),
+            LedgerVerifier::release);
+    }
+
+    private Mono<Chunk> verifyChunk(Connection connection, UUID from, UUID to, AtomicInteger logged) {
+        return Flux.from(connection.createStatement(VERIFY_CHUNK)
+                .bind("$1", from)
+                .bind("$2", to)
+                .bind("$3", this.chunkSize)
+                .execute())
+            .flatMap(result -> result.map((row, metadata) -> UserCheck.from(row)))
+            .doOnNext(check -> {
+                if (!check.isConsistent() && logged.getAndIncrement() < MAX_LOGGED) {
+                    log.warn("Ledger of user {} is inconsistent: {}", check.userId(), check);
+                }
+            })
+            .reduce(Chunk.EMPTY, Chunk::add);
+    }
+
+    private static Mono<String> exportSnapshot(Connection connection) {
+        return Flux.from(connection.createStatement("select pg_export_snapshot() as snapshot").execute())
+            .flatMap(result -> result.map((row, metadata) -> row.get("snapshot", String.class)))
+            .single();
+    }
+
+    // Read-only, so there is nothing to commit
+    private static Mono<Void> release(Connection connection) {
+        return Mono.from(connection.rollbackTransaction())
+            .onErrorResume(ex -> Mono.empty())
+            .then(Mono.from(connection.close()));
+    }
+
+    // Equal slices of the uuid space, ordered the way Postgres compares uuids
+    List<Partition> partitions() {
+        long step = Long.divideUnsigned(-1L, this.partitions) + 1;
+        return IntStream.range(0, this.partitions)
+            .mapToObj(i -> new Partition(
+                new UUID(i * step, 0L),
+                i == this.partitions - 1 ? new UUID(-1L, -1L) : new UUID((i + 1) * step - 1, -1L)))
+            .toList();
+    }
+
+    static UUID successor(UUID id) {
+        long leastSignificantBits = id.getLeastSignificantBits() + 1;
+        return new UUID(
+            leastSignificantBits == 0 ? id.getMostSignificantBits() + 1 : id.getMostSignificantBits(),
+            leastSignificantBits);
+    }
+
+    private void record(Report report) {
+        violations("unbalanced", report.unbalanced());
+        violations("missing_open", report.missingOpen());
+        violations("double_opened", report.doubleOpened());
+        violations("orphaned", report.orphaned());
+        violations("broken_link", report.brokenLinks());
+        violations("not_conserved", report.isConserved() ? 0 : 1);
+    }
+
+    private void violations(String kind, long count) {
+        this.meterRegistry.counter("naive.ledger.verify.violations", "kind", kind).increment(count);
+    }
+
+    record Partition(UUID from, UUID to) {
+    }
+
+    private record UserCheck(
+        UUID userId,
+        long entries,
+        BigDecimal ledgerTotal,
+        BigDecimal transferred,
+        long openRows,
+        BigDecimal openAmount,
+        BigDecimal openingAmount,
+        long doubleOpened,
+        long orphaned,
+        long broken
+    ) {
+        static UserCheck from(Row row) {
+            return new UserCheck(
+                row.get("user_id", UUID.class),
+                row.get("entries", Long.class),
+                row.get("ledger_total", BigDecimal.class),
+                row.get("transferred", BigDecimal.class),
+                row.get("open_rows", Long.class),
+                row.get("open_amount", BigDecimal.class),
+                row.get("opening_amount", BigDecimal.class),
+                row.get("double_opened", Long.class),
+                row.get("orphaned", Long.class),
+                row.get("broken", Long.class));
+        }
+
+        boolean isUnbalanced() {
+            return this.openAmount.compareTo(this.ledgerTotal.add(this.openingAmount)) != 0;
+        }
+
+        // A user with ledger entries always has an open balance row
+        boolean isMissingOpen() {
+            return this.entries > 0 && this.openRows == 0;
+        }
+
+        long doubleOpenedRows() {
+            return this.doubleOpened + Math.max(this.openRows - 1, 0);
+        }
+
+        boolean isConsistent() {
+            return !isUnbalanced() && !isMissingOpen() && doubleOpenedRows() == 0
+                && this.orphaned == 0 && this.broken == 0;
+        }
+    }
+
+    private record Chunk(Report report, UUID last, int users) {
+
+        static final Chunk EMPTY = new Chunk(Report.EMPTY, null, 0);
+
+        Chunk add(UserCheck check) {
+            return new Chunk(this.report.add(check), check.userId(), this.users + 1);
+        }
+    }
+
+    public record Report(
+        long users,
+        long ledgerEntries,
+        BigDecimal ledgerTotal,
+        BigDecimal openingTotal,
+        BigDecimal balanceTotal,
+        BigDecimal transferredTotal,
+        long unbalanced,
+        long missingOpen,
+        long doubleOpened,
+        long orphaned,
+        long brokenLinks
+    ) {
+
+        static final Report EMPTY = new Report(
+            0, 0, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, 0, 0, 0, 0, 0);
+
+        // Transfers move money between users, so their entries cancel out and only deposits remain, in the
+        // ledger or as opening balances
+        @JsonProperty("conserved")
+        public boolean isConserved() {
+            return this.transferredTotal.signum() == 0
+                && this.ledgerTotal.add(this.openingTotal).compareTo(this.balanceTotal) == 0;
+        }
+
+        @JsonProperty("consistent")
+        public boolean isConsistent() {
+            return isConserved() && this.unbalanced == 0 && this.missingOpen == 0 && this.doubleOpened == 0
+                && this.orphaned == 0 && this.brokenLinks == 0;
+        }
+
+        Report add(UserCheck check) {
+            return new Report(
+                this.users + 1,
+                this.ledgerEntries + check.entries(),
+                this.ledgerTotal.add(check.ledgerTotal()),
+                this.openingTotal.add(check.openingAmount()),
+                this.balanceTotal.add(check.openAmount()),
+                this.transferredTotal.add(check.transferred()),
+                this.unbalanced + (check.isUnbalanced() ? 1 : 0),
+                this.missingOpen + (check.isMissingOpen() ? 1 : 0),
+                this.doubleOpened + check.doubleOpenedRows(),
+                this.orphaned + check.orphaned(),
+                this.brokenLinks + check.broken());
+        }
+
+        Report merge(Report other) {
+            return new Report(
+                this.users + other.users,
+                this.ledgerEntries + other.ledgerEntries,
+                this.ledgerTotal.add(other.ledgerTotal),
+                this.openingTotal.add(other.openingTotal),
+                this.balanceTotal.add(other.balanceTotal),
+                this.transferredTotal.add(other.transferredTotal),
+                this.unbalanced + other.unbalanced,
+                this.missingOpen + other.missingOpen,
+                this.doubleOpened + other.doubleOpened,
+                this.orphaned + other.orphaned,
+                this.brokenLinks + other.brokenLinks);
+        }
+    }
+}
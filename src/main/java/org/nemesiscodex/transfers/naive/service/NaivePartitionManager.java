@@ -0,0 +1,171 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Keeps the created_at range partitions of naive_transfer and naive_ledger (V011) ahead of time, so an
+// insert never falls through to the default partition, and optionally detaches partitions that ended
+// more than the retention ago. Detaching runs CONCURRENTLY, outside a transaction, so writers are never
+// blocked; the partition is then moved to the naive_archive schema or dropped.
+// Detached ledger rows are gone for balances, as-of reads and LedgerVerifier, which all sum the attached
+// ledger, so detaching only starts with acknowledge-incomplete-ledger set as well.
+// Rows in the default partitions, written while no range partition covered them, are counted every run.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "naive.partitioning", name = "enabled", havingValue = "true")
+public class NaivePartitionManager {
+
+    private static final List<String> TABLES = List.of("naive_transfer", "naive_ledger");
+
+    private static final Set<String> UNITS = Set.of("day", "week", "month");
+
+    private static final String CREATE_PARTITIONS = """
+        select naive_create_partitions(cast(:table as regclass), :unit, make_interval(secs => :aheadSeconds)) as created
+        """;
+
+    private static final String EXPIRED_PARTITIONS = """
+        select partition_name::text as name from naive_partition_bounds(cast(:table as regclass))
+        where upper_bound <= localtimestamp - make_interval(secs => :retentionSeconds)
+        order by upper_bound
+        """;
+
+    // Identifiers cannot be bound; table is one of TABLES
+    private static final String DEFAULT_ROWS = """
+        select count(*) as n from %s_default
+        """;
+
+    private final DatabaseClient databaseClient;
+    private final String unit;
+    private final Duration ahead;
+    private final boolean detach;
+    private final Duration retention;
+    private final boolean archive;
+    private final Counter created;
+    private final Counter detached;
+    private final Map<String, AtomicLong> defaultRows;
+
+    public NaivePartitionManager(
+        DatabaseClient databaseClient,
+        MeterRegistry meterRegistry,
+        @Value("${naive.partitioning.unit:month}") String unit,
+        @Value("${naive.partitioning.ahead:90d}") Duration ahead,
+        @Value("${naive.partitioning.detach.enabled:false}") boolean detach,
+        @Value("${naive.partitioning.detach.retention:365d}") Duration retention,
+        @Value("${naive.partitioning.detach.archive:true}") boolean archive,
+        @Value("${naive.partitioning.detach.acknowledge-incomplete-ledger:false}") boolean incompleteLedger) {
+        if (!UNITS.contains(unit)) {
+            throw new IllegalArgumentException("naive.partitioning.unit must be one of " + UNITS + ": " + unit);
+        }
+        if (detach && !incompleteLedger) {
+            throw new IllegalArgumentException("naive.partitioning.detach.enabled removes ledger rows that balances,"
+                + " as-of reads and the ledger verifier still sum; set"
+                + " naive.partitioning.detach.acknowledge-incomplete-ledger to detach anyway");
+        }
+        this.databaseClient = databaseClient;
+        this.unit = unit;
+        this.ahead = ahead;
+        this.detach = detach;
+        this.retention = retention;
+        this.archive = archive;
+        this.created = Counter.builder("naive.partitioning.created")
+            .register(meterRegistry);
+        this.detached = Counter.builder("naive.partitioning.detached")
+            .register(meterRegistry);
+        this.defaultRows = TABLES.stream()
+            .collect(Collectors.toMap(Function.identity(), table -> new AtomicLong()));
+        this.defaultRows.forEach((table, rows) -> Gauge
+            .builder("naive.partitioning.default.rows", rows, AtomicLong::get)
+            .description("Rows in the default partition, which range partitions are created around")
+            .tag("table", table)
+            .register(meterRegistry));
+    }
+
+    @Scheduled(
+        initialDelayString = "${naive.partitioning.initial-delay:PT10S}",
+        fixedDelayString = "${naive.partitioning.interval:PT6H}")
+    void runScheduled() {
+        maintain().block();
+    }
+
+    public Mono<Void> maintain() {
+        return Flux.fromIterable(TABLES)
+            .concatMap(table -> countDefaultRows(table)
+                .then(createPartitions(table))
+                .then(this.detach ? detachExpired(table) : Mono.empty())
+                // One table failing must not keep the other from being extended
+                .onErrorResume(ex -> {
+                    log.error("Partition maintenance of {} failed", table, ex);
+                    return Mono.empty();
+                }))
+            .then();
+    }
+
+    Mono<Integer> createPartitions(String table) {
+        return this.databaseClient.sql(CREATE_PARTITIONS)
+            .bind("table", table)
+            .bind("unit", this.unit)
+            .bind("aheadSeconds", this.ahead.toSeconds())
+            .map((row, metadata) -> row.get("created", Integer.class))
+            .one()
+            .doOnNext(count -> {
+                if (count > 0) {
+                    this.created.increment(count);
+                    log.info("Created {} {} partitions of {}", count, this.unit, table);
+                }
+            });
+    }
+
+    // A partition cannot be created over rows already in the default partition, and each creation scans it,
+    // so rows there are logged as errors until they are moved into range partitions
+    Mono<Long> countDefaultRows(String table) {
+        return this.databaseClient.sql(DEFAULT_ROWS.formatted(table))
+            .map((row, metadata) -> row.get("n", Long.class))
+            .one()
+            .doOnNext(rows -> {
+                this.defaultRows.get(table).set(rows);
+                if (rows > 0) {
+                    log.error("{} rows of {} are in its default partition, no range partition covers them", rows, table);
+                }
+            });
+    }
+
+    // Identifiers cannot be bound; table is one of TABLES and name comes back from regclass::text,
+    // which quotes it when needed
+    Mono<Long> detachExpired(String table) {
+        return this.databaseClient.sql(EXPIRED_PARTITIONS)
+            .bind("table", table)
+            .bind("retentionSeconds", this.retention.toSeconds())
+            .map((row, metadata) -> row.get("name", String.class))
+            .all()
+            .concatMap(name -> execute("alter table " + table + " detach partition " + name + " concurrently")
+                .then(execute(this.archive
+                    ? "alter table " + name + " set schema naive_archive"
+                    : "drop table " + name))
+                .doOnSuccess(done -> {
+                    this.detached.increment();
+                    log.info("Detached partition {} of {}{}", name, table, this.archive ? " into naive_archive" : "");
+                })
+                .thenReturn(name))
+            .count();
+    }
+
+    private Mono<Void> execute(String sql) {
+        return this.databaseClient.sql(sql).then();
+    }
+}
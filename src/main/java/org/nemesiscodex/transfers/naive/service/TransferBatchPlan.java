@@ -0,0 +1,98 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.nemesiscodex.transfers.naive.service.TransferService.TransferResult;
+import reactor.core.publisher.MonoSink;
+
+// Applies a batch of transfers in submission order against the locked open balances and lays the
+// accepted transfers out column by column, ready to be bound as arrays to a multi-row unnest() insert.
+// The ledger and balance rows are derived from them by LedgerChain in the same order.
+final class TransferBatchPlan {
+
+    private final List<Accepted> accepted = new ArrayList<>();
+    private final List<Rejected> rejected = new ArrayList<>();
+
+    private final List<UUID> transferIds = new ArrayList<>();
+    private final List<UUID> senderIds = new ArrayList<>();
+    private final List<UUID> recipientIds = new ArrayList<>();
+    private final List<BigDecimal> amounts = new ArrayList<>();
+
+    private TransferBatchPlan() {
+    }
+
+    static TransferBatchPlan of(List<Pending> batch, Set<UUID> existingUsers, Map<UUID, BigDecimal> openBalances) {
+        TransferBatchPlan plan = new TransferBatchPlan();
+        Map<UUID, BigDecimal> balances = new HashMap<>(openBalances);
+        for (Pending pending : batch) {
+            if (!existingUsers.contains(pending.senderId())) {
+                plan.rejected.add(new Rejected(pending, new IllegalArgumentException("Sender not found")));
+                continue;
+            }
+            if (!existingUsers.contains(pending.recipientId())) {
+                plan.rejected.add(new Rejected(pending, new IllegalArgumentException("Recipient not found")));
+                continue;
+            }
+            BigDecimal senderBalance = balances.getOrDefault(pending.senderId(), BigDecimal.ZERO);
+            if (senderBalance.compareTo(pending.amount()) < 0) {
+                plan.rejected.add(new Rejected(pending, new IllegalStateException("Insufficient funds")));
+                continue;
+            }
+            BigDecimal newSenderBalance = senderBalance.subtract(pending.amount());
+            BigDecimal newRecipientBalance = balances.getOrDefault(pending.recipientId(), BigDecimal.ZERO)
+                .add(pending.amount());
+            balances.put(pending.senderId(), newSenderBalance);
+            balances.put(pending.recipientId(), newRecipientBalance);
+
+            UUID transferId = UUID.randomUUID();
+            plan.transferIds.add(transferId);
+            plan.senderIds.add(pending.senderId());
+            plan.recipientIds.add(pending.recipientId());
+            plan.amounts.add(pending.amount());
+            plan.accepted.add(new Accepted(pending, transferId, newSenderBalance));
+        }
+        return plan;
+    }
+
+    boolean hasTransfers() {
+        return !this.transferIds.isEmpty();
+    }
+
+    List<Accepted> accepted() {
+        return this.accepted;
+    }
+
+    List<Rejected> rejected() {
+        return this.rejected;
+    }
+
+    UUID[] transferIds() {
+        return this.transferIds.toArray(UUID[]::new);
+    }
+
+    UUID[] senderIds() {
+        return this.senderIds.toArray(UUID[]::new);
+    }
+
+    UUID[] recipientIds() {
+        return this.recipientIds.toArray(UUID[]::new);
+    }
+
+    BigDecimal[] amounts() {
+        return this.amounts.toArray(BigDecimal[]::new);
+    }
+
+    record Pending(UUID senderId, UUID recipientId, BigDecimal amount, MonoSink<TransferResult> sink) {
+    }
+
+    record Accepted(Pending pending, UUID transferId, BigDecimal senderBalance) {
+    }
+
+    record Rejected(Pending pending, RuntimeException error) {
+    }
+}
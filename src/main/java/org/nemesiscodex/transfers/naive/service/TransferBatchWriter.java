@@ -0,0 +1,221 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.nemesiscodex.transfers.core.util.DbTransactionUtil;
+import org.nemesiscodex.transfers.naive.entity.NaiveTransfer;
+import org.nemesiscodex.transfers.naive.service.TransferService.TransferResult;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+// Opt-in micro-batching in front of the naive transfer tables: concurrent transfers are collected
+// for up to max-wait or max-batch-size items and committed together in one transaction.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "naive.transfer.batching", name = "enabled", havingValue = "true")
+public class TransferBatchWriter {
+
+    private static final String LOCK_USERS = """
+        select id from users
+        where id = any(:userIds)
+        order by id
+        for update
+        """;
+
+    private static final String OPEN_BALANCES = """
+        select user_id, amount from naive_balance
+        where user_id = any(:userIds) and close_ledger_id is null
+        """;
+
+    // The accepted transfers under their planned ids, with the ledger and balance chain appended in
+    // submission order, so each user's balance rows follow the order the plan checked funds in
+    private static final String WRITE_TRANSFERS = LedgerChain.statement("""
+        inserted as (
+            insert into naive_transfer (id, user_id, recipient_id, amount)
+            select * from unnest(:transferIds, :senderIds, :recipientIds, :amounts)
+            returning *
+        ),
+        transfer as (
+            select inserted.*, input.position
+            from inserted
+            join unnest(:transferIds) with ordinality as input(id, position) on input.id = inserted.id
+        )
+        """, """
+        select * from inserted
+        """);
+
+    private final DatabaseClient databaseClient;
+    private final R2dbcConverter converter;
+    private final DbTransactionUtil db;
+    private final BalanceProjection projection;
+    private final int maxBatchSize;
+    private final Duration maxWait;
+    private final int queueCapacity;
+    private final int concurrency;
+    // Bounded by queueCapacity through queued, the sink itself buffers without limit
+    private final AtomicInteger queued = new AtomicInteger();
+    private final DistributionSummary batchSize;
+    private final Timer batchLatency;
+    private final Counter rejected;
+    private volatile FluxSink<TransferBatchPlan.Pending> queue;
+    private Disposable subscription;
+
+    public TransferBatchWriter(
+        DatabaseClient databaseClient,
+        R2dbcConverter converter,
+        DbTransactionUtil db,
+        MeterRegistry meterRegistry,
+        ObjectProvider<BalanceProjection> projectionProvider,
+        @Value("${naive.transfer.batching.max-batch-size:100}") int maxBatchSize,
+        @Value("${naive.transfer.batching.max-wait:5ms}") Duration maxWait,
+        @Value("${naive.transfer.batching.queue-capacity:10000}") int queueCapacity,
+        @Value("${naive.transfer.batching.concurrency:1}") int concurrency) {
+        this.databaseClient = databaseClient;
+        this.converter = converter;
+        this.db = db;
+        this.projection = projectionProvider.getIfAvailable();
+        this.maxBatchSize = maxBatchSize;
+        this.maxWait = maxWait;
+        this.queueCapacity = queueCapacity;
+        this.concurrency = concurrency;
+        this.batchSize = DistributionSummary.builder("naive.transfer.batch.size")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.batchLatency = Timer.builder("naive.transfer.batch.latency")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.rejected = Counter.builder("naive.transfer.batch.rejected")
+            .description("Transfers refused because the batching queue was full")
+            .register(meterRegistry);
+        Gauge.builder("naive.transfer.batch.queued", this.queued, AtomicInteger::get)
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        // The FluxCreate sink is serialized: a caller emitting while another one is hands its item to
+        // the emitting thread through a lock-free queue instead of failing or waiting
+        this.subscription = Flux.<TransferBatchPlan.Pending>create(
+                sink -> this.queue = sink, FluxSink.OverflowStrategy.BUFFER)
+            // fairBackpressure: buffers are only emitted on demand, so a slow database backs up
+            // into the bounded queue instead of overflowing the buffer operator
+            .bufferTimeout(this.maxBatchSize, this.maxWait, true)
+            .doOnNext(batch -> this.queued.addAndGet(-batch.size()))
+            .flatMap(this::writeBatch, this.concurrency)
+            .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        // Completing the queue flushes the last partial batch
+        this.queue.complete();
+    }
+
+    public Mono<TransferResult> submit(UUID senderId, UUID recipientId, BigDecimal amount) {
+        return Mono.create(sink -> {
+            if (this.queued.incrementAndGet() > this.queueCapacity) {
+                this.queued.decrementAndGet();
+                this.rejected.increment();
+                sink.error(new RejectedExecutionException("Transfer queue is full"));
+                return;
+            }
+            this.queue.next(new TransferBatchPlan.Pending(senderId, recipientId, amount, sink));
+        });
+    }
+
+    private Mono<Void> writeBatch(List<TransferBatchPlan.Pending> batch) {
+        long start = System.nanoTime();
+        this.batchSize.record(batch.size());
+        Set<UUID> userIds = new HashSet<>();
+        batch.forEach(pending -> {
+            userIds.add(pending.senderId());
+            userIds.add(pending.recipientId());
+        });
+        UUID[] userIdArray = userIds.toArray(UUID[]::new);
+        return this.db.runInTransaction(() -> lockUsers(userIdArray)
+                .flatMap(locked -> openBalances(userIdArray)
+                    .map(balances -> TransferBatchPlan.of(batch, locked, balances)))
+                .flatMap(plan -> plan.hasTransfers()
+                    ? write(plan)
+                        .flatMap(transfers -> refreshProjection(userIds).thenReturn(transfers))
+                        .map(transfers -> new WrittenBatch(plan, transfers))
+                    : Mono.just(new WrittenBatch(plan, Map.of()))))
+            .doOnNext(written -> {
+                this.batchLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                complete(written);
+            })
+            .onErrorResume(ex -> {
+                log.warn("Transfer batch of {} failed", batch.size(), ex);
+                batch.forEach(pending -> pending.sink().error(ex));
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    private Mono<Set<UUID>> lockUsers(UUID[] userIds) {
+        return this.databaseClient.sql(LOCK_USERS)
+            .bind("userIds", userIds)
+            .map((row, metadata) -> row.get("id", UUID.class))
+            .all()
+            .collect(HashSet::new, Set::add);
+    }
+
+    private Mono<Map<UUID, BigDecimal>> openBalances(UUID[] userIds) {
+        return this.databaseClient.sql(OPEN_BALANCES)
+            .bind("userIds", userIds)
+            .map((row, metadata) -> Map.entry(row.get("user_id", UUID.class), row.get("amount", BigDecimal.class)))
+            .all()
+            .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    private Mono<Map<UUID, NaiveTransfer>> write(TransferBatchPlan plan) {
+        return this.databaseClient.sql(WRITE_TRANSFERS)
+            .bind("transferIds", plan.transferIds())
+            .bind("senderIds", plan.senderIds())
+            .bind("recipientIds", plan.recipientIds())
+            .bind("amounts", plan.amounts())
+            .map((row, metadata) -> this.converter.read(NaiveTransfer.class, row, metadata))
+            .all()
+            .collectMap(NaiveTransfer::id);
+    }
+
+    // Callers are only completed once the commit and this refresh are done
+    private Mono<Void> refreshProjection(Set<UUID> userIds) {
+        return this.projection != null ? this.projection.refreshAfterCommit(userIds) : Mono.empty();
+    }
+
+    private void complete(WrittenBatch written) {
+        written.plan().rejected().forEach(rejected -> rejected.pending().sink().error(rejected.error()));
+        written.plan().accepted().forEach(accepted -> {
+            var transfer = written.transfers().get(accepted.transferId());
+            accepted.pending().sink().success(new TransferResult(transfer, accepted.senderBalance()));
+        });
+    }
+
+    private record WrittenBatch(TransferBatchPlan plan, Map<UUID, NaiveTransfer> transfers) {
+    }
+}
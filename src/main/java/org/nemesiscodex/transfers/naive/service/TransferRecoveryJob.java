@@ -0,0 +1,200 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.nemesiscodex.transfers.core.util.DbTransactionUtil;
+import org.nemesiscodex.transfers.naive.entity.NaiveTransfer;
+import org.nemesiscodex.transfers.naive.entity.TransferState;
+import org.nemesiscodex.transfers.scalable.dto.TransferCommand;
+import org.nemesiscodex.transfers.scalable.repository.OutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tools.jackson.databind.json.JsonMapper;
+
+// Reclaims transfers that have sat in PROCESSING or SUBMITTING longer than stale-after, e.g. because the
+// node talking to the bank died mid-call. Each batch is claimed by one statement with SKIP LOCKED and
+// leased by bumping state_changed_at and version, so other instances neither wait on nor re-claim it.
+// Claimed transfers go back to PENDING with a fresh TransferCommand in the outbox, committed together so
+// the processor drives them again, or to FAILED once max-attempts is reached. A SUBMITTING transfer is
+// submitted again with the same transfer id, which the bank answers with the reference it already gave.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "naive.transfer.recovery", name = "enabled", havingValue = "true")
+public class TransferRecoveryJob {
+
+    // The stale transfers are found through each partition's in-flight index, which stays small however many
+    // partitions there are; the update then joins on (id, created_at) so it only touches their partitions
+    private static final String CLAIM_BATCH = """
+        with stale as (
+            select id, created_at, state_changed_at from naive_transfer
+            where state in ('PROCESSING', 'SUBMITTING')
+              and state_changed_at < now() - make_interval(secs => :staleSeconds)
+            order by state_changed_at
+            limit :batchSize
+            for update skip locked
+        )
+        update naive_transfer
+        set state_changed_at = now(),
+            version = version + 1,
+            recovery_attempts = recovery_attempts + 1
+        from stale
+        where naive_transfer.id = stale.id
+          and naive_transfer.created_at = stale.created_at
+        returning naive_transfer.*,
+            extract(epoch from now() - stale.state_changed_at)::float8 as stuck_seconds,
+            extract(epoch from now() - naive_transfer.created_at)::float8 as age_seconds
+        """;
+
+    private final DatabaseClient databaseClient;
+    private final R2dbcConverter converter;
+    private final TransferStateMachine stateMachine;
+    private final DbTransactionUtil db;
+    private final OutboxRepository outboxRepository;
+    private final JsonMapper jsonMapper;
+    private final Duration staleAfter;
+    private final int batchSize;
+    private final int maxBatches;
+    private final int maxAttempts;
+    private final int concurrency;
+    private final MeterRegistry meterRegistry;
+    private final Counter claimed;
+    private final DistributionSummary retryAge;
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    public TransferRecoveryJob(
+        DatabaseClient databaseClient,
+        R2dbcConverter converter,
+        TransferStateMachine stateMachine,
+        DbTransactionUtil db,
+        OutboxRepository outboxRepository,
+        JsonMapper jsonMapper,
+        MeterRegistry meterRegistry,
+        @Value("${naive.transfer.recovery.stale-after:2m}") Duration staleAfter,
+        @Value("${naive.transfer.recovery.batch-size:100}") int batchSize,
+        @Value("${naive.transfer.recovery.max-batches:10}") int maxBatches,
+        @Value("${naive.transfer.recovery.max-attempts:5}") int maxAttempts,
+        @Value("${naive.transfer.recovery.concurrency:8}") int concurrency) {
+        this.databaseClient = databaseClient;
+        this.converter = converter;
+        this.stateMachine = stateMachine;
+        this.db = db;
+        this.outboxRepository = outboxRepository;
+        this.jsonMapper = jsonMapper;
+        this.staleAfter = staleAfter;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.maxAttempts = maxAttempts;
+        this.concurrency = concurrency;
+        this.meterRegistry = meterRegistry;
+        this.claimed = Counter.builder("naive.transfer.recovery.claimed")
+            .description("Stuck transfers claimed by this instance")
+            .register(meterRegistry);
+        this.retryAge = DistributionSummary.builder("naive.transfer.recovery.age")
+            .description("Age of reclaimed transfers since creation")
+            .baseUnit("seconds")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        TimeGauge.builder("naive.transfer.recovery.lag", this.lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+            .description("How long the oldest claimed transfer had been stale when it was picked up")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(
+        initialDelayString = "${naive.transfer.recovery.initial-delay:PT30S}",
+        fixedDelayString = "${naive.transfer.recovery.interval:PT30S}")
+    void runScheduled() {
+        sweep().block();
+    }
+
+    public Mono<Long> sweep() {
+        return Mono.defer(() -> {
+            this.lagMillis.set(0);
+            return claimBatch()
+                .flatMap(batch -> Flux.fromIterable(batch)
+                    .flatMap(this::recover, this.concurrency)
+                    .then(Mono.just((long) batch.size())))
+                .repeat(this.maxBatches - 1L)
+                .takeUntil(size -> size < this.batchSize)
+                .reduce(0L, Long::sum)
+                .doOnNext(total -> {
+                    if (total > 0) {
+                        log.info("Transfer recovery reclaimed {} stuck transfers", total);
+                    }
+                });
+        });
+    }
+
+    private Mono<List<Claimed>> claimBatch() {
+        return this.databaseClient.sql(CLAIM_BATCH)
+            .bind("staleSeconds", this.staleAfter.toSeconds())
+            .bind("batchSize", this.batchSize)
+            .map((row, metadata) -> new Claimed(
+                this.converter.read(NaiveTransfer.class, row, metadata),
+                row.get("stuck_seconds", Double.class),
+                row.get("age_seconds", Double.class)))
+            .all()
+            .collectList()
+            .doOnNext(this::recordClaims);
+    }
+
+    private void recordClaims(List<Claimed> batch) {
+        this.claimed.increment(batch.size());
+        double stalest = 0;
+        for (Claimed claim : batch) {
+            this.retryAge.record(claim.ageSeconds());
+            stalest = Math.max(stalest, claim.stuckSeconds());
+        }
+        long lag = Math.max(0, (long) (stalest * 1000) - this.staleAfter.toMillis());
+        this.lagMillis.accumulateAndGet(lag, Math::max);
+    }
+
+    // The claim bumped the version, so a worker that finishes late loses its own transition to COMPLETED
+    // to this one instead of overwriting it, and vice versa
+    private Mono<TransferStateMachine.Transition> recover(Claimed claim) {
+        NaiveTransfer transfer = claim.transfer();
+        boolean exhausted = transfer.recoveryAttempts() >= this.maxAttempts;
+        return this.db.runInTransaction(() -> this.stateMachine.transition(
+                    transfer.id(),
+                    transfer.createdAt(),
+                    transfer.state(),
+                    exhausted ? TransferState.FAILED : TransferState.PENDING,
+                    transfer.version(),
+                    exhausted ? "Recovery attempts exhausted" : null)
+                .flatMap(transition -> transition.applied() && !exhausted
+                    ? redrive(transition.transfer()).thenReturn(transition)
+                    : Mono.just(transition)))
+            .doOnNext(transition -> this.meterRegistry.counter(
+                "naive.transfer.recovery",
+                "outcome", !transition.applied() ? "lost_race" : exhausted ? "failed" : "redriven"
+            ).increment())
+            .onErrorResume(ex -> {
+                log.warn("Failed to recover transfer {}", transfer.id(), ex);
+                return Mono.empty();
+            });
+    }
+
+    // Nothing polls PENDING transfers, the processor only acts on commands, so a reset needs a new one
+    private Mono<Long> redrive(NaiveTransfer transfer) {
+        return this.outboxRepository.insert(
+            transfer.id(),
+            transfer.userId().toString(),
+            TransferCommand.EVENT_TYPE,
+            this.jsonMapper.writeValueAsString(TransferCommand.from(transfer)));
+    }
+
+    private record Claimed(NaiveTransfer transfer, double stuckSeconds, double ageSeconds) {
+    }
+}
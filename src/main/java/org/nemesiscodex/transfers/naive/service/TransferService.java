@@ -0,0 +1,178 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.nemesiscodex.transfers.core.util.DbTransactionUtil;
+import org.nemesiscodex.transfers.naive.entity.NaiveTransfer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+@Service
+public class TransferService {
+
+    private static final List<String> OUTCOMES = List.of("success", "overloaded", "insufficient_funds", "rejected", "error");
+
+    // Lock both users in id order so concurrent A->B and B->A transfers cannot deadlock
+    private static final String LOCK_USERS = """
+        select id from users
+        where id = :senderId or id = :recipientId
+        order by id
+        for update
+        """;
+
+    // Inserts the transfer, both ledger rows, closes the open balances and opens the new ones
+    // in a single round trip. Nothing is written when the sender cannot cover the amount.
+    private static final String APPLY_TRANSFER = LedgerChain.statement("""
+        sender_balance as (
+            select coalesce(
+                (select amount from naive_balance where user_id = :senderId and close_ledger_id is null),
+                0) as amount
+        ),
+        inserted as (
+            insert into naive_transfer (user_id, recipient_id, amount)
+            select :senderId, :recipientId, :amount
+            from sender_balance
+            where sender_balance.amount >= :amount
+            returning *
+        ),
+        transfer as (
+            select inserted.*, 1 as position from inserted
+        )
+        """, """
+        select inserted.*, opened.amount as sender_balance
+        from inserted
+        join opened on opened.user_id = inserted.user_id
+        """);
+
+    private final DatabaseClient databaseClient;
+    private final R2dbcConverter converter;
+    private final DbTransactionUtil db;
+    private final ObjectProvider<TransferBatchWriter> batchWriterProvider;
+    private final BalanceProjection projection;
+    // Registered once, the registry lookup behind Timer.builder().register() is too costly per transfer
+    private final Map<String, Timer> timers;
+    private final Timer lockTimer;
+
+    public TransferService(
+        DatabaseClient databaseClient,
+        R2dbcConverter converter,
+        DbTransactionUtil db,
+        MeterRegistry meterRegistry,
+        ObjectProvider<TransferBatchWriter> batchWriterProvider,
+        ObjectProvider<BalanceProjection> projectionProvider) {
+        this.databaseClient = databaseClient;
+        this.converter = converter;
+        this.db = db;
+        this.batchWriterProvider = batchWriterProvider;
+        this.projection = projectionProvider.getIfAvailable();
+        this.timers = OUTCOMES.stream()
+            .collect(Collectors.toUnmodifiableMap(Function.identity(), outcome -> Timer.builder("naive.transfer")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)));
+        this.lockTimer = Timer.builder("naive.transfer.lock")
+            .description("Time spent waiting for the sender/recipient row locks")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    public Mono<TransferResult> transfer(UUID senderId, UUID recipientId, BigDecimal amount) {
+        return transfer(senderId, recipientId, amount, batchWriterProvider.getIfAvailable());
+    }
+
+    // Never batched: joins the caller's transaction, so writes the caller makes in the same transaction,
+    // such as the Idempotency-Key response, commit together with the transfer or not at all
+    public Mono<TransferResult> transferInTransaction(UUID senderId, UUID recipientId, BigDecimal amount) {
+        return transfer(senderId, recipientId, amount, null);
+    }
+
+    private Mono<TransferResult> transfer(UUID senderId, UUID recipientId, BigDecimal amount, TransferBatchWriter batchWriter) {
+        if (senderId.equals(recipientId)) {
+            return Mono.error(new IllegalArgumentException("Cannot transfer to yourself"));
+        }
+        if (amount.signum() <= 0) {
+            return Mono.error(new IllegalArgumentException("Amount must be positive"));
+        }
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            Mono<TransferResult> result = batchWriter != null
+                ? batchWriter.submit(senderId, recipientId, amount)
+                : db.runInTransaction(() -> lockUsers(senderId, recipientId)
+                    .flatMap(locked -> applyTransfer(senderId, recipientId, amount))
+                    .flatMap(transfer -> refreshProjection(List.of(senderId, recipientId)).thenReturn(transfer)));
+            return result
+                .doOnSuccess(transfer -> record("success", start))
+                .doOnError(ex -> record(outcome(ex), start));
+        });
+    }
+
+    private Mono<List<UUID>> lockUsers(UUID senderId, UUID recipientId) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return databaseClient.sql(LOCK_USERS)
+                .bind("senderId", senderId)
+                .bind("recipientId", recipientId)
+                .map((row, metadata) -> row.get("id", UUID.class))
+                .all()
+                .collectList()
+                .doOnNext(locked -> lockTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                .flatMap(locked -> {
+                    if (!locked.contains(senderId)) {
+                        return Mono.error(new IllegalArgumentException("Sender not found"));
+                    }
+                    if (!locked.contains(recipientId)) {
+                        return Mono.error(new IllegalArgumentException("Recipient not found"));
+                    }
+                    return Mono.just(locked);
+                });
+        });
+    }
+
+    private Mono<TransferResult> applyTransfer(UUID senderId, UUID recipientId, BigDecimal amount) {
+        return databaseClient.sql(APPLY_TRANSFER)
+            .bind("senderId", senderId)
+            .bind("recipientId", recipientId)
+            .bind("amount", amount)
+            .map((row, metadata) -> new TransferResult(
+                converter.read(NaiveTransfer.class, row, metadata),
+                row.get("sender_balance", BigDecimal.class)))
+            .one()
+            .switchIfEmpty(Mono.error(new IllegalStateException("Insufficient funds")));
+    }
+
+    // After the commit, which is the caller's when the transaction was joined
+    private Mono<Void> refreshProjection(List<UUID> userIds) {
+        return projection != null ? projection.refreshAfterCommit(userIds) : Mono.empty();
+    }
+
+    private void record(String outcome, long start) {
+        timers.get(outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private static String outcome(Throwable ex) {
+        if (ex instanceof RejectedExecutionException) {
+            return "overloaded";
+        }
+        if (ex instanceof IllegalStateException) {
+            return "insufficient_funds";
+        }
+        if (ex instanceof IllegalArgumentException) {
+            return "rejected";
+        }
+        return "error";
+    }
+
+    public record TransferResult(NaiveTransfer transfer, BigDecimal senderBalance) {
+    }
+}
@@ -0,0 +1,133 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.nemesiscodex.transfers.naive.entity.NaiveTransfer;
+import org.nemesiscodex.transfers.naive.entity.TransferState;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+// Every state change is a single conditional UPDATE ... WHERE state = :from (and optionally version),
+// so concurrent workers never need to lock rows up front: exactly one of them wins and the rest see a LostRace.
+// naive_transfer is partitioned on created_at (V011). Callers that know the row's created_at pass it, so
+// Postgres prunes to the one partition holding it; by id alone every partition's primary key is probed,
+// one more per unit kept attached.
+@Service
+@RequiredArgsConstructor
+public class TransferStateMachine {
+
+    private static final String BY_ID = "id = :id";
+
+    private static final String BY_KEY = "id = :id and created_at = :createdAt";
+
+    private static final String TRANSITION = """
+        update naive_transfer
+        set state = :to,
+            version = version + 1,
+            state_changed_at = now(),
+            failure_reason = :failureReason
+        where %s
+          and state = :from
+          and (:version::bigint is null or version = :version::bigint)
+        returning *
+        """;
+
+    // A separate statement on purpose: when the update waited for a concurrent winner, only a new
+    // statement's snapshot sees the row that winner committed, a select in the update's own statement
+    // would still see the row as it was before
+    private static final String FIND = """
+        select * from naive_transfer where %s
+        """;
+
+    private final DatabaseClient databaseClient;
+    private final R2dbcConverter converter;
+    private final MeterRegistry meterRegistry;
+
+    public Mono<Transition> transition(UUID transferId, TransferState from, TransferState to) {
+        return transition(transferId, from, to, null, null);
+    }
+
+    public Mono<Transition> fail(UUID transferId, TransferState from, String failureReason) {
+        return transition(transferId, from, TransferState.FAILED, null, failureReason);
+    }
+
+    // expectedVersion pins the transition to the exact row a caller read, not just its state,
+    // which matters for self-loops such as re-driving a transfer that went back to PENDING
+    public Mono<Transition> transition(
+        UUID transferId,
+        TransferState from,
+        TransferState to,
+        Long expectedVersion,
+        String failureReason) {
+        return transition(transferId, null, from, to, expectedVersion, failureReason);
+    }
+
+    // createdAt is the row's created_at as read back, e.g. NaiveTransfer.createdAt(); null falls back to the id
+    public Mono<Transition> transition(
+        UUID transferId,
+        Instant createdAt,
+        TransferState from,
+        TransferState to,
+        Long expectedVersion,
+        String failureReason) {
+        if (!from.canTransitionTo(to)) {
+            return Mono.error(new IllegalArgumentException("Invalid transition " + from + " -> " + to));
+        }
+        String where = createdAt != null ? BY_KEY : BY_ID;
+        var spec = key(this.databaseClient.sql(TRANSITION.formatted(where)), transferId, createdAt)
+            .bind("from", from.name())
+            .bind("to", to.name());
+        spec = expectedVersion != null ? spec.bind("version", expectedVersion) : spec.bindNull("version", Long.class);
+        spec = failureReason != null ? spec.bind("failureReason", failureReason) : spec.bindNull("failureReason", String.class);
+        return spec
+            .map((row, metadata) -> (Transition) new Applied(this.converter.read(NaiveTransfer.class, row, metadata)))
+            .one()
+            .switchIfEmpty(Mono.defer(() -> key(this.databaseClient.sql(FIND.formatted(where)), transferId, createdAt)
+                .map((row, metadata) -> (Transition) new LostRace(this.converter.read(NaiveTransfer.class, row, metadata), from))
+                .one()))
+            .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Transfer not found")))
+            .doOnNext(transition -> this.meterRegistry.counter(
+                "naive.transfer.transition",
+                "from", from.name(),
+                "to", to.name(),
+                "result", transition.applied() ? "applied" : "lost_race"
+            ).increment());
+    }
+
+    // The driver reads the timestamp column into an Instant as UTC, so UTC gives back the exact column value
+    private static DatabaseClient.GenericExecuteSpec key(
+        DatabaseClient.GenericExecuteSpec spec, UUID transferId, Instant createdAt) {
+        spec = spec.bind("id", transferId);
+        return createdAt != null ? spec.bind("createdAt", LocalDateTime.ofInstant(createdAt, ZoneOffset.UTC)) : spec;
+    }
+
+    public sealed interface Transition permits Applied, LostRace {
+
+        NaiveTransfer transfer();
+
+        boolean applied();
+    }
+
+    public record Applied(NaiveTransfer transfer) implements Transition {
+
+        @Override
+        public boolean applied() {
+            return true;
+        }
+    }
+
+    // Another worker moved the transfer first; transfer is the row as that worker left it
+    public record LostRace(NaiveTransfer transfer, TransferState expected) implements Transition {
+
+        @Override
+        public boolean applied() {
+            return false;
+        }
+    }
+}
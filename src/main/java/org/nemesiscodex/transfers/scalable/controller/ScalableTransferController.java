@@ -0,0 +1,62 @@
+package org.nemesiscodex.transfers.scalable.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.nemesiscodex.transfers.core.security.AuthenticatedUser;
+import org.nemesiscodex.transfers.core.service.IdempotencyService;
+import org.nemesiscodex.transfers.naive.dto.TransferRequest;
+import org.nemesiscodex.transfers.naive.entity.NaiveTransfer;
+import org.nemesiscodex.transfers.scalable.dto.TransferAcceptedResponse;
+import org.nemesiscodex.transfers.scalable.service.ScalableTransferService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/scalable/transfer")
+@RequiredArgsConstructor
+public class ScalableTransferController {
+
+    private final ScalableTransferService transferService;
+    private final IdempotencyService idempotencyService;
+
+    // 202: the transfer is PENDING until the asynchronous processor applies or fails it
+    @PostMapping
+    public Mono<ResponseEntity<TransferAcceptedResponse>> transfer(
+        @AuthenticationPrincipal AuthenticatedUser principal,
+        @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey,
+        @Valid @RequestBody TransferRequest request) {
+        return this.idempotencyService.execute(
+                principal.userId(),
+                idempotencyKey,
+                request.recipientId() + "|" + request.amount().stripTrailingZeros().toPlainString(),
+                TransferAcceptedResponse.class,
+                () -> this.transferService.submit(principal.userId(), request.recipientId(), request.amount())
+                    .map(this::toTransferAcceptedResponse))
+            .map(response -> ResponseEntity.status(HttpStatus.ACCEPTED).body(response))
+            .onErrorMap(IllegalArgumentException.class, ex ->
+                new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex)
+            )
+            .onErrorMap(IllegalStateException.class, ex ->
+                new ResponseStatusException(HttpStatus.CONFLICT, ex.getMessage(), ex)
+            );
+    }
+
+    private TransferAcceptedResponse toTransferAcceptedResponse(NaiveTransfer transfer) {
+        return new TransferAcceptedResponse(
+            transfer.id(),
+            transfer.userId(),
+            transfer.recipientId(),
+            transfer.amount(),
+            transfer.state(),
+            transfer.createdAt()
+        );
+    }
+}
@@ -0,0 +1,15 @@
+package org.nemesiscodex.transfers.scalable.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import org.nemesiscodex.transfers.naive.entity.TransferState;
+
+public record TransferAcceptedResponse(
+    UUID id,
+    UUID userId,
+    UUID recipientId,
+    BigDecimal amount,
+    TransferState state,
+    Instant createdAt) {
+}
@@ -0,0 +1,27 @@
+package org.nemesiscodex.transfers.scalable.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import org.nemesiscodex.transfers.naive.entity.NaiveTransfer;
+
+// Published through the outbox when a transfer is accepted; partitioned by senderId
+public record TransferCommand(
+    UUID transferId,
+    UUID senderId,
+    UUID recipientId,
+    BigDecimal amount,
+    Instant requestedAt) {
+
+    public static final String EVENT_TYPE = "TransferRequested";
+
+    public static TransferCommand from(NaiveTransfer transfer) {
+        return new TransferCommand(
+            transfer.id(),
+            transfer.userId(),
+            transfer.recipientId(),
+            transfer.amount(),
+            transfer.createdAt()
+        );
+    }
+}
@@ -0,0 +1,21 @@
+package org.nemesiscodex.transfers.scalable.entity;
+
+import java.time.Instant;
+import java.util.UUID;
+import lombok.Builder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Builder(toBuilder = true)
+@Table("outbox_event")
+public record OutboxEvent(
+    @Id
+    Long id,
+    UUID aggregateId,
+    String partitionKey,
+    String eventType,
+    String payload,
+    Instant createdAt,
+    Instant sentAt
+) {
+}
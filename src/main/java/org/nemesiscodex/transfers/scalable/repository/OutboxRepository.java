@@ -0,0 +1,77 @@
+package org.nemesiscodex.transfers.scalable.repository;
+
+import java.util.List;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.nemesiscodex.transfers.scalable.entity.OutboxEvent;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+@RequiredArgsConstructor
+public class OutboxRepository {
+
+    // Callers write their own row first (the transfer insert, the recovery transition), so the transaction
+    // holds an id before it draws outbox_event.id, as the relay's CommitWatermark requires
+    private static final String INSERT = """
+        insert into outbox_event (aggregate_id, partition_key, event_type, payload)
+        values (:aggregateId, :partitionKey, :eventType, :payload)
+        """;
+
+    // Held until the draining transaction ends, so only one relay instance publishes at a time
+    // and events leave in id order even with several replicas running
+    private static final String TRY_LOCK_RELAY = """
+        select pg_try_advisory_xact_lock(hashtext('outbox_event_relay')) as locked
+        """;
+
+    private static final String FIND_UNSENT = """
+        select * from outbox_event
+        where sent_at is null
+          and id <= :maxId
+        order by id
+        limit :limit
+        """;
+
+    private static final String MARK_SENT = """
+        update outbox_event
+        set sent_at = now()
+        where id = any(:ids)
+        """;
+
+    private final DatabaseClient databaseClient;
+    private final R2dbcConverter converter;
+
+    public Mono<Long> insert(UUID aggregateId, String partitionKey, String eventType, String payload) {
+        return this.databaseClient.sql(INSERT)
+            .bind("aggregateId", aggregateId)
+            .bind("partitionKey", partitionKey)
+            .bind("eventType", eventType)
+            .bind("payload", payload)
+            .fetch()
+            .rowsUpdated();
+    }
+
+    public Mono<Boolean> tryLockRelay() {
+        return this.databaseClient.sql(TRY_LOCK_RELAY)
+            .map((row, metadata) -> row.get("locked", Boolean.class))
+            .one();
+    }
+
+    public Flux<OutboxEvent> findUnsent(long maxId, int limit) {
+        return this.databaseClient.sql(FIND_UNSENT)
+            .bind("maxId", maxId)
+            .bind("limit", limit)
+            .map((row, metadata) -> this.converter.read(OutboxEvent.class, row, metadata))
+            .all();
+    }
+
+    public Mono<Long> markSent(List<Long> ids) {
+        return this.databaseClient.sql(MARK_SENT)
+            .bind("ids", ids.toArray(Long[]::new))
+            .fetch()
+            .rowsUpdated();
+    }
+}
@@ -0,0 +1,42 @@
+package org.nemesiscodex.transfers.scalable.service;
+
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import java.time.Duration;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nemesiscodex.transfers.core.util.PostgresConnections;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+// LISTENs on the outbox_event channel over one long-lived connection opened beside the pool, so it
+// does not hold a pooled connection for good, reconnecting with backoff when it drops. Notifications carry no payload, they only wake the relay.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "scalable.outbox.relay", name = "enabled", havingValue = "true")
+public class OutboxNotificationListener {
+
+    private static final String CHANNEL = "outbox_event";
+
+    private final ConnectionFactory connectionFactory;
+
+    public Flux<String> notifications() {
+        return Flux.usingWhen(
+                PostgresConnections.unpooled(this.connectionFactory).create(),
+                connection -> {
+                    PostgresqlConnection postgres = PostgresConnections.unwrap(connection);
+                    return postgres.createStatement("listen " + CHANNEL)
+                        .execute()
+                        .flatMap(result -> result.getRowsUpdated())
+                        .thenMany(postgres.getNotifications())
+                        .map(notification -> notification.getName());
+                },
+                Connection::close)
+            .doOnError(ex -> log.warn("Lost the {} listener connection, reconnecting", CHANNEL, ex))
+            .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)));
+    }
+}
@@ -0,0 +1,150 @@
+package org.nemesiscodex.transfers.scalable.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.nemesiscodex.transfers.core.util.CommitWatermark;
+import org.nemesiscodex.transfers.core.util.DbTransactionUtil;
+import org.nemesiscodex.transfers.scalable.entity.OutboxEvent;
+import org.nemesiscodex.transfers.scalable.repository.OutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// Drains outbox_event to the transferEvents-out-0 binding. Each batch is read, published in id order
+// and marked sent inside one transaction holding the relay advisory lock, so a crash between publish
+// and commit re-sends the batch (at-least-once). Ids are drawn at insert, not at commit, so a pass only
+// reads up to the id commit watermark: an event still uncommitted under a lower id is never overtaken.
+// LISTEN/NOTIFY wakes the relay on every insert; the slow poll only covers missed notifications.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "scalable.outbox.relay", name = "enabled", havingValue = "true")
+public class OutboxRelay {
+
+    public static final String BINDING = "transferEvents-out-0";
+    public static final String PARTITION_KEY_HEADER = "partitionKey";
+    public static final String EVENT_TYPE_HEADER = "eventType";
+    public static final String EVENT_ID_HEADER = "eventId";
+
+    private final OutboxRepository outboxRepository;
+    private final DbTransactionUtil db;
+    private final StreamBridge streamBridge;
+    private final OutboxNotificationListener notificationListener;
+    private final CommitWatermark watermark;
+    private final int batchSize;
+    private final Duration fallbackPoll;
+    private final Counter relayed;
+    private final DistributionSummary batchSizes;
+    private Disposable subscription;
+
+    public OutboxRelay(
+        OutboxRepository outboxRepository,
+        DbTransactionUtil db,
+        StreamBridge streamBridge,
+        OutboxNotificationListener notificationListener,
+        DatabaseClient databaseClient,
+        MeterRegistry meterRegistry,
+        @Value("${scalable.outbox.relay.batch-size:500}") int batchSize,
+        @Value("${scalable.outbox.relay.fallback-poll:5s}") Duration fallbackPoll) {
+        this.outboxRepository = outboxRepository;
+        this.db = db;
+        this.streamBridge = streamBridge;
+        this.notificationListener = notificationListener;
+        this.watermark = new CommitWatermark(databaseClient, "outbox_event_id_seq");
+        this.batchSize = batchSize;
+        this.fallbackPoll = fallbackPoll;
+        this.relayed = Counter.builder("scalable.outbox.relayed")
+            .description("Outbox events published to the broker")
+            .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("scalable.outbox.relay.batch.size")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        // onBackpressureLatest coalesces wake-ups that arrive while a drain is running into one more pass
+        this.subscription = Flux.merge(
+                this.notificationListener.notifications(),
+                Flux.interval(Duration.ZERO, this.fallbackPoll))
+            .onBackpressureLatest()
+            .concatMap(wakeUp -> drain()
+                .onErrorResume(ex -> {
+                    log.warn("Outbox relay pass failed, retrying on the next wake-up", ex);
+                    return Mono.empty();
+                }), 1)
+            .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (this.subscription != null) {
+            this.subscription.dispose();
+        }
+    }
+
+    // Drains up to the watermark until a batch comes back short; returns the number of events published
+    public Mono<Long> drain() {
+        return this.watermark.next()
+            .flatMap(maxId -> maxId < 0
+                ? Mono.just(0L)
+                : drainBatch(maxId)
+                    .repeat()
+                    .takeUntil(published -> published < this.batchSize)
+                    .reduce(0L, Long::sum));
+    }
+
+    private Mono<Long> drainBatch(long maxId) {
+        return this.db.runInTransaction(() -> this.outboxRepository.tryLockRelay()
+            // Another instance holds the lock and is already draining
+            .filter(Boolean::booleanValue)
+            .flatMap(locked -> this.outboxRepository.findUnsent(maxId, this.batchSize).collectList())
+            .filter(batch -> !batch.isEmpty())
+            .flatMap(batch -> publish(batch)
+                .then(this.outboxRepository.markSent(batch.stream().map(OutboxEvent::id).toList()))
+                .thenReturn((long) batch.size()))
+            .defaultIfEmpty(0L));
+    }
+
+    // The producer runs in sync mode (application.yaml), so send returns once the broker acknowledged
+    // the event and throws otherwise; a batch is only marked sent after all of it was acknowledged.
+    // That blocks, so it runs off the event loop.
+    private Mono<Void> publish(List<OutboxEvent> batch) {
+        return Mono.fromRunnable(() -> {
+                for (OutboxEvent event : batch) {
+                    if (!this.streamBridge.send(BINDING, toMessage(event))) {
+                        throw new IllegalStateException("Failed to publish outbox event " + event.id());
+                    }
+                }
+                this.relayed.increment(batch.size());
+                this.batchSizes.record(batch.size());
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .then();
+    }
+
+    // The payload is already JSON, sending bytes keeps the binder from serializing it a second time
+    private static Message<byte[]> toMessage(OutboxEvent event) {
+        return MessageBuilder.withPayload(event.payload().getBytes(StandardCharsets.UTF_8))
+            .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON_VALUE)
+            .setHeader(PARTITION_KEY_HEADER, event.partitionKey())
+            .setHeader(EVENT_TYPE_HEADER, event.eventType())
+            .setHeader(EVENT_ID_HEADER, event.id())
+            .build();
+    }
+}
@@ -0,0 +1,54 @@
+package org.nemesiscodex.transfers.scalable.service;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.nemesiscodex.transfers.core.util.DbTransactionUtil;
+import org.nemesiscodex.transfers.naive.entity.NaiveTransfer;
+import org.nemesiscodex.transfers.scalable.dto.TransferCommand;
+import org.nemesiscodex.transfers.scalable.repository.OutboxRepository;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import tools.jackson.databind.json.JsonMapper;
+
+// Accepts a transfer without applying it: the PENDING transfer row and its outbox event commit together,
+// so an accepted transfer is always published and nothing is published for a rolled back one.
+@Service
+@RequiredArgsConstructor
+public class ScalableTransferService {
+
+    private static final String INSERT_PENDING_TRANSFER = """
+        insert into naive_transfer (user_id, recipient_id, amount, state)
+        values (:senderId, :recipientId, :amount, 'PENDING')
+        returning *
+        """;
+
+    private final DatabaseClient databaseClient;
+    private final R2dbcConverter converter;
+    private final DbTransactionUtil db;
+    private final OutboxRepository outboxRepository;
+    private final JsonMapper jsonMapper;
+
+    public Mono<NaiveTransfer> submit(UUID senderId, UUID recipientId, BigDecimal amount) {
+        if (senderId.equals(recipientId)) {
+            return Mono.error(new IllegalArgumentException("Cannot transfer to yourself"));
+        }
+        if (amount.signum() <= 0) {
+            return Mono.error(new IllegalArgumentException("Amount must be positive"));
+        }
+        return this.db.runInTransaction(() -> this.databaseClient.sql(INSERT_PENDING_TRANSFER)
+            .bind("senderId", senderId)
+            .bind("recipientId", recipientId)
+            .bind("amount", amount)
+            .map((row, metadata) -> this.converter.read(NaiveTransfer.class, row, metadata))
+            .one()
+            .flatMap(transfer -> this.outboxRepository.insert(
+                    transfer.id(),
+                    transfer.userId().toString(),
+                    TransferCommand.EVENT_TYPE,
+                    this.jsonMapper.writeValueAsString(TransferCommand.from(transfer)))
+                .thenReturn(transfer)));
+    }
+}
@@ -0,0 +1,344 @@
+package org.nemesiscodex.transfers.scalable.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.nemesiscodex.transfers.core.client.BankApiClient;
+import org.nemesiscodex.transfers.core.client.BankRejectedException;
+import org.nemesiscodex.transfers.core.dto.BankTransferRequest;
+import org.nemesiscodex.transfers.core.util.DbTransactionUtil;
+import org.nemesiscodex.transfers.naive.entity.NaiveTransfer;
+import org.nemesiscodex.transfers.naive.entity.TransferState;
+import org.nemesiscodex.transfers.naive.service.BalanceProjection;
+import org.nemesiscodex.transfers.naive.service.LedgerChain;
+import org.nemesiscodex.transfers.naive.service.TransferStateMachine;
+import org.nemesiscodex.transfers.scalable.dto.TransferCommand;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+// Applies TransferCommands consumed in batches. Commands of one sender arrive on one partition in order
+// and are applied one after another; different senders in the same batch run in parallel, up to
+// parallelism. Every command moves its transfer PENDING -> PROCESSING -> COMPLETED/FAILED through
+// the state machine, so redelivered commands lose the PENDING -> PROCESSING race and are skipped.
+// Commands that keep failing are dead-lettered and their transfer moves to FAILED.
+// With bank.api.enabled the transfer moves PROCESSING -> SUBMITTING -> COMPLETED/FAILED instead, and
+// the bank is called between two short transactions, never while the users' rows are locked.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "scalable.processor", name = "enabled", havingValue = "true")
+public class TransferCommandProcessor {
+
+    public static final String DEAD_LETTER_BINDING = "transferDeadLetters-out-0";
+
+    // naive_transfer.failure_reason is a varchar(255)
+    private static final int MAX_FAILURE_REASON = 255;
+
+    private static final String LOCK_USERS = """
+        select id from users
+        where id = :senderId or id = :recipientId
+        order by id
+        for update
+        """;
+
+    // Same ledger and balance chain as the synchronous path, for a transfer row that already exists.
+    // Nothing is written when the sender cannot cover the amount. Statements on one transfer carry its
+    // created_at next to the id so only the partition holding it is touched.
+    private static final String APPLY_LEDGER = LedgerChain.statement("""
+        transfer as (
+            select naive_transfer.*, 1 as position from naive_transfer
+            where id = :transferId
+              and created_at = :createdAt
+              and state = :state
+              and amount <= coalesce(
+                  (select amount from naive_balance
+                   where naive_balance.user_id = naive_transfer.user_id and close_ledger_id is null),
+                  0)
+        )
+        """, """
+        select count(*) as entries from opened
+        """);
+
+    private static final String COVERS = """
+        select coalesce(
+            (select amount from naive_balance where user_id = :senderId and close_ledger_id is null),
+            0) >= :amount as covers
+        """;
+
+    private static final String SET_BANK_REFERENCE = """
+        update naive_transfer
+        set bank_reference = :bankReference
+        where id = :transferId
+          and created_at = :createdAt
+          and state = 'SUBMITTING'
+          and version = :version
+        """;
+
+    private final DatabaseClient databaseClient;
+    private final DbTransactionUtil db;
+    private final TransferStateMachine stateMachine;
+    private final StreamBridge streamBridge;
+    private final MeterRegistry meterRegistry;
+    private final BankApiClient bankApiClient;
+    private final BalanceProjection projection;
+    private final int parallelism;
+    private final Retry retry;
+
+    public TransferCommandProcessor(
+        DatabaseClient databaseClient,
+        DbTransactionUtil db,
+        TransferStateMachine stateMachine,
+        StreamBridge streamBridge,
+        MeterRegistry meterRegistry,
+        ObjectProvider<BankApiClient> bankApiClient,
+        ObjectProvider<BalanceProjection> projection,
+        @Value("${scalable.processor.parallelism:16}") int parallelism,
+        @Value("${scalable.processor.max-retries:3}") int maxRetries,
+        @Value("${scalable.processor.retry-backoff:100ms}") Duration retryBackoff) {
+        this.databaseClient = databaseClient;
+        this.db = db;
+        this.stateMachine = stateMachine;
+        this.streamBridge = streamBridge;
+        this.meterRegistry = meterRegistry;
+        this.bankApiClient = bankApiClient.getIfAvailable();
+        this.projection = projection.getIfAvailable();
+        this.parallelism = parallelism;
+        this.retry = Retry.backoff(maxRetries, retryBackoff)
+            .filter(ex -> !(ex instanceof OptimisticLockingFailureException) && !(ex instanceof BankRejectedException));
+    }
+
+    // groupBy keeps per-sender order; flatMap runs the groups concurrently
+    public Mono<Void> process(List<TransferCommand> commands) {
+        return Flux.fromIterable(commands)
+            .groupBy(TransferCommand::senderId)
+            .flatMap(bySender -> bySender.concatMap(this::process), this.parallelism)
+            .then();
+    }
+
+    private Mono<Void> process(TransferCommand command) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return this.stateMachine.transition(
+                    command.transferId(), command.requestedAt(), TransferState.PENDING, TransferState.PROCESSING, null, null)
+                .retryWhen(this.retry)
+                // Only the claim failed, so the transfer is still PENDING
+                .onErrorResume(ex -> deadLetter(command, ex, null).then(Mono.empty()))
+                .flatMap(transition -> transition.applied()
+                    ? settle(transition.transfer())
+                        .onErrorResume(OptimisticLockingFailureException.class, ex -> Mono.just("lost_race"))
+                        .onErrorResume(ex -> deadLetter(command, ex, transition.transfer()).thenReturn("dead_letter"))
+                    : Mono.just("duplicate"))
+                .defaultIfEmpty("dead_letter")
+                .doOnNext(outcome -> Timer.builder("scalable.transfer.process")
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(this.meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                .then();
+        });
+    }
+
+    private Mono<String> settle(NaiveTransfer transfer) {
+        return this.bankApiClient == null
+            ? settleLocally(transfer).retryWhen(this.retry)
+            : settleWithBank(transfer);
+    }
+
+    // The ledger write and PROCESSING -> COMPLETED commit together; if recovery reclaimed the transfer
+    // meanwhile the transition loses on version and the ledger write is rolled back with it
+    private Mono<String> settleLocally(NaiveTransfer transfer) {
+        return this.db.runInTransaction(() -> lockUsers(transfer)
+                .flatMap(locked -> {
+                    String missing = missingParty(transfer, locked);
+                    return missing != null
+                        ? Mono.just(missing)
+                        : applyLedger(transfer, TransferState.PROCESSING)
+                            .flatMap(entries -> entries == 0
+                                ? Mono.just("Insufficient funds")
+                                : complete(transfer, TransferState.PROCESSING)
+                                    .then(refreshProjection(transfer))
+                                    .thenReturn(""));
+                }))
+            .flatMap(failureReason -> failureReason.isEmpty()
+                ? Mono.just("completed")
+                : this.stateMachine.transition(
+                        transfer.id(), transfer.createdAt(), TransferState.PROCESSING, TransferState.FAILED,
+                        transfer.version(), failureReason)
+                    .map(transition -> transition.applied() ? "failed" : "lost_race"));
+    }
+
+    // No transaction stays open across the bank call. The first one locks the users, checks the sender
+    // covers the amount and moves the transfer to SUBMITTING, or to FAILED when it cannot go ahead.
+    private Mono<String> settleWithBank(NaiveTransfer transfer) {
+        return this.db.runInTransaction(() -> lockUsers(transfer)
+                .flatMap(locked -> {
+                    String missing = missingParty(transfer, locked);
+                    return missing != null
+                        ? Mono.just(missing)
+                        : covers(transfer).map(covers -> covers ? "" : "Insufficient funds");
+                })
+                .flatMap(failureReason -> this.stateMachine.transition(
+                    transfer.id(),
+                    transfer.createdAt(),
+                    TransferState.PROCESSING,
+                    failureReason.isEmpty() ? TransferState.SUBMITTING : TransferState.FAILED,
+                    transfer.version(),
+                    failureReason.isEmpty() ? null : failureReason)))
+            .retryWhen(this.retry)
+            .flatMap(transition -> !transition.applied()
+                ? Mono.just("lost_race")
+                : transition.transfer().state() == TransferState.FAILED
+                    ? Mono.just("failed")
+                    : submitToBank(transition.transfer()));
+    }
+
+    // The transfer id is the bank's idempotency key, so a re-driven SUBMITTING transfer is not paid twice.
+    // A rejection fails the transfer for good. Shed calls (429) and bank outages go through the retries and
+    // the dead-letter path, which leaves the transfer SUBMITTING for the recovery job to re-drive, since
+    // the bank may have taken it.
+    private Mono<String> submitToBank(NaiveTransfer submitting) {
+        return this.bankApiClient.submitTransfer(new BankTransferRequest(
+                submitting.id(), submitting.userId(), submitting.recipientId(), submitting.amount()))
+            .retryWhen(this.retry)
+            .flatMap(response -> recordSubmitted(submitting, response.reference()).retryWhen(this.retry))
+            .onErrorResume(BankRejectedException.class, ex -> this.stateMachine.transition(
+                    submitting.id(), submitting.createdAt(), TransferState.SUBMITTING, TransferState.FAILED,
+                    submitting.version(), failureReason(ex.getMessage()))
+                .map(transition -> transition.applied() ? "failed" : "lost_race"));
+    }
+
+    // The second transaction writes the ledger under the reference the bank answered with. The sender can
+    // only be short by now if the synchronous path debited them meanwhile; the bank has paid by then, so
+    // the transfer fails with the reference in its reason and is logged for reconciliation.
+    private Mono<String> recordSubmitted(NaiveTransfer submitting, String bankReference) {
+        return this.db.runInTransaction(() -> lockUsers(submitting)
+            .then(this.databaseClient.sql(SET_BANK_REFERENCE)
+                .bind("bankReference", bankReference)
+                .bind("transferId", submitting.id())
+                .bind("createdAt", createdAt(submitting))
+                .bind("version", submitting.version())
+                .fetch()
+                .rowsUpdated())
+            .flatMap(updated -> updated == 0
+                ? Mono.error(new OptimisticLockingFailureException(
+                    "Transfer " + submitting.id() + " was reclaimed while the bank was called"))
+                : applyLedger(submitting, TransferState.SUBMITTING))
+            .flatMap(entries -> {
+                if (entries > 0) {
+                    return complete(submitting, TransferState.SUBMITTING)
+                        .then(refreshProjection(submitting))
+                        .thenReturn("completed");
+                }
+                log.error("Transfer {} was accepted by the bank as {} but the sender no longer covers it",
+                    submitting.id(), bankReference);
+                return this.stateMachine.transition(
+                        submitting.id(), submitting.createdAt(), TransferState.SUBMITTING, TransferState.FAILED,
+                        submitting.version(), failureReason("Insufficient funds after bank accepted " + bankReference))
+                    .map(transition -> transition.applied() ? "reconcile" : "lost_race");
+            }));
+    }
+
+    private Mono<List<UUID>> lockUsers(NaiveTransfer transfer) {
+        return this.databaseClient.sql(LOCK_USERS)
+            .bind("senderId", transfer.userId())
+            .bind("recipientId", transfer.recipientId())
+            .map((row, metadata) -> row.get("id", UUID.class))
+            .all()
+            .collectList();
+    }
+
+    private static String missingParty(NaiveTransfer transfer, List<UUID> locked) {
+        if (!locked.contains(transfer.userId())) {
+            return "Sender not found";
+        }
+        if (!locked.contains(transfer.recipientId())) {
+            return "Recipient not found";
+        }
+        return null;
+    }
+
+    private Mono<Boolean> covers(NaiveTransfer transfer) {
+        return this.databaseClient.sql(COVERS)
+            .bind("senderId", transfer.userId())
+            .bind("amount", transfer.amount())
+            .map((row, metadata) -> row.get("covers", Boolean.class))
+            .one();
+    }
+
+    private Mono<Long> applyLedger(NaiveTransfer transfer, TransferState state) {
+        return this.databaseClient.sql(APPLY_LEDGER)
+            .bind("transferId", transfer.id())
+            .bind("createdAt", createdAt(transfer))
+            .bind("state", state.name())
+            .map((row, metadata) -> row.get("entries", Long.class))
+            .one();
+    }
+
+    private Mono<Void> complete(NaiveTransfer transfer, TransferState from) {
+        return this.stateMachine.transition(
+                transfer.id(), transfer.createdAt(), from, TransferState.COMPLETED, transfer.version(), null)
+            .flatMap(transition -> transition.applied()
+                ? Mono.<Void>empty()
+                : Mono.error(new OptimisticLockingFailureException(
+                    "Transfer " + transfer.id() + " moved to " + transition.transfer().state() + " while processing")));
+    }
+
+    private Mono<Void> refreshProjection(NaiveTransfer transfer) {
+        return this.projection != null
+            ? this.projection.refreshAfterCommit(List.of(transfer.userId(), transfer.recipientId()))
+            : Mono.empty();
+    }
+
+    // Commands that still fail after the retries are parked on the dead-letter binding and their transfer
+    // fails for good instead of sitting in PENDING, or coming back through recovery only to fail the same
+    // way. A transfer this worker claimed is failed at the version it claimed, otherwise it never left
+    // PENDING. If even that write fails, a claimed transfer is still reclaimed by the recovery job. So is a
+    // transfer that already reached SUBMITTING: the PROCESSING version no longer matches and it stays put.
+    private Mono<Void> deadLetter(TransferCommand command, Throwable error, NaiveTransfer claimed) {
+        log.error("Dead-lettering transfer command {}", command.transferId(), error);
+        String failureReason = failureReason("Dead-lettered: " + error.getMessage());
+        Mono<TransferStateMachine.Transition> fail = claimed != null
+            ? this.stateMachine.transition(
+                claimed.id(), claimed.createdAt(), TransferState.PROCESSING, TransferState.FAILED, claimed.version(),
+                failureReason)
+            : this.stateMachine.transition(
+                command.transferId(), command.requestedAt(), TransferState.PENDING, TransferState.FAILED, null,
+                failureReason);
+        return fail
+            .onErrorResume(ex -> {
+                log.warn("Failed to move dead-lettered transfer {} to FAILED", command.transferId(), ex);
+                return Mono.empty();
+            })
+            .then(Mono.fromRunnable(() -> this.streamBridge.send(DEAD_LETTER_BINDING, MessageBuilder.withPayload(command)
+                    .setHeader(OutboxRelay.PARTITION_KEY_HEADER, command.senderId().toString())
+                    .setHeader("error", String.valueOf(error.getMessage()))
+                    .build()))
+                // The dead-letter producer is sync too, so the send waits for the broker off the event loop
+                .subscribeOn(Schedulers.boundedElastic()))
+            .then();
+    }
+
+    // The claimed row was read back by the state machine, so created_at is always there; see TransferStateMachine
+    private static LocalDateTime createdAt(NaiveTransfer transfer) {
+        return LocalDateTime.ofInstant(transfer.createdAt(), ZoneOffset.UTC);
+    }
+
+    private static String failureReason(String reason) {
+        return reason.length() > MAX_FAILURE_REASON ? reason.substring(0, MAX_FAILURE_REASON) : reason;
+    }
+}
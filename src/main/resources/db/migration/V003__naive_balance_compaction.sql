@@ -0,0 +1,21 @@
+-- closed balance rows are only read by the compaction job, oldest first
+create index idx_naive_balance_closed_updated_at on naive_balance(updated_at)
+    where close_ledger_id is not null;
+
+-- optional destination for compacted rows
+create table naive_balance_archive (like naive_balance);
+
+-- naive_balance_checkpoint: a user's balance including every ledger row of the user with seq <= ledger_seq;
+-- as_of is the latest created_at among them. It advances on naive_ledger.seq, not created_at: created_at is
+-- a transaction's start time, so a row committed by a long transaction can be older than the last as_of.
+-- The ledger indexes the job reads by seq are built in V011, once naive_ledger.seq exists (V010).
+create table naive_balance_checkpoint(
+    id uuid primary key not null default uuid_generate_v4(),
+    user_id uuid not null,
+    amount decimal(18, 2) not null,
+    as_of timestamp not null,
+    ledger_seq bigint not null,
+    created_at timestamp not null default now()
+);
+
+create unique index idx_naive_balance_checkpoint_user_id_as_of on naive_balance_checkpoint(user_id, as_of);
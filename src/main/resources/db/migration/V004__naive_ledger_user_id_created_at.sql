@@ -0,0 +1,6 @@
+-- point-in-time balances sum a user's ledger rows in a created_at range, and ledger history walks the
+-- same index backwards from a (created_at, id) cursor; the leading user_id column also covers every
+-- lookup idx_naive_ledger_user_id served
+create index idx_naive_ledger_user_id_created_at_id on naive_ledger(user_id, created_at, id);
+
+drop index idx_naive_ledger_user_id;
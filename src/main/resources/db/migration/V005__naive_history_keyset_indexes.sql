@@ -0,0 +1,7 @@
+-- keyset pagination walks these indexes backwards from a (created_at, id) cursor;
+-- each one also covers the lookups of the single-column index it replaces
+create index idx_naive_transfer_user_id_created_at_id on naive_transfer(user_id, created_at, id);
+create index idx_naive_transfer_recipient_id_created_at_id on naive_transfer(recipient_id, created_at, id);
+
+drop index idx_naive_transfer_user_id;
+drop index idx_naive_transfer_recipient_id;
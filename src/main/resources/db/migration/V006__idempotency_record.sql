@@ -0,0 +1,20 @@
+-- idempotency_record: durable copy of the Idempotency-Key reservations kept in Valkey
+create table idempotency_record(
+    user_id uuid not null,
+    idempotency_key varchar(255) not null,
+    fingerprint varchar(64) not null,
+    status varchar(16) not null,
+    -- identifies the attempt holding the reservation, only that attempt may complete or release it
+    token uuid not null,
+    response text null,
+    expires_at timestamp not null,
+    created_at timestamp not null default now(),
+    updated_at timestamp not null default now(),
+    primary key (user_id, idempotency_key)
+);
+
+create index idx_idempotency_record_expires_at on idempotency_record(expires_at);
+
+create trigger update_idempotency_record_timestamp
+    before update on idempotency_record
+    for each row execute function update_timestamp();
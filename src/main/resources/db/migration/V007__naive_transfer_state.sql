@@ -0,0 +1,14 @@
+-- naive_transfer state machine: PENDING -> PROCESSING -> COMPLETED / FAILED.
+-- SUBMITTING sits between PROCESSING and COMPLETED while the bank is called, outside any transaction.
+-- Transfers applied synchronously are already settled, so existing and new rows default to COMPLETED.
+alter table naive_transfer
+    add column state varchar(16) not null default 'COMPLETED',
+    add column version bigint not null default 0,
+    add column state_changed_at timestamp not null default now(),
+    add column failure_reason varchar(255) null,
+    add constraint chk_naive_transfer_state
+        check (state in ('PENDING', 'PROCESSING', 'SUBMITTING', 'COMPLETED', 'FAILED'));
+
+-- only in-flight transfers are indexed, so sweeps stay cheap however many settled transfers pile up
+create index idx_naive_transfer_in_flight on naive_transfer(state, state_changed_at)
+    where state in ('PENDING', 'PROCESSING', 'SUBMITTING');
@@ -0,0 +1,3 @@
+-- number of times the recovery sweeper reclaimed a transfer stuck in PROCESSING
+alter table naive_transfer
+    add column recovery_attempts int not null default 0;
@@ -0,0 +1,26 @@
+-- outbox_event: events written in the same transaction as the state they describe,
+-- relayed to the broker in id order by OutboxRelay
+create table outbox_event(
+    id bigserial primary key,
+    aggregate_id uuid not null,
+    partition_key varchar(64) not null,
+    event_type varchar(64) not null,
+    payload text not null,
+    created_at timestamp not null default now(),
+    sent_at timestamp null
+);
+
+-- the relay only ever reads the unsent tail
+create index idx_outbox_event_unsent on outbox_event(id) where sent_at is null;
+
+-- wake the relay on commit instead of polling; one notification per statement is enough
+create function notify_outbox_event() returns trigger as $$
+begin
+    perform pg_notify('outbox_event', '');
+    return null;
+end;
+$$ language plpgsql;
+
+create trigger notify_outbox_event_insert
+    after insert on outbox_event
+    for each statement execute function notify_outbox_event();
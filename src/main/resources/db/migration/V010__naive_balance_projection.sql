@@ -0,0 +1,22 @@
+-- naive_ledger.seq: append order of the ledger. Every writer holds the users' row locks while it appends,
+-- so for one user a later commit always carries a higher seq.
+alter table naive_ledger
+    add column seq bigint generated always as identity;
+
+-- seq of the ledger entry that opened the row; 0 for opening balances without a ledger entry.
+-- The archive keeps the same column layout, compaction copies rows with select *.
+alter table naive_balance
+    add column open_ledger_seq bigint not null default 0;
+alter table naive_balance_archive
+    add column open_ledger_seq bigint not null default 0;
+
+update naive_balance
+set open_ledger_seq = naive_ledger.seq
+from naive_ledger
+where naive_ledger.id = naive_balance.open_ledger_id
+  and naive_balance.close_ledger_id is null;
+
+-- the Valkey balance projection polls open balances by seq; nothing notifies, since a notifying
+-- transaction takes the cluster-wide notify queue lock at commit and would serialize every transfer
+create index idx_naive_balance_open_ledger_seq on naive_balance(open_ledger_seq)
+    where close_ledger_id is null;
@@ -0,0 +1,16 @@
+-- ATTACH PARTITION only adopts a unique index under the parent's primary key when a constraint uses it.
+-- The created_at bound is the upper bound V011_3 attaches the existing tables with; as NOT VALID it is not
+-- checked against existing rows, only against rows written from now on, so both are catalog changes.
+alter table naive_transfer
+    add constraint naive_transfer_id_created_at_key unique using index naive_transfer_id_created_at_key;
+alter table naive_ledger
+    add constraint naive_ledger_id_created_at_key unique using index naive_ledger_id_created_at_key;
+
+do $$
+declare
+    legacy_to timestamp := date_trunc('month', localtimestamp) + interval '1 month';
+begin
+    execute format('alter table naive_transfer add constraint naive_transfer_legacy_bound check (created_at < %L) not valid', legacy_to);
+    execute format('alter table naive_ledger add constraint naive_ledger_legacy_bound check (created_at < %L) not valid', legacy_to);
+end;
+$$;
@@ -0,0 +1,5 @@
+-- Scans the existing rows against the bounds of V011_1 under SHARE UPDATE EXCLUSIVE, which lets reads and
+-- writes go on. With a valid bound in place the attach in V011_3 proves the partition constraint from it
+-- and skips its own scan.
+alter table naive_transfer validate constraint naive_transfer_legacy_bound;
+alter table naive_ledger validate constraint naive_ledger_legacy_bound;
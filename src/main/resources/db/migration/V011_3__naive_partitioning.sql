@@ -0,0 +1,133 @@
+-- naive_transfer and naive_ledger become range partitioned on created_at, so inserts hit a small current
+-- partition and old ranges can be detached instead of vacuumed. The existing tables are attached unchanged
+-- as the first partition, covering everything before the bound V011_1 gave them, so no rows are copied
+-- and, with that bound validated by V011_2, none are scanned either. Everything here is a catalog change.
+-- Rows past the last range partition land in a default partition instead of failing the insert.
+
+-- partitions detached by NaivePartitionManager are moved here when archiving is on
+create schema naive_archive;
+
+-- range bounds of each partition of parent; lower_bound is null for a partition starting at minvalue,
+-- both are null for the default partition
+create function naive_partition_bounds(parent regclass)
+returns table (partition_name regclass, lower_bound timestamp, upper_bound timestamp) as $$
+    select child.oid::regclass,
+           substring(pg_get_expr(child.relpartbound, child.oid) from 'FROM \(''([^'']*)''\)')::timestamp,
+           substring(pg_get_expr(child.relpartbound, child.oid) from 'TO \(''([^'']*)''\)')::timestamp
+    from pg_inherits
+    join pg_class child on child.oid = pg_inherits.inhrelid
+    where pg_inherits.inhparent = parent
+$$ language sql stable;
+
+-- appends partitions one unit (day, week or month) wide after the last one until ahead past now,
+-- returning how many were created. Each is named after its first day, e.g. naive_ledger_p20261101.
+create function naive_create_partitions(parent regclass, unit text, ahead interval) returns int as $$
+declare
+    parent_name text := (select relname from pg_class where oid = parent);
+    next_from timestamp;
+    next_to timestamp;
+    created int := 0;
+begin
+    -- several instances run the manager, only one may extend a table at a time
+    perform pg_advisory_xact_lock(hashtext('naive_create_partitions:' || parent_name));
+    select max(upper_bound) into next_from from naive_partition_bounds(parent);
+    next_from := coalesce(next_from, date_trunc(unit, localtimestamp));
+    while next_from < localtimestamp + ahead loop
+        -- realigns to unit boundaries when the unit was changed since the last partition
+        next_to := date_trunc(unit, next_from) + ('1 ' || unit)::interval;
+        execute format('create table %I partition of %s for values from (%L) to (%L)',
+            parent_name || '_p' || to_char(next_from, 'YYYYMMDD'), parent, next_from, next_to);
+        created := created + 1;
+        next_from := next_to;
+    end loop;
+    return created;
+end;
+$$ language plpgsql;
+
+-- naive_transfer: the legacy table keeps its indexes under new names, the parent's identical indexes
+-- adopt them on attach, the (id, created_at) key of V011 included
+alter table naive_transfer rename to naive_transfer_legacy;
+alter index naive_transfer_pkey rename to naive_transfer_legacy_pkey;
+alter index idx_naive_transfer_user_id_created_at_id rename to idx_naive_transfer_legacy_user_id_created_at_id;
+alter index idx_naive_transfer_recipient_id_created_at_id rename to idx_naive_transfer_legacy_recipient_id_created_at_id;
+alter index idx_naive_transfer_in_flight rename to idx_naive_transfer_legacy_in_flight;
+alter table naive_transfer_legacy
+    rename constraint naive_transfer_id_created_at_key to naive_transfer_legacy_id_created_at_key;
+-- recreated on the parent below, which clones it into every partition
+drop trigger update_naive_transfer_timestamp on naive_transfer_legacy;
+
+create table naive_transfer (like naive_transfer_legacy including defaults including constraints)
+    partition by range (created_at);
+-- copied along with the other checks, it only bounds the legacy partition
+alter table naive_transfer drop constraint if exists naive_transfer_legacy_bound;
+
+alter table naive_transfer add primary key (id, created_at);
+create index idx_naive_transfer_user_id_created_at_id on naive_transfer(user_id, created_at, id);
+create index idx_naive_transfer_recipient_id_created_at_id on naive_transfer(recipient_id, created_at, id);
+create index idx_naive_transfer_in_flight on naive_transfer(state, state_changed_at)
+    where state in ('PENDING', 'PROCESSING', 'SUBMITTING');
+
+-- naive_ledger: partitioned tables cannot take an attached table's identity column, so seq moves to a
+-- plain sequence continuing where the identity stopped; its next value is read instead of max(seq),
+-- which would scan the table
+alter table naive_ledger rename to naive_ledger_legacy;
+alter index naive_ledger_pkey rename to naive_ledger_legacy_pkey;
+alter index idx_naive_ledger_transfer_id rename to idx_naive_ledger_legacy_transfer_id;
+alter index idx_naive_ledger_user_id_created_at_id rename to idx_naive_ledger_legacy_user_id_created_at_id;
+alter index idx_naive_ledger_seq rename to idx_naive_ledger_legacy_seq;
+alter index idx_naive_ledger_user_id_seq rename to idx_naive_ledger_legacy_user_id_seq;
+alter table naive_ledger_legacy
+    rename constraint naive_ledger_id_created_at_key to naive_ledger_legacy_id_created_at_key;
+drop trigger update_naive_ledger_timestamp on naive_ledger_legacy;
+
+create sequence naive_ledger_seq_seq as bigint;
+select setval('naive_ledger_seq_seq', nextval(pg_get_serial_sequence('naive_ledger_legacy', 'seq')), false);
+alter table naive_ledger_legacy alter column seq drop identity;
+alter table naive_ledger_legacy alter column seq set default nextval('naive_ledger_seq_seq');
+
+create table naive_ledger (like naive_ledger_legacy including defaults including constraints)
+    partition by range (created_at);
+alter table naive_ledger drop constraint if exists naive_ledger_legacy_bound;
+
+alter sequence naive_ledger_seq_seq owned by naive_ledger.seq;
+alter table naive_ledger add primary key (id, created_at);
+create index idx_naive_ledger_transfer_id on naive_ledger(transfer_id);
+create index idx_naive_ledger_user_id_created_at_id on naive_ledger(user_id, created_at, id);
+create index idx_naive_ledger_seq on naive_ledger(seq);
+create index idx_naive_ledger_user_id_seq on naive_ledger(user_id, seq);
+
+-- the legacy tables end where their V011_1 bound does, later rows go to partitions of their own. Once
+-- attached the bound repeats the partition constraint and is dropped.
+do $$
+declare
+    legacy_to timestamp;
+begin
+    select substring(pg_get_constraintdef(oid) from '''([^'']*)''')::timestamp into strict legacy_to
+    from pg_constraint where conname = 'naive_transfer_legacy_bound';
+    execute format('alter table naive_transfer attach partition naive_transfer_legacy for values from (minvalue) to (%L)', legacy_to);
+    alter table naive_transfer_legacy drop constraint naive_transfer_legacy_bound;
+
+    select substring(pg_get_constraintdef(oid) from '''([^'']*)''')::timestamp into strict legacy_to
+    from pg_constraint where conname = 'naive_ledger_legacy_bound';
+    execute format('alter table naive_ledger attach partition naive_ledger_legacy for values from (minvalue) to (%L)', legacy_to);
+    alter table naive_ledger_legacy drop constraint naive_ledger_legacy_bound;
+end;
+$$;
+
+create trigger update_naive_transfer_timestamp
+    before update on naive_transfer
+    for each row execute function update_timestamp();
+
+create trigger update_naive_ledger_timestamp
+    before update on naive_ledger
+    for each row execute function update_timestamp();
+
+-- Catches rows past the last range partition, e.g. while NaivePartitionManager is not running, instead of
+-- failing the insert. Creating a partition scans it, so it has to stay empty: the manager reports its rows
+-- and cannot create a partition whose range overlaps any of them.
+create table naive_transfer_default partition of naive_transfer default;
+create table naive_ledger_default partition of naive_ledger default;
+
+-- NaivePartitionManager keeps the configured number of units ahead from here on
+select naive_create_partitions('naive_transfer', 'month', interval '3 months');
+select naive_create_partitions('naive_ledger', 'month', interval '3 months');
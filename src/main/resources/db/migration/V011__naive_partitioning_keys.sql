@@ -0,0 +1,12 @@
+-- naive_transfer and naive_ledger become range partitioned on created_at over V011 to V011_3. Each step
+-- commits on its own, so none of them holds ACCESS EXCLUSIVE on a table with live traffic for longer than
+-- a catalog change. Unique indexes of a partitioned table must contain the partition key, so the existing
+-- tables are first given the (id, created_at) keys they are attached under, built without blocking writes.
+-- Flyway runs a migration made only of CONCURRENTLY statements outside a transaction.
+create unique index concurrently naive_transfer_id_created_at_key on naive_transfer(id, created_at);
+create unique index concurrently naive_ledger_id_created_at_key on naive_ledger(id, created_at);
+
+-- the checkpoint job reads the seq range since its last pass, the as-of read one user's rows after its
+-- checkpoint (V003); built here so they are adopted by the partitioned table like the others
+create index concurrently idx_naive_ledger_seq on naive_ledger(seq);
+create index concurrently idx_naive_ledger_user_id_seq on naive_ledger(user_id, seq);
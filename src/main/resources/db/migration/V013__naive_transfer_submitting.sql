@@ -0,0 +1,2 @@
+-- the reference the bank answered a SUBMITTING transfer with; the ledger is only written once it is known
+alter table naive_transfer add column bank_reference varchar(64) null;
@@ -0,0 +1,314 @@
+package org.nemesiscodex.transfers;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.TestContainers;
+import org.nemesiscodex.transfers.core.dto.LoginRequest;
+import org.nemesiscodex.transfers.core.dto.LoginResponse;
+import org.nemesiscodex.transfers.naive.dto.TransferRequest;
+import org.nemesiscodex.transfers.naive.service.BalanceProjectionChecker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Drives the HTTP API with many virtual users against the TestContainers Postgres and Valkey, prints
+// throughput and latency percentiles per operation and checks the ledger afterwards.
+// Run with ./gradlew loadTest, tuned through -Dloadtest.* properties, e.g.
+// ./gradlew loadTest -Dloadtest.users=500 -Dloadtest.virtual-users=200 -Dloadtest.duration=60s
+//     -Dloadtest.mix=login:1,user:20,balance:40,transfer:39
+@Tag("loadtest")
+@Import(TestContainers.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.flyway.enabled=true",
+    // Production-like login cost instead of the test profile minimum
+    "security.password.bcrypt.strength=10",
+    // Every virtual user shares one IP
+    "security.rate-limit.enabled=false",
+    // Balance reads go through the Valkey projection, checked against Postgres at the end
+    "naive.balance.projection.enabled=true",
+    "naive.balance.projection.checker.initial-delay=PT1H"
+})
+class EndToEndLoadTest {
+
+    private static final int USERS = Integer.getInteger("loadtest.users", 200);
+    private static final int VIRTUAL_USERS = Integer.getInteger("loadtest.virtual-users", 64);
+    private static final Duration DURATION = Duration.parse("PT" + System.getProperty("loadtest.duration", "30s"));
+    private static final Duration WARMUP = Duration.parse("PT" + System.getProperty("loadtest.warmup", "5s"));
+    private static final String MIX = System.getProperty("loadtest.mix", "login:2,user:20,balance:40,transfer:38");
+    private static final String PASSWORD = "load-test-password";
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    private enum Operation { LOGIN, USER, BALANCE, TRANSFER }
+
+    private record SeededUser(UUID id, String username) {
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private BalanceProjectionChecker projectionChecker;
+
+    private final SimpleMeterRegistry results = new SimpleMeterRegistry();
+    private final Map<String, AtomicLong> statuses = new ConcurrentHashMap<>();
+    private WebClient webClient;
+    private long warmupEnd;
+
+    @Test
+    void runLoad() {
+        List<SeededUser> users = seedUsers();
+        Operation[] mix = parseMix();
+        ConnectionProvider pool = ConnectionProvider.builder("load-test").maxConnections(VIRTUAL_USERS).build();
+        this.webClient = WebClient.builder()
+            .baseUrl("http://localhost:" + this.port)
+            .clientConnector(new ReactorClientHttpConnector(HttpClient.create(pool)))
+            .build();
+
+        // Each virtual user logs in as one seeded user, then loops over the weighted mix until the deadline
+        this.warmupEnd = System.nanoTime() + WARMUP.toNanos();
+        long deadline = this.warmupEnd + DURATION.toNanos();
+        Flux.range(0, VIRTUAL_USERS)
+            .flatMap(vu -> {
+                SeededUser user = users.get(vu % users.size());
+                return login(user).flatMap(token -> {
+                    String[] session = {token};
+                    return Mono.defer(() ->
+                            step(mix[ThreadLocalRandom.current().nextInt(mix.length)], user, session, users))
+                        .repeat(() -> System.nanoTime() < deadline)
+                        .then();
+                });
+            }, VIRTUAL_USERS)
+            .blockLast();
+        pool.disposeLater().block();
+
+        report();
+
+        assertThat(this.statuses.keySet()).noneMatch(status -> status.startsWith("5") || status.equals("error"));
+        // Transfers only move money between seeded users, so the total never changes
+        assertThat(totalOpenBalance(users)).isEqualByComparingTo(INITIAL_BALANCE.multiply(BigDecimal.valueOf(users.size())));
+        assertThat(unbalancedTransfers(users)).isZero();
+        assertThat(usersWithoutSingleOpenBalance(users)).isZero();
+        assertProjectionMatchesLedger(users);
+    }
+
+    private Mono<Void> step(Operation operation, SeededUser user, String[] session, List<SeededUser> users) {
+        Mono<?> call = switch (operation) {
+            case LOGIN -> login(user).doOnNext(token -> session[0] = token);
+            case USER -> get("/user", session[0]);
+            case BALANCE -> get("/naive/balance", session[0]);
+            case TRANSFER -> transfer(session[0], recipient(user, users));
+        };
+        long start = System.nanoTime();
+        return call
+            .doOnSuccess(ignored -> record(operation, "2xx", start))
+            .onErrorResume(ex -> {
+                record(operation, ex instanceof WebClientResponseException response
+                    ? String.valueOf(response.getStatusCode().value())
+                    : "error", start);
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    private Mono<String> login(SeededUser user) {
+        return this.webClient.post()
+            .uri("/auth/login")
+            .bodyValue(new LoginRequest(user.username(), PASSWORD))
+            .retrieve()
+            .bodyToMono(LoginResponse.class)
+            .map(LoginResponse::token);
+    }
+
+    private Mono<String> get(String path, String token) {
+        return this.webClient.get()
+            .uri(path)
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+            .retrieve()
+            .bodyToMono(String.class);
+    }
+
+    private Mono<String> transfer(String token, UUID recipientId) {
+        return this.webClient.post()
+            .uri("/naive/transfer")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+            .bodyValue(new TransferRequest(recipientId, AMOUNT))
+            .retrieve()
+            .bodyToMono(String.class);
+    }
+
+    private static UUID recipient(SeededUser sender, List<SeededUser> users) {
+        SeededUser recipient;
+        do {
+            recipient = users.get(ThreadLocalRandom.current().nextInt(users.size()));
+        } while (recipient.equals(sender));
+        return recipient.id();
+    }
+
+    private void record(Operation operation, String status, long start) {
+        // Calls started during warmup are not reported
+        if (start < this.warmupEnd) {
+            return;
+        }
+        this.statuses.computeIfAbsent(status, ignored -> new AtomicLong()).incrementAndGet();
+        Timer.builder("loadtest." + operation.name().toLowerCase())
+            .tag("status", status)
+            .publishPercentiles(0.5, 0.9, 0.99, 0.999)
+            .register(this.results)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void report() {
+        double seconds = DURATION.toNanos() / 1e9;
+        System.out.printf("%nLoad test: %d users, %d virtual users, %s after %s warmup, mix %s%n",
+            USERS, VIRTUAL_USERS, DURATION, WARMUP, MIX);
+        System.out.printf("%-10s %-6s %9s %10s %9s %9s %9s %9s %9s%n",
+            "operation", "status", "count", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        long total = 0;
+        for (Timer timer : this.results.getMeters().stream()
+            .filter(Timer.class::isInstance).map(Timer.class::cast)
+            .sorted((a, b) -> (a.getId().getName() + a.getId().getTag("status"))
+                .compareTo(b.getId().getName() + b.getId().getTag("status")))
+            .toList()) {
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            total += snapshot.count();
+            StringBuilder percentiles = new StringBuilder();
+            for (ValueAtPercentile value : snapshot.percentileValues()) {
+                percentiles.append(String.format(" %9.2f", value.value(TimeUnit.MILLISECONDS)));
+            }
+            System.out.printf("%-10s %-6s %9d %10.1f%s %9.2f%n",
+                timer.getId().getName().substring("loadtest.".length()),
+                timer.getId().getTag("status"),
+                snapshot.count(),
+                snapshot.count() / seconds,
+                percentiles,
+                snapshot.max(TimeUnit.MILLISECONDS));
+        }
+        System.out.printf("total      %16d %10.1f%n%n", total, total / seconds);
+    }
+
+    // weight per operation, expanded so a uniform pick follows the mix
+    private static Operation[] parseMix() {
+        return Arrays.stream(MIX.split(","))
+            .map(entry -> entry.trim().split(":"))
+            .flatMap(entry -> Collections.nCopies(
+                Integer.parseInt(entry[1].trim()), Operation.valueOf(entry[0].trim().toUpperCase())).stream())
+            .toArray(Operation[]::new);
+    }
+
+    // One BCrypt hash shared by all seeded users, so seeding does not cost N password encodings
+    private List<SeededUser> seedUsers() {
+        return this.databaseClient.sql("""
+                with seeded as (
+                    insert into users (username, password_hash, email)
+                    select 'load-' || :run || '-' || n, :passwordHash, 'load-' || :run || '-' || n || '@example.com'
+                    from generate_series(1, :count) as n
+                    returning id, username
+                ),
+                deposit as (
+                    insert into naive_ledger (user_id, amount)
+                    select id, :initial from seeded
+                    returning id, user_id, amount, seq
+                ),
+                opened as (
+                    insert into naive_balance (user_id, amount, open_ledger_id, open_ledger_seq)
+                    select user_id, amount, id, seq from deposit
+                )
+                select id, username from seeded
+                """)
+            .bind("run", UUID.randomUUID().toString().substring(0, 8))
+            .bind("passwordHash", this.passwordEncoder.encode(PASSWORD))
+            .bind("count", USERS)
+            .bind("initial", INITIAL_BALANCE)
+            .map((row, metadata) -> new SeededUser(row.get("id", UUID.class), row.get("username", String.class)))
+            .all()
+            .collectList()
+            .block();
+    }
+
+    private BigDecimal totalOpenBalance(List<SeededUser> users) {
+        return this.databaseClient.sql("select sum(amount) as total from naive_balance where user_id = any(:ids) and close_ledger_id is null")
+            .bind("ids", ids(users))
+            .map((row, metadata) -> row.get("total", BigDecimal.class))
+            .one()
+            .block();
+    }
+
+    // Every transfer writes a debit and a credit that cancel out
+    private long unbalancedTransfers(List<SeededUser> users) {
+        return this.databaseClient.sql("""
+                select count(*) as unbalanced from (
+                    select transfer_id from naive_ledger
+                    where user_id = any(:ids) and transfer_id is not null
+                    group by transfer_id
+                    having sum(amount) <> 0 or count(*) <> 2
+                ) as broken
+                """)
+            .bind("ids", ids(users))
+            .map((row, metadata) -> row.get("unbalanced", Long.class))
+            .one()
+            .block();
+    }
+
+    private long usersWithoutSingleOpenBalance(List<SeededUser> users) {
+        return this.databaseClient.sql("""
+                select count(*) as broken from unnest(:ids) as seeded(user_id)
+                where (select count(*) from naive_balance
+                       where naive_balance.user_id = seeded.user_id and close_ledger_id is null) <> 1
+                """)
+            .bind("ids", ids(users))
+            .map((row, metadata) -> row.get("broken", Long.class))
+            .one()
+            .block();
+    }
+
+    // Notifications are applied asynchronously, so the last ones get a moment to land first
+    private void assertProjectionMatchesLedger(List<SeededUser> users) {
+        Mono.delay(Duration.ofSeconds(1)).block();
+        BalanceProjectionChecker.Report report = this.projectionChecker
+            .check(Flux.fromIterable(users).map(SeededUser::id))
+            .block();
+        System.out.printf("balance projection: %s%n", report);
+        assertThat(report.stale()).isZero();
+        assertThat(report.diverged()).isZero();
+    }
+
+    private static UUID[] ids(List<SeededUser> users) {
+        return users.stream().map(SeededUser::id).toArray(UUID[]::new);
+    }
+}
@@ -0,0 +1,76 @@
+package org.nemesiscodex.transfers.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.core.security.AuthenticatedUser;
+import org.nemesiscodex.transfers.core.service.JwtService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.UUID;
+
+@Import(TestContainers.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ActuatorSecurityTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        webTestClient = WebTestClient.bindToServer().baseUrl("http://localhost:" + port).build();
+    }
+
+    @Test
+    void shouldServeHealthToAnyone() {
+        // When/Then
+        webTestClient.get().uri("/actuator/health")
+            .exchange()
+            .expectStatus().isOk();
+    }
+
+    @Test
+    void shouldRejectUnauthenticatedMetricsRequest() {
+        // When/Then
+        webTestClient.get().uri("/actuator/metrics")
+            .exchange()
+            .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void shouldForbidMetricsAndCacheStatsToRegularUser() {
+        // Given
+        String token = jwtService.generateToken(UUID.randomUUID(), "user");
+
+        // When/Then
+        webTestClient.get().uri("/actuator/metrics")
+            .headers(headers -> headers.setBearerAuth(token))
+            .exchange()
+            .expectStatus().isForbidden();
+        webTestClient.get().uri("/actuator/usercache")
+            .headers(headers -> headers.setBearerAuth(token))
+            .exchange()
+            .expectStatus().isForbidden();
+    }
+
+    @Test
+    void shouldServeMetricsToAdmin() {
+        // Given
+        String token = jwtService.generateToken(UUID.randomUUID(), "operator", List.of(AuthenticatedUser.ADMIN_ROLE));
+
+        // When/Then
+        webTestClient.get().uri("/actuator/metrics")
+            .headers(headers -> headers.setBearerAuth(token))
+            .exchange()
+            .expectStatus().isOk();
+    }
+}
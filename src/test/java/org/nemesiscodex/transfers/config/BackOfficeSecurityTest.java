@@ -0,0 +1,89 @@
+package org.nemesiscodex.transfers.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.core.security.AuthenticatedUser;
+import org.nemesiscodex.transfers.core.service.JwtService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.UUID;
+
+// Real tokens against the real routes, so a route that moved away from its security matcher shows up here
+@Import(TestContainers.class)
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "spring.flyway.enabled=true")
+class BackOfficeSecurityTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        webTestClient = WebTestClient.bindToServer().baseUrl("http://localhost:" + port).build();
+    }
+
+    @Test
+    void shouldForbidBatchGetToRegularUser() {
+        // Given
+        String token = jwtService.generateToken(UUID.randomUUID(), "user");
+
+        // When/Then
+        batchGet(token).expectStatus().isForbidden();
+    }
+
+    @Test
+    void shouldServeBatchGetToBackOffice() {
+        // Given
+        String token = jwtService.generateToken(
+            UUID.randomUUID(), "backoffice", List.of(AuthenticatedUser.BACKOFFICE_ROLE));
+
+        // When/Then
+        batchGet(token).expectStatus().isOk();
+    }
+
+    @Test
+    void shouldForbidVerifyToRegularUser() {
+        // Given
+        String token = jwtService.generateToken(UUID.randomUUID(), "user");
+
+        // When/Then
+        verify(token).expectStatus().isForbidden();
+    }
+
+    @Test
+    void shouldServeVerifyToBackOffice() {
+        // Given
+        String token = jwtService.generateToken(
+            UUID.randomUUID(), "backoffice", List.of(AuthenticatedUser.BACKOFFICE_ROLE));
+
+        // When/Then
+        verify(token).expectStatus().isOk();
+    }
+
+    private WebTestClient.ResponseSpec batchGet(String token) {
+        return webTestClient.post().uri("/naive/balances:batchGet")
+            .headers(headers -> headers.setBearerAuth(token))
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .bodyValue(List.of(UUID.randomUUID()))
+            .exchange();
+    }
+
+    private WebTestClient.ResponseSpec verify(String token) {
+        return webTestClient.post().uri("/naive/ledger:verify")
+            .headers(headers -> headers.setBearerAuth(token))
+            .exchange();
+    }
+}
@@ -0,0 +1,56 @@
+package org.nemesiscodex.transfers.config;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+// Users and opening deposits for integration tests, written straight to the database. Imported next to
+// TestContainers; the database is shared between tests, so every user is new and uniquely named.
+@TestComponent
+public class LedgerFixtures {
+
+    private final DatabaseClient databaseClient;
+
+    public LedgerFixtures(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public UUID createUser() {
+        String username = "fixture-" + UUID.randomUUID();
+        return this.databaseClient.sql("""
+                insert into users (username, password_hash, email)
+                values (:username, 'unused', :email)
+                returning id
+                """)
+            .bind("username", username)
+            .bind("email", username + "@example.com")
+            .map((row, metadata) -> row.get("id", UUID.class))
+            .one()
+            .block();
+    }
+
+    // Opens the user's first balance the way the transfer paths do, with the ledger entry that opened it
+    public Deposit deposit(UUID userId, BigDecimal amount) {
+        return this.databaseClient.sql("""
+                with ledger as (
+                    insert into naive_ledger (user_id, amount)
+                    values (:userId, :amount)
+                    returning id, user_id, amount, seq
+                )
+                insert into naive_balance (user_id, amount, open_ledger_id, open_ledger_seq)
+                select user_id, amount, id, seq from ledger
+                returning open_ledger_id, open_ledger_seq
+                """)
+            .bind("userId", userId)
+            .bind("amount", amount)
+            .map((row, metadata) -> new Deposit(
+                row.get("open_ledger_id", UUID.class),
+                row.get("open_ledger_seq", Long.class)))
+            .one()
+            .block();
+    }
+
+    public record Deposit(UUID ledgerId, long ledgerSeq) {
+    }
+}
@@ -0,0 +1,100 @@
+package org.nemesiscodex.transfers.core.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight singleFlight = new SingleFlight(meterRegistry);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void shouldShareInFlightCallAndReleaseIt() {
+        // Given
+        UUID id = UUID.randomUUID();
+        Sinks.One<String> result = Sinks.one();
+
+        // When/Then
+        StepVerifier.create(Mono.zip(call(id, result), call(id, result)))
+            .then(() -> result.tryEmitValue("balance"))
+            .assertNext(both -> assertThat(both.toList()).containsExactly("balance", "balance"))
+            .verifyComplete();
+        StepVerifier.create(call(id, Sinks.one()).then())
+            .thenCancel()
+            .verify();
+
+        // Then: the first two shared one call, the one after completion started its own
+        assertThat(calls).hasValue(2);
+        assertThat(count("collapsed")).isEqualTo(1);
+        assertThat(count("executed")).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotShareAcrossKeys() {
+        // Given
+        Sinks.One<String> result = Sinks.one();
+
+        // When
+        Disposable first = call(UUID.randomUUID(), result).subscribe();
+        Disposable second = call(UUID.randomUUID(), result).subscribe();
+
+        // Then
+        assertThat(calls).hasValue(2);
+        first.dispose();
+        second.dispose();
+    }
+
+    @Test
+    void shouldKeepCallRunningWhenOneSubscriberCancels() {
+        // Given
+        UUID id = UUID.randomUUID();
+        Sinks.One<String> result = Sinks.one();
+        Disposable leaving = call(id, result).subscribe();
+
+        // When/Then
+        StepVerifier.create(call(id, result))
+            .then(leaving::dispose)
+            .then(() -> result.tryEmitValue("balance"))
+            .expectNext("balance")
+            .verifyComplete();
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void shouldPropagateErrorToAllSubscribersAndRelease() {
+        // Given
+        UUID id = UUID.randomUUID();
+        Sinks.One<String> result = Sinks.one();
+
+        // When/Then
+        StepVerifier.create(Mono.zip(call(id, result), call(id, result).onErrorReturn("fallback")))
+            .then(() -> result.tryEmitError(new IllegalStateException("database down")))
+            .expectError(IllegalStateException.class)
+            .verify();
+        StepVerifier.create(call(id, Sinks.one()).then())
+            .thenCancel()
+            .verify();
+        assertThat(calls).hasValue(2);
+    }
+
+    private Mono<String> call(UUID id, Sinks.One<String> result) {
+        return singleFlight.execute("test", id, () -> {
+            calls.incrementAndGet();
+            return result.asMono();
+        });
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("singleflight.calls").tag("query", "test").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,92 @@
+package org.nemesiscodex.transfers.core.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldGrantQueuedCallWhenPermitIsReleased() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, Duration.ofSeconds(5));
+        Sinks.One<String> first = Sinks.one();
+        Disposable running = limiter.execute(first::asMono).subscribe();
+
+        // When/Then
+        StepVerifier.create(limiter.execute(() -> Mono.just("second")))
+            .then(() -> {
+                assertThat(limiter.queued()).isEqualTo(1);
+                first.tryEmitValue("first");
+            })
+            .expectNext("second")
+            .verifyComplete();
+        assertThat(limiter.inFlight()).isZero();
+        running.dispose();
+    }
+
+    @Test
+    void shouldShedWhenWaitRunsOut() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, Duration.ofMillis(50));
+        Disposable running = limiter.execute(Mono::never).subscribe();
+
+        // When/Then
+        StepVerifier.create(limiter.execute(() -> Mono.just("second")))
+            .expectError(ConcurrencyLimitExceededException.class)
+            .verify(Duration.ofSeconds(1));
+        assertThat(limiter.queued()).isZero();
+        assertThat(meterRegistry.get("concurrency.rejected").tag("reason", "wait_timeout").counter().count())
+            .isEqualTo(1);
+        running.dispose();
+    }
+
+    @Test
+    void shouldReleasePermitOnCancel() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 0, Duration.ofSeconds(5));
+        Disposable running = limiter.execute(Mono::never).subscribe();
+        assertThat(limiter.inFlight()).isEqualTo(1);
+
+        // When
+        running.dispose();
+
+        // Then: the limit is untouched and the permit is free again
+        assertThat(limiter.inFlight()).isZero();
+        assertThat(limiter.limit()).isEqualTo(1);
+        StepVerifier.create(limiter.execute(() -> Mono.just("next")))
+            .expectNext("next")
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldBackOffOnDrops() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 0, Duration.ofSeconds(5));
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            StepVerifier.create(limiter.execute(() -> Mono.error(new TimeoutException())))
+                .expectError(TimeoutException.class)
+                .verify();
+        }
+
+        // Then: 10 * 0.5^5 bottoms out at min-limit
+        assertThat(limiter.limit()).isEqualTo(1);
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit, int maxQueue, Duration maxWait) {
+        return new AdaptiveConcurrencyLimiter(
+            "test", meterRegistry, initialLimit, 1, 100, 0.5, Duration.ofSeconds(1), maxQueue, maxWait, ex -> true);
+    }
+}
@@ -0,0 +1,216 @@
+package org.nemesiscodex.transfers.core.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.core.dto.BankTransferRequest;
+import org.nemesiscodex.transfers.core.dto.BankTransferResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BankApiClientTest {
+
+    private static final Duration NO_HEDGE = Duration.ofSeconds(30);
+
+    private BankStubServer stub;
+
+    @BeforeEach
+    void setUp() {
+        stub = BankStubServer.start(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void shouldSubmitTransfer() {
+        // When/Then
+        StepVerifier.create(client(NO_HEDGE, 2, 10).submitTransfer(request()))
+            .assertNext(response -> {
+                assertThat(response.reference()).isNotBlank();
+                assertThat(response.status()).isEqualTo("ACCEPTED");
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldRetryServerErrors() {
+        // Given
+        stub.failNext(2);
+
+        // When/Then
+        StepVerifier.create(client(NO_HEDGE, 2, 10).submitTransfer(request()))
+            .expectNextCount(1)
+            .verifyComplete();
+        assertThat(stub.requests()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldNotRetryClientErrors() {
+        // Given
+        stub.reject(422);
+
+        // When/Then
+        StepVerifier.create(client(NO_HEDGE, 2, 10).submitTransfer(request()))
+            .expectError(BankRejectedException.class)
+            .verify();
+        assertThat(stub.requests()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldHedgeSlowRequest() {
+        // Given
+        stub.slowNext(1, Duration.ofSeconds(5));
+
+        // When/Then
+        StepVerifier.create(client(Duration.ofMillis(100), 0, 10).submitTransfer(request()))
+            .expectNextCount(1)
+            .expectComplete()
+            .verify(Duration.ofSeconds(2));
+        assertThat(stub.requests()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReplaySameReferenceForSameTransfer() {
+        // Given
+        BankApiClient client = client(NO_HEDGE, 0, 10);
+        BankTransferRequest request = request();
+
+        // When
+        String first = client.submitTransfer(request).block().reference();
+        String second = client.submitTransfer(request).block().reference();
+
+        // Then
+        assertThat(second).isEqualTo(first);
+    }
+
+    @Test
+    void shouldFailFastOnceCircuitIsOpen() {
+        // Given
+        stub.failureRate(1.0);
+        BankApiClient client = client(NO_HEDGE, 0, 4);
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(client.submitTransfer(request())).expectError().verify();
+        }
+        int requestsBeforeOpen = stub.requests();
+
+        // When/Then
+        StepVerifier.create(client.submitTransfer(request()))
+            .expectError(RejectedExecutionException.class)
+            .verify();
+        assertThat(stub.requests()).isEqualTo(requestsBeforeOpen);
+    }
+
+    @Test
+    void shouldLowerLimitWhenBankSlowsDown() {
+        // Given
+        stub.latency(Duration.ofMillis(100));
+        AdaptiveConcurrencyLimiter limiter = limiter(Duration.ofMillis(50));
+        BankApiClient client = client(limiter, NO_HEDGE, 0, 10);
+
+        // When
+        Flux.range(0, 10).flatMap(i -> client.submitTransfer(request()), 1).blockLast();
+
+        // Then
+        assertThat(limiter.limit()).isLessThan(20);
+    }
+
+    @Test
+    void shouldRaiseLimitWhileBankIsFast() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = limiter(Duration.ofSeconds(1));
+        BankApiClient client = client(limiter, NO_HEDGE, 0, 10);
+
+        // When
+        Flux.range(0, 200).flatMap(i -> client.submitTransfer(request()), 20).blockLast();
+
+        // Then
+        assertThat(limiter.limit()).isGreaterThan(20);
+    }
+
+    @Test
+    void shouldHoldAPermitPerHedgedRequest() {
+        // Given
+        stub.latency(Duration.ofSeconds(1));
+        AdaptiveConcurrencyLimiter limiter = limiter(Duration.ofSeconds(10));
+        BankApiClient client = client(limiter, Duration.ofMillis(100), 0, 10);
+
+        // When
+        CompletableFuture<BankTransferResponse> response = client.submitTransfer(request()).toFuture();
+        Integer inFlight = Mono.delay(Duration.ofMillis(500)).map(tick -> limiter.inFlight()).block();
+
+        // Then: the first request and its hedge are both on the wire, each under its own permit
+        assertThat(inFlight).isEqualTo(2);
+        assertThat(response.join()).isNotNull();
+    }
+
+    @Test
+    void shouldShedWhenBankIsSaturated() {
+        // Given
+        stub.latency(Duration.ofMillis(500));
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+            "bank-api", new SimpleMeterRegistry(), 2, 1, 2, 0.9, Duration.ofSeconds(1), 2, Duration.ofSeconds(5),
+            BankApiClient::isDrop);
+        BankApiClient client = client(limiter, NO_HEDGE, 0, 10);
+
+        // When
+        List<Throwable> errors = Flux.range(0, 6)
+            .flatMap(i -> client.submitTransfer(request())
+                .then(Mono.<Throwable>empty())
+                .onErrorResume(Mono::just))
+            .collectList()
+            .block();
+
+        // Then: two in flight, two queued, the rest shed
+        assertThat(errors).hasSize(2).allMatch(ConcurrencyLimitExceededException.class::isInstance);
+        assertThat(stub.requests()).isEqualTo(4);
+    }
+
+    private BankApiClient client(Duration hedgeDelay, int maxRetries, int slidingWindowSize) {
+        return client(limiter(Duration.ofSeconds(10)), hedgeDelay, maxRetries, slidingWindowSize);
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(Duration latencyThreshold) {
+        return new AdaptiveConcurrencyLimiter(
+            "bank-api", new SimpleMeterRegistry(), 20, 1, 200, 0.9, latencyThreshold, 100, Duration.ofSeconds(5),
+            BankApiClient::isDrop);
+    }
+
+    private BankApiClient client(
+        AdaptiveConcurrencyLimiter limiter, Duration hedgeDelay, int maxRetries, int slidingWindowSize) {
+        return new BankApiClient(
+            WebClient.builder(),
+            new SimpleMeterRegistry(),
+            limiter,
+            stub.baseUrl(),
+            16,
+            Duration.ofSeconds(1),
+            Duration.ofSeconds(30),
+            Duration.ofSeconds(1),
+            Duration.ofSeconds(10),
+            hedgeDelay,
+            maxRetries,
+            Duration.ofMillis(10),
+            50,
+            slidingWindowSize,
+            Duration.ofMinutes(1));
+    }
+
+    private static BankTransferRequest request() {
+        return new BankTransferRequest(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("10.00"));
+    }
+}
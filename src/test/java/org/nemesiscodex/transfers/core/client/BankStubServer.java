@@ -0,0 +1,131 @@
+package org.nemesiscodex.transfers.core.client;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.nemesiscodex.transfers.core.service.IdempotencyService;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+// Stand-in for the bank API: POST /transfers answers {"reference", "status"} and replays the same
+// reference for a repeated Idempotency-Key. Latency, jitter and failures can be injected per instance.
+// Also runnable on its own through ./gradlew bankStub, configured with -Dbank.stub.* properties.
+public class BankStubServer implements AutoCloseable {
+
+    private final DisposableServer server;
+    private final Map<String, String> references = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger failNext = new AtomicInteger();
+    private final AtomicInteger slowNext = new AtomicInteger();
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Duration jitter = Duration.ZERO;
+    private volatile Duration slowLatency = Duration.ZERO;
+    private volatile double failureRate;
+    private volatile int rejectStatus;
+
+    private BankStubServer(int port) {
+        this.server = HttpServer.create()
+            .port(port)
+            .route(routes -> routes.post("/transfers", this::handle))
+            .bindNow();
+    }
+
+    public static BankStubServer start(int port) {
+        return new BankStubServer(port);
+    }
+
+    public static void main(String[] args) {
+        BankStubServer stub = start(Integer.getInteger("bank.stub.port", 8089));
+        stub.latency(Duration.ofMillis(Long.getLong("bank.stub.latency-ms", 0)))
+            .jitter(Duration.ofMillis(Long.getLong("bank.stub.jitter-ms", 0)))
+            .failureRate(Double.parseDouble(System.getProperty("bank.stub.failure-rate", "0")));
+        System.out.println("Bank stub listening on " + stub.baseUrl());
+        stub.server.onDispose().block();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + this.server.port();
+    }
+
+    public int requests() {
+        return this.requests.get();
+    }
+
+    public BankStubServer latency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    public BankStubServer jitter(Duration jitter) {
+        this.jitter = jitter;
+        return this;
+    }
+
+    public BankStubServer failureRate(double failureRate) {
+        this.failureRate = failureRate;
+        return this;
+    }
+
+    // The next n requests answer 503
+    public BankStubServer failNext(int n) {
+        this.failNext.set(n);
+        return this;
+    }
+
+    // The next n requests take the given latency instead of the configured one
+    public BankStubServer slowNext(int n, Duration latency) {
+        this.slowLatency = latency;
+        this.slowNext.set(n);
+        return this;
+    }
+
+    // Every request answers the given 4xx status, 0 turns it off
+    public BankStubServer reject(int status) {
+        this.rejectStatus = status;
+        return this;
+    }
+
+    @Override
+    public void close() {
+        this.server.disposeNow();
+    }
+
+    private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        this.requests.incrementAndGet();
+        Duration delay = takeOne(this.slowNext) ? this.slowLatency : this.latency.plus(randomJitter());
+        boolean fail = takeOne(this.failNext) || ThreadLocalRandom.current().nextDouble() < this.failureRate;
+        String key = request.requestHeaders().get(IdempotencyService.HEADER, UUID.randomUUID().toString());
+        return request.receive().then()
+            .then(Mono.delay(delay))
+            .then(Mono.defer(() -> {
+                if (this.rejectStatus != 0) {
+                    return response.status(this.rejectStatus).send().then();
+                }
+                if (fail) {
+                    return response.status(HttpResponseStatus.SERVICE_UNAVAILABLE).send().then();
+                }
+                String reference = this.references.computeIfAbsent(key, ignored -> UUID.randomUUID().toString());
+                return response.status(HttpResponseStatus.OK)
+                    .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                    .sendString(Mono.just("{\"reference\":\"" + reference + "\",\"status\":\"ACCEPTED\"}"))
+                    .then();
+            }));
+    }
+
+    private Duration randomJitter() {
+        long bound = this.jitter.toMillis();
+        return bound > 0 ? Duration.ofMillis(ThreadLocalRandom.current().nextLong(bound)) : Duration.ZERO;
+    }
+
+    private static boolean takeOne(AtomicInteger remaining) {
+        return remaining.getAndUpdate(value -> Math.max(0, value - 1)) > 0;
+    }
+}
@@ -145,6 +145,23 @@ class AuthControllerTest {
             .expectStatus().isUnauthorized();
     }
 
+    @Test
+    void shouldShedLoginWhenHashingIsSaturated() {
+        // Given
+        LoginRequest request = new LoginRequest("testuser", "password123");
+
+        when(authService.login(any(LoginRequest.class)))
+            .thenReturn(Mono.error(new java.util.concurrent.RejectedExecutionException("Password hashing is saturated")));
+
+        // When/Then
+        webTestClient.post()
+            .uri("/auth/login")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(request)
+            .exchange()
+            .expectStatus().isEqualTo(503);
+    }
+
     @Test
     void shouldRejectLoginWithInvalidData() {
         // Given
@@ -2,7 +2,8 @@ package org.nemesiscodex.transfers.core.controller;
 
 import org.junit.jupiter.api.Test;
 import org.nemesiscodex.transfers.core.entity.User;
-import org.nemesiscodex.transfers.core.repository.UserRepository;
+import org.nemesiscodex.transfers.core.security.AuthenticatedUser;
+import org.nemesiscodex.transfers.core.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webflux.test.autoconfigure.WebFluxTest;
 import org.springframework.context.annotation.Import;
@@ -10,8 +11,8 @@ import org.springframework.boot.security.autoconfigure.SecurityAutoConfiguration
 import org.springframework.boot.security.autoconfigure.web.reactive.ReactiveWebSecurityAutoConfiguration;
 import org.springframework.boot.security.autoconfigure.ReactiveUserDetailsServiceAutoConfiguration;
 import org.nemesiscodex.transfers.config.SecurityConfig;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -21,7 +22,6 @@ import java.time.Instant;
 import java.util.UUID;
 
 import static org.mockito.Mockito.when;
-import static org.springframework.security.core.userdetails.User.withUsername;
 
 @WebFluxTest(
     controllers = UserController.class,
@@ -38,7 +38,7 @@ class UserControllerTest {
     private WebTestClient webTestClient;
 
     @MockitoBean
-    private UserRepository userRepository;
+    private UserService userService;
 
     @MockitoBean
     private ReactiveUserDetailsService reactiveUserDetailsService;
@@ -55,16 +55,14 @@ class UserControllerTest {
             Instant.now(),
             Instant.now()
         );
-        UserDetails userDetails = withUsername(username)
-            .password("hashedPassword")
-            .roles("USER")
-            .build();
+        AuthenticatedUser principal = new AuthenticatedUser(testUser.id(), username, AuthenticatedUser.DEFAULT_ROLES);
 
-        when(userRepository.findByUsername(username)).thenReturn(Mono.just(testUser));
+        when(userService.findById(testUser.id())).thenReturn(Mono.just(testUser));
 
         // When/Then
         webTestClient
-            .mutateWith(SecurityMockServerConfigurers.mockUser(userDetails))
+            .mutateWith(SecurityMockServerConfigurers.mockAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(principal, "token", principal.authorities())))
             .get()
             .uri("/user")
             .exchange()
@@ -0,0 +1,161 @@
+package org.nemesiscodex.transfers.core.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AuthRateLimitWebFilterTest {
+
+    private ReactiveStringRedisTemplate redisTemplate;
+    private AuthRateLimitWebFilter filter;
+    private final AtomicReference<String> forwardedBody = new AtomicReference<>();
+    private final WebFilterChain chain = exchange -> DataBufferUtils.join(exchange.getRequest().getBody())
+        .doOnNext(buffer -> forwardedBody.set(buffer.toString(StandardCharsets.UTF_8)))
+        .then();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        // Valkey down: every check is answered by the in-process buckets
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+            .thenReturn(Flux.error(new RedisConnectionFailureException("down")));
+        AuthRateLimiter rateLimiter = new AuthRateLimiter(
+            redisTemplate,
+            new SimpleMeterRegistry(),
+            Duration.ofMillis(50),
+            3, Duration.ofSeconds(10),
+            2, Duration.ofMinutes(1),
+            1, Duration.ofMinutes(1),
+            1000);
+        filter = new AuthRateLimitWebFilter(rateLimiter, JsonMapper.builder().build());
+    }
+
+    @Test
+    void shouldReplayLoginBodyToController() {
+        // Given
+        MockServerWebExchange exchange = login("10.0.0.1", "alice");
+
+        // When
+        filter.filter(exchange, chain).block();
+
+        // Then
+        assertThat(exchange.getResponse().getStatusCode()).isNull();
+        assertThat(forwardedBody.get()).contains("\"username\":\"alice\"");
+    }
+
+    @Test
+    void shouldLimitLoginPerUsernameFromOneIp() {
+        // Given
+        filter.filter(login("10.0.0.1", "alice"), chain).block();
+        filter.filter(login("10.0.0.1", "Alice"), chain).block();
+
+        // When
+        MockServerWebExchange third = login("10.0.0.1", "alice");
+        filter.filter(third, chain).block();
+
+        // Then
+        assertThat(third.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(third.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("60");
+    }
+
+    @Test
+    void shouldNotLockTheUsernameOutForOtherIps() {
+        // Given: one client used up alice's attempts
+        filter.filter(login("10.0.0.1", "alice"), chain).block();
+        filter.filter(login("10.0.0.1", "alice"), chain).block();
+
+        // When
+        MockServerWebExchange otherIp = login("10.0.0.2", "alice");
+        filter.filter(otherIp, chain).block();
+
+        // Then
+        assertThat(otherIp.getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    void shouldLimitLoginPerIpAcrossUsernames() {
+        // Given
+        filter.filter(login("10.0.0.1", "alice"), chain).block();
+        filter.filter(login("10.0.0.1", "bob"), chain).block();
+        filter.filter(login("10.0.0.1", "carol"), chain).block();
+
+        // When
+        MockServerWebExchange fourth = login("10.0.0.1", "dave");
+        filter.filter(fourth, chain).block();
+
+        // Then
+        assertThat(fourth.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(fourth.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("10");
+    }
+
+    @Test
+    void shouldLimitSignupPerIp() {
+        // Given
+        filter.filter(signup("10.0.0.1"), chain).block();
+
+        // When
+        MockServerWebExchange second = signup("10.0.0.1");
+        filter.filter(second, chain).block();
+
+        // Then
+        assertThat(second.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        MockServerWebExchange otherIp = signup("10.0.0.2");
+        filter.filter(otherIp, chain).block();
+        assertThat(otherIp.getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldUseValkeyDecision() {
+        // Given
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+            .thenReturn(Flux.just(List.of(0L, 2500L)));
+
+        // When
+        MockServerWebExchange exchange = login("10.0.0.1", "alice");
+        filter.filter(exchange, chain).block();
+
+        // Then
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("3");
+    }
+
+    private static MockServerWebExchange login(String ip, String username) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/auth/login")
+            .remoteAddress(new InetSocketAddress(ip, 40000))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body("{\"username\":\"" + username + "\",\"password\":\"password123\"}"));
+    }
+
+    private static MockServerWebExchange signup(String ip) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/auth/signup")
+            .remoteAddress(new InetSocketAddress(ip, 40000))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body("{\"username\":\"someone\",\"password\":\"password123\",\"email\":\"someone@example.com\"}"));
+    }
+}
@@ -0,0 +1,97 @@
+package org.nemesiscodex.transfers.core.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.TestContainers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+// Runs the token bucket script against a real Valkey; every test uses its own client IP and username
+@Import(TestContainers.class)
+@SpringBootTest(properties = {
+    "spring.flyway.enabled=true",
+    "security.rate-limit.valkey-timeout=1s",
+    "security.rate-limit.login.per-ip.capacity=4",
+    "security.rate-limit.login.per-ip.refill-interval=1h",
+    "security.rate-limit.login.per-username.capacity=2",
+    "security.rate-limit.login.per-username.refill-interval=1m"
+})
+class AuthRateLimiterTest {
+
+    @Autowired
+    private AuthRateLimiter rateLimiter;
+
+    @Autowired
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void shouldLimitUsernamePerIpInValkey() {
+        // Given
+        String ip = ip();
+        String username = "valkey-" + UUID.randomUUID();
+        assertThat(rateLimiter.tryAcquireLogin(ip, username).block().allowed()).isTrue();
+        assertThat(rateLimiter.tryAcquireLogin(ip, username.toUpperCase()).block().allowed()).isTrue();
+
+        // When
+        AuthRateLimiter.Decision third = rateLimiter.tryAcquireLogin(ip, username).block();
+
+        // Then
+        assertThat(third.allowed()).isFalse();
+        assertThat(third.retryAfter()).isBetween(Duration.ofSeconds(59), Duration.ofSeconds(60));
+        assertThat(redisTemplate.hasKey("rate:login:user-ip:" + ip + "/" + username).block()).isTrue();
+        assertThat(rateLimiter.tryAcquireLogin(ip(), username).block().allowed()).isTrue();
+    }
+
+    @Test
+    void shouldNotChargeAnyBucketWhenOneIsEmpty() {
+        // Given: the username bucket is empty, the IP bucket has two of its four tokens left
+        String ip = ip();
+        String username = "valkey-" + UUID.randomUUID();
+        rateLimiter.tryAcquireLogin(ip, username).block();
+        rateLimiter.tryAcquireLogin(ip, username).block();
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            assertThat(rateLimiter.tryAcquireLogin(ip, username).block().allowed()).isFalse();
+        }
+
+        // Then: the limited attempts left the IP bucket alone
+        assertThat(tokens("rate:login:ip:" + ip)).isCloseTo(2.0, within(0.01));
+        assertThat(rateLimiter.tryAcquireLogin(ip, "other-" + UUID.randomUUID()).block().allowed()).isTrue();
+        assertThat(rateLimiter.tryAcquireLogin(ip, "other-" + UUID.randomUUID()).block().allowed()).isTrue();
+        assertThat(rateLimiter.tryAcquireLogin(ip, "other-" + UUID.randomUUID()).block().allowed()).isFalse();
+    }
+
+    @Test
+    void shouldAnswerFromValkeyWithoutFallingBack() {
+        // Given
+        double fallbacks = meterRegistry.counter("auth.rate.limit.fallback").count();
+
+        // When
+        rateLimiter.tryAcquireSignup(ip()).block();
+
+        // Then
+        assertThat(meterRegistry.counter("auth.rate.limit.fallback").count()).isEqualTo(fallbacks);
+        assertThat(meterRegistry.get("auth.rate.limit.check").tag("store", "valkey").timer().count()).isPositive();
+    }
+
+    private double tokens(String key) {
+        return Double.parseDouble(redisTemplate.<String, String>opsForHash().get(key, "tokens").block());
+    }
+
+    // Only used as a key, so it does not need to look like an address
+    private static String ip() {
+        return "client-" + UUID.randomUUID();
+    }
+}
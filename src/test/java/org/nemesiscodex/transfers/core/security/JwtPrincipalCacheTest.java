@@ -0,0 +1,82 @@
+package org.nemesiscodex.transfers.core.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtPrincipalCacheTest {
+
+    private JwtPrincipalCache cache;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new JwtPrincipalCache(100, Duration.ofMinutes(5), meterRegistry);
+    }
+
+    @Test
+    void shouldReturnCachedAuthenticationForSameToken() {
+        // Given
+        Authentication authentication = authentication("testuser");
+        String key = cache.keyFor("header.payload.signature");
+
+        // When
+        cache.put(key, authentication, Instant.now().plus(Duration.ofHours(1)));
+
+        // Then
+        assertThat(cache.get(cache.keyFor("header.payload.signature"))).isSameAs(authentication);
+        assertThat(cache.get(cache.keyFor("other.payload.signature"))).isNull();
+    }
+
+    @Test
+    void shouldNotKeepRawTokenAsKey() {
+        // Given
+        String token = "header.payload.signature";
+
+        // When
+        String key = cache.keyFor(token);
+
+        // Then
+        assertThat(key).isNotEqualTo(token).hasSize(64);
+    }
+
+    @Test
+    void shouldNotCacheExpiredToken() {
+        // Given
+        String key = cache.keyFor("header.payload.signature");
+
+        // When
+        cache.put(key, authentication("testuser"), Instant.now().minusSeconds(1));
+
+        // Then
+        assertThat(cache.get(key)).isNull();
+    }
+
+    @Test
+    void shouldRecordHitsAndMisses() {
+        // Given
+        String key = cache.keyFor("header.payload.signature");
+        cache.get(key);
+        cache.put(key, authentication("testuser"), Instant.now().plus(Duration.ofHours(1)));
+
+        // When
+        cache.get(key);
+
+        // Then
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+
+    private Authentication authentication(String username) {
+        return UsernamePasswordAuthenticationToken.authenticated(username, "token", List.of());
+    }
+}
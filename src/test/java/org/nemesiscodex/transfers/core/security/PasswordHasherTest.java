@@ -0,0 +1,80 @@
+package org.nemesiscodex.transfers.core.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PasswordHasherTest {
+
+    @Test
+    void shouldHashOffTheCallingThread() {
+        // Given
+        PasswordHasher hasher = new PasswordHasher(new RecordingEncoder(null), new SimpleMeterRegistry(), 1, 4);
+
+        // When/Then
+        StepVerifier.create(hasher.encode("password"))
+            .assertNext(thread -> assertThat(thread).startsWith("password-hash"))
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldShedWhenMaxPendingIsReached() throws Exception {
+        // Given: one thread blocked in the encoder, one call queued behind it
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PasswordHasher hasher = new PasswordHasher(new RecordingEncoder(release), meterRegistry, 1, 2);
+        var running = Flux.merge(hasher.encode("first"), hasher.encode("second")).collectList().toFuture();
+
+        // When/Then
+        StepVerifier.create(hasher.encode("third"))
+            .expectError(RejectedExecutionException.class)
+            .verify();
+        assertThat(meterRegistry.get("password.hash.rejected").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).hasSize(2);
+        StepVerifier.create(hasher.encode("fourth"))
+            .expectNextCount(1)
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void shouldPickHighestStrengthWithinTarget() {
+        long atMin = Duration.ofMillis(50).toNanos();
+
+        assertThat(BCryptWorkFactor.strengthFor(Duration.ofMillis(10).toNanos(), atMin)).isEqualTo(10);
+        assertThat(BCryptWorkFactor.strengthFor(Duration.ofMillis(250).toNanos(), atMin)).isEqualTo(12);
+        assertThat(BCryptWorkFactor.strengthFor(Duration.ofSeconds(60).toNanos(), atMin)).isEqualTo(16);
+    }
+
+    // Answers with the hashing thread's name, optionally blocking until released
+    private record RecordingEncoder(CountDownLatch release) implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            if (release != null) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return Thread.currentThread().getName();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return true;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.nemesiscodex.transfers.core.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -8,8 +9,11 @@ import org.nemesiscodex.transfers.core.dto.LoginRequest;
 import org.nemesiscodex.transfers.core.dto.SignupRequest;
 import org.nemesiscodex.transfers.core.entity.User;
 import org.nemesiscodex.transfers.core.repository.UserRepository;
-import org.nemesiscodex.transfers.core.util.DbTransactionUtil;
+import org.nemesiscodex.transfers.core.security.PasswordHasher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import reactor.core.publisher.Mono;
@@ -20,6 +24,9 @@ import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,64 +35,57 @@ class AuthServiceTest {
     private AuthService authService;
     private UserRepository userRepository;
     private PasswordEncoder passwordEncoder;
+    private ReactiveUserDetailsPasswordService passwordService;
     private JwtService jwtService;
-    private DbTransactionUtil db;
 
     @BeforeEach
     void setUp() {
         userRepository = mock(UserRepository.class);
-        passwordEncoder = new BCryptPasswordEncoder();
+        passwordEncoder = new BCryptPasswordEncoder(4);
+        passwordService = mock(ReactiveUserDetailsPasswordService.class);
         jwtService = mock(JwtService.class);
-        db = mock(DbTransactionUtil.class);
-        authService = new AuthService(userRepository, passwordEncoder, jwtService, db);
+        authService = new AuthService(
+            userRepository, new PasswordHasher(passwordEncoder, new SimpleMeterRegistry(), 2, 16), passwordService, jwtService);
     }
 
     @Test
     void shouldSignupUser() {
         // Given
         String rawPassword = "password123";
+        SignupRequest request = new SignupRequest("testuser", rawPassword, "test@example.com");
+
+        when(userRepository.insert(eq("testuser"), anyString(), eq("test@example.com")))
+            .thenAnswer(invocation -> Mono.just(User.builder()
+                .id(UUID.randomUUID())
+                .username(invocation.getArgument(0))
+                .passwordHash(invocation.getArgument(1))
+                .email(invocation.getArgument(2))
+                .createdAt(Instant.now())
+                .updatedAt(Instant.now())
+                .build()));
 
-        String hashedPassword = passwordEncoder.encode(rawPassword);
-        User newUser = User.builder()
-        .id(UUID.randomUUID())
-        .username("testuser")
-        .passwordHash(hashedPassword)
-        .email("test@example.com")
-        .createdAt(Instant.now())
-        .updatedAt(Instant.now())
-        .build();
-        SignupRequest request = new SignupRequest(newUser.username(), rawPassword, newUser.email());
-
-        when(userRepository.existsByUsername("testuser")).thenReturn(Mono.just(false));
-        when(userRepository.existsByEmail("test@example.com")).thenReturn(Mono.just(false));
-        when(userRepository.save(any(User.class)))
-            .thenReturn(Mono.just(newUser));
-        when(userRepository.findById(newUser.id()))
-            .thenReturn(Mono.just(newUser));
-
-        when(db.runInTransaction(any())).thenCallRealMethod();
         // When/Then
         StepVerifier.create(authService.signup(request))
             .assertNext(user -> {
                 assertThat(user.username()).isEqualTo("testuser");
                 assertThat(user.email()).isEqualTo("test@example.com");
+                assertThat(user.createdAt()).isNotNull();
                 assertThat(user.passwordHash()).isNotEqualTo("password123"); // Should be hashed
                 assertThat(passwordEncoder.matches("password123", user.passwordHash())).isTrue();
             })
             .verifyComplete();
 
-        verify(userRepository).existsByUsername("testuser");
-        verify(userRepository).existsByEmail("test@example.com");
-        verify(userRepository).save(any(User.class));
+        verify(userRepository).insert(eq("testuser"), anyString(), eq("test@example.com"));
+        verifyNoMoreInteractions(userRepository);
     }
 
     @Test
-    void shouldRejectDuplicateUsername() {
+    void shouldRejectDuplicateUsernameOrEmail() {
         // Given
         SignupRequest request = new SignupRequest("existinguser", "password123", "test@example.com");
 
-        when(userRepository.existsByUsername("existinguser")).thenReturn(Mono.just(true));
-        when(userRepository.existsByEmail("test@example.com")).thenReturn(Mono.just(false));
+        when(userRepository.insert(eq("existinguser"), anyString(), eq("test@example.com")))
+            .thenReturn(Mono.error(new DuplicateKeyException("duplicate key value violates unique constraint")));
 
         // When/Then
         authService.signup(request).as(StepVerifier::create)
@@ -94,27 +94,6 @@ class AuthServiceTest {
                 assertThat(ex.getMessage()).isEqualTo("Username or email already exists");
             })
             .verify();
-
-        verify(userRepository, never()).save(any(User.class));
-    }
-
-    @Test
-    void shouldRejectDuplicateEmail() {
-        // Given
-        SignupRequest request = new SignupRequest("newuser", "password123", "existing@example.com");
-
-        when(userRepository.existsByUsername("newuser")).thenReturn(Mono.just(false));
-        when(userRepository.existsByEmail("existing@example.com")).thenReturn(Mono.just(true));
-
-        // When/Then
-        StepVerifier.create(authService.signup(request))
-            .expectErrorSatisfies(ex -> {
-                assertThat(ex).isInstanceOf(IllegalStateException.class);
-                assertThat(ex.getMessage()).isEqualTo("Username or email already exists");
-            })
-            .verify();
-
-        verify(userRepository, never()).save(any(User.class));
     }
 
     @Test
@@ -186,5 +165,90 @@ class AuthServiceTest {
 
         verify(jwtService, never()).generateToken(any(), any());
     }
-}
 
+    @Test
+    void shouldUpgradeWeakerHashOnLogin() {
+        // Given
+        String password = "password123";
+        User user = new User(
+            UUID.randomUUID(),
+            "testuser",
+            new BCryptPasswordEncoder(4).encode(password),
+            "test@example.com",
+            Instant.now(),
+            Instant.now()
+        );
+        authService = new AuthService(
+            userRepository,
+            new PasswordHasher(new BCryptPasswordEncoder(5), new SimpleMeterRegistry(), 2, 16),
+            passwordService,
+            jwtService);
+
+        when(userRepository.findByUsername("testuser")).thenReturn(Mono.just(user));
+        when(jwtService.generateToken(user.id(), user.username())).thenReturn("test-jwt-token");
+        when(passwordService.updatePassword(any(UserDetails.class), anyString()))
+            .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        // When/Then
+        StepVerifier.create(authService.login(new LoginRequest("testuser", password)))
+            .expectNextCount(1)
+            .verifyComplete();
+
+        verify(passwordService).updatePassword(
+            argThat(details -> details.getUsername().equals("testuser")),
+            argThat(hash -> hash.startsWith("$2a$05$") && new BCryptPasswordEncoder(5).matches(password, hash)));
+    }
+
+    @Test
+    void shouldLoginWhenHashUpgradeFails() {
+        // Given
+        String password = "password123";
+        User user = new User(
+            UUID.randomUUID(),
+            "testuser",
+            new BCryptPasswordEncoder(4).encode(password),
+            "test@example.com",
+            Instant.now(),
+            Instant.now()
+        );
+        authService = new AuthService(
+            userRepository,
+            new PasswordHasher(new BCryptPasswordEncoder(5), new SimpleMeterRegistry(), 2, 16),
+            passwordService,
+            jwtService);
+
+        when(userRepository.findByUsername("testuser")).thenReturn(Mono.just(user));
+        when(jwtService.generateToken(user.id(), user.username())).thenReturn("test-jwt-token");
+        when(passwordService.updatePassword(any(UserDetails.class), anyString()))
+            .thenReturn(Mono.error(new IllegalStateException("database down")));
+
+        // When/Then
+        StepVerifier.create(authService.login(new LoginRequest("testuser", password)))
+            .assertNext(result -> assertThat(result.token()).isEqualTo("test-jwt-token"))
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldNotUpgradeCurrentHash() {
+        // Given
+        String password = "password123";
+        User user = new User(
+            UUID.randomUUID(),
+            "testuser",
+            passwordEncoder.encode(password),
+            "test@example.com",
+            Instant.now(),
+            Instant.now()
+        );
+
+        when(userRepository.findByUsername("testuser")).thenReturn(Mono.just(user));
+        when(jwtService.generateToken(user.id(), user.username())).thenReturn("test-jwt-token");
+
+        // When/Then
+        StepVerifier.create(authService.login(new LoginRequest("testuser", password)))
+            .expectNextCount(1)
+            .verifyComplete();
+
+        verifyNoInteractions(passwordService);
+    }
+}
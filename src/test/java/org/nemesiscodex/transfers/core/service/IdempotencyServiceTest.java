@@ -0,0 +1,235 @@
+package org.nemesiscodex.transfers.core.service;
+
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.LedgerFixtures;
+import org.nemesiscodex.transfers.config.TestContainers;
+import org.nemesiscodex.transfers.naive.dto.TransferResponse;
+import org.nemesiscodex.transfers.naive.service.TransferService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.function.Tuple2;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Runs keyed transfers through the real transfer path, with a short pending-ttl so takeovers happen in-test
+@Import({TestContainers.class, LedgerFixtures.class})
+@SpringBootTest(properties = {
+    "spring.flyway.enabled=true",
+    "idempotency.pending-ttl=1s",
+    "idempotency.wait-timeout=3s"
+})
+class IdempotencyServiceTest {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("10.00");
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private LedgerFixtures fixtures;
+
+    @Autowired
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Test
+    void shouldReplayStoredResponseWithoutTransferringAgain() {
+        // Given
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+        AtomicInteger runs = new AtomicInteger();
+        TransferResponse first = execute(alice, "replay", bob, counted(runs, transfer(alice, bob))).block();
+
+        // When
+        TransferResponse second = execute(alice, "replay", bob, counted(runs, transfer(alice, bob))).block();
+
+        // Then
+        assertThat(second.id()).isEqualTo(first.id());
+        assertThat(runs).hasValue(1);
+        assertThat(transferCount(alice)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectKeyReusedForADifferentRequest() {
+        // Given
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+        execute(alice, "reused", bob, transfer(alice, bob)).block();
+
+        // When/Then
+        StepVerifier.create(idempotencyService.execute(
+                alice, "reused", bob + "|20", TransferResponse.class, transfer(alice, bob)))
+            .expectError(IllegalArgumentException.class)
+            .verify();
+        assertThat(transferCount(alice)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRunConcurrentDuplicatesOnce() {
+        // Given
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+        AtomicInteger runs = new AtomicInteger();
+        Supplier<Mono<TransferResponse>> slow =
+            counted(runs, () -> transfer(alice, bob).get().delayElement(Duration.ofMillis(300)));
+
+        // When: the duplicate waits for the first attempt and replays its response
+        Tuple2<TransferResponse, TransferResponse> responses = Mono.zip(
+                execute(alice, "concurrent", bob, slow),
+                execute(alice, "concurrent", bob, slow))
+            .block();
+
+        // Then
+        assertThat(responses.getT1().id()).isEqualTo(responses.getT2().id());
+        assertThat(runs).hasValue(1);
+        assertThat(openBalance(alice)).isEqualByComparingTo("90.00");
+    }
+
+    @Test
+    void shouldReplayFromPostgresWhenTheProcessDiesAfterCommit() {
+        // Given: the transfer and its response committed, then the Valkey copy was never written
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+        TransferResponse first = execute(alice, "after-commit", bob, transfer(alice, bob)).block();
+        redisTemplate.delete("idempotency:" + alice + ":after-commit").block();
+        // Past pending-ttl, when the old code would have let a retry take a PENDING key over
+        Mono.delay(Duration.ofMillis(1200)).block();
+        AtomicInteger runs = new AtomicInteger();
+
+        // When
+        TransferResponse retried = execute(alice, "after-commit", bob, counted(runs, transfer(alice, bob))).block();
+
+        // Then
+        assertThat(retried.id()).isEqualTo(first.id());
+        assertThat(runs).hasValue(0);
+        assertThat(openBalance(alice)).isEqualByComparingTo("90.00");
+    }
+
+    @Test
+    void shouldRollBackAnAttemptWhoseReservationWasTakenOver() {
+        // Given: the first attempt outlives pending-ttl while holding its transfer uncommitted
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+        CompletableFuture<TransferResponse> slow = execute(alice, "takeover", bob,
+                () -> transfer(alice, bob).get().delayElement(Duration.ofMillis(1500)))
+            .toFuture();
+        Mono.delay(Duration.ofMillis(1200)).block();
+
+        // When: a retry takes the expired reservation over; its transfer waits on the first one's row locks
+        TransferResponse retried = execute(alice, "takeover", bob, transfer(alice, bob)).block();
+
+        // Then: the first attempt no longer owns the key and rolls back instead of committing a second time
+        assertThatThrownBy(slow::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(retried).isNotNull();
+        assertThat(transferCount(alice)).isEqualTo(1);
+        assertThat(openBalance(alice)).isEqualByComparingTo("90.00");
+    }
+
+    @Test
+    void shouldReleaseTheKeyWhenTheTransferFails() {
+        // Given
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        StepVerifier.create(execute(alice, "release", bob, transfer(alice, bob)))
+            .expectErrorMessage("Insufficient funds")
+            .verify();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+
+        // When
+        TransferResponse retried = execute(alice, "release", bob, transfer(alice, bob)).block();
+
+        // Then
+        assertThat(retried.balance()).isEqualByComparingTo("90.00");
+        assertThat(transferCount(alice)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldWaitOnAPendingValkeyKeyWithoutADurableReservation() {
+        // Given: an attempt reserved the key in Valkey and died before reserving it in Postgres
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+        redisTemplate.opsForValue().set(
+                "idempotency:" + alice + ":crashed",
+                jsonMapper.writeValueAsString(new IdempotencyService.StoredRecord(
+                    IdempotencyService.Status.PENDING, IdempotencyService.fingerprint(bob + "|10"), null)),
+                Duration.ofSeconds(30))
+            .block();
+        AtomicInteger runs = new AtomicInteger();
+        long start = System.nanoTime();
+
+        // When/Then: the retry polls for wait-timeout instead of spinning until the key expires
+        assertThatThrownBy(() -> execute(alice, "crashed", bob, counted(runs, transfer(alice, bob))).block())
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("still in progress");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isBetween(Duration.ofSeconds(2), Duration.ofSeconds(10));
+        assertThat(runs).hasValue(0);
+        redisTemplate.delete("idempotency:" + alice + ":crashed").block();
+    }
+
+    private Mono<TransferResponse> execute(
+        UUID userId, String key, UUID recipientId, Supplier<Mono<TransferResponse>> action) {
+        return idempotencyService.execute(userId, key, recipientId + "|10", TransferResponse.class, action);
+    }
+
+    private Supplier<Mono<TransferResponse>> transfer(UUID senderId, UUID recipientId) {
+        return () -> transferService.transferInTransaction(senderId, recipientId, AMOUNT)
+            .map(result -> new TransferResponse(
+                result.transfer().id(),
+                result.transfer().userId(),
+                result.transfer().recipientId(),
+                result.transfer().amount(),
+                result.senderBalance(),
+                result.transfer().createdAt()));
+    }
+
+    private Supplier<Mono<TransferResponse>> counted(AtomicInteger runs, Supplier<Mono<TransferResponse>> action) {
+        return () -> {
+            runs.incrementAndGet();
+            return action.get();
+        };
+    }
+
+    private long transferCount(UUID userId) {
+        return databaseClient.sql("select count(*) as n from naive_transfer where user_id = :userId")
+            .bind("userId", userId)
+            .map((row, metadata) -> row.get("n", Long.class))
+            .one()
+            .block();
+    }
+
+    private BigDecimal openBalance(UUID userId) {
+        return databaseClient.sql("select amount from naive_balance where user_id = :userId and close_ledger_id is null")
+            .bind("userId", userId)
+            .map((row, metadata) -> row.get("amount", BigDecimal.class))
+            .one()
+            .block();
+    }
+}
@@ -2,6 +2,7 @@ package org.nemesiscodex.transfers.core.service;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.core.security.AuthenticatedUser;
 import reactor.test.StepVerifier;
 
 import java.util.UUID;
@@ -97,5 +98,49 @@ class JwtServiceTest {
             .expectError(IllegalArgumentException.class)
             .verify();
     }
-}
 
+    @Test
+    void shouldVerifyTokenAndReturnClaims() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        String username = "testuser";
+        String token = jwtService.generateToken(userId, username);
+
+        // When/Then
+        StepVerifier.create(jwtService.verify(token))
+            .assertNext(claims -> {
+                assertThat(claims.getSubject()).isEqualTo(username);
+                assertThat(claims.get("userId", String.class)).isEqualTo(userId.toString());
+                assertThat(claims.getExpiration()).isNotNull();
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldRejectVerificationOfInvalidToken() {
+        // Given
+        String invalidToken = "invalid.token.here";
+
+        // When/Then
+        StepVerifier.create(jwtService.verify(invalidToken))
+            .expectError(IllegalArgumentException.class)
+            .verify();
+    }
+
+    @Test
+    void shouldBuildPrincipalFromVerifiedClaims() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        String username = "testuser";
+        String token = jwtService.generateToken(userId, username);
+
+        // When/Then
+        StepVerifier.create(jwtService.verify(token).map(AuthenticatedUser::from))
+            .assertNext(principal -> {
+                assertThat(principal.userId()).isEqualTo(userId);
+                assertThat(principal.username()).isEqualTo(username);
+                assertThat(principal.roles()).containsExactly("USER");
+            })
+            .verifyComplete();
+    }
+}
@@ -0,0 +1,160 @@
+package org.nemesiscodex.transfers.core.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.TestContainers;
+import org.nemesiscodex.transfers.core.dto.SignupRequest;
+import org.nemesiscodex.transfers.core.security.PasswordHasher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Races signups for the same username and email against the TestContainers Postgres
+@Import(TestContainers.class)
+@SpringBootTest(properties = "spring.flyway.enabled=true")
+class SignupConcurrencyTest {
+
+    private static final int CONCURRENCY = 32;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Test
+    void shouldCreateOneUserWhenUsernameIsRacedFor() {
+        // Given
+        String username = "race-" + UUID.randomUUID();
+
+        // When
+        List<String> outcomes = race(i -> new SignupRequest(username, "password123", username + "-" + i + "@example.com"));
+
+        // Then
+        assertThat(outcomes).filteredOn("created"::equals).hasSize(1);
+        assertThat(outcomes).filteredOn("conflict"::equals).hasSize(CONCURRENCY - 1);
+        assertThat(count("select count(*) from users where username = :value", username)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldCreateOneUserWhenEmailIsRacedFor() {
+        // Given
+        String email = "race-" + UUID.randomUUID() + "@example.com";
+
+        // When
+        List<String> outcomes = race(i -> new SignupRequest("race-" + UUID.randomUUID(), "password123", email));
+
+        // Then
+        assertThat(outcomes).filteredOn("created"::equals).hasSize(1);
+        assertThat(outcomes).filteredOn("conflict"::equals).hasSize(CONCURRENCY - 1);
+        assertThat(count("select count(*) from users where email = :value", email)).isEqualTo(1);
+    }
+
+    // Prints signup latency next to the previous exists/exists/insert/select sequence on the same
+    // database. Run with ./gradlew loadTest --tests '*SignupConcurrencyTest'
+    @Test
+    @Tag("loadtest")
+    void compareWithCheckThenInsert() {
+        SimpleMeterRegistry results = new SimpleMeterRegistry();
+        Timer single = timer(results, "single-query");
+        Timer checked = timer(results, "check-then-insert");
+        int signups = Integer.getInteger("loadtest.signups", 2000);
+
+        Flux.range(0, signups)
+            .flatMap(i -> timed(single, this.authService.signup(request())), CONCURRENCY)
+            .blockLast();
+        Flux.range(0, signups)
+            .flatMap(i -> timed(checked, checkThenInsert(request())), CONCURRENCY)
+            .blockLast();
+
+        for (Timer timer : List.of(single, checked)) {
+            StringBuilder line = new StringBuilder(String.format("%-18s n=%d mean=%.2fms",
+                timer.getId().getTag("flow"), timer.count(), timer.mean(TimeUnit.MILLISECONDS)));
+            for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+                line.append(String.format(" p%.0f=%.2fms", percentile.percentile() * 100,
+                    percentile.value(TimeUnit.MILLISECONDS)));
+            }
+            System.out.println(line);
+        }
+        assertThat(single.count()).isEqualTo(signups);
+    }
+
+    private List<String> race(Function<Integer, SignupRequest> requests) {
+        return Flux.range(0, CONCURRENCY)
+            .flatMap(i -> this.authService.signup(requests.apply(i))
+                .map(user -> "created")
+                .onErrorResume(IllegalStateException.class, ex -> Mono.just("conflict")), CONCURRENCY)
+            .collectList()
+            .block();
+    }
+
+    private Mono<?> checkThenInsert(SignupRequest request) {
+        Mono<Boolean> emailTaken = exists("select exists(select 1 from users where email = :value) as taken", request.email());
+        Mono<Boolean> usernameTaken = exists("select exists(select 1 from users where username = :value) as taken", request.username());
+        return Mono.zip(emailTaken, usernameTaken)
+            .then(this.passwordHasher.encode(request.password()))
+            .flatMap(hash -> this.databaseClient.sql("""
+                    insert into users (username, password_hash, email) values (:username, :hash, :email)
+                    returning id
+                    """)
+                .bind("username", request.username())
+                .bind("hash", hash)
+                .bind("email", request.email())
+                .map((row, metadata) -> row.get("id", UUID.class))
+                .one())
+            .flatMap(id -> this.databaseClient.sql("select * from users where id = :id")
+                .bind("id", id)
+                .fetch()
+                .one());
+    }
+
+    private Mono<Boolean> exists(String sql, String value) {
+        return this.databaseClient.sql(sql)
+            .bind("value", value)
+            .map((row, metadata) -> row.get("taken", Boolean.class))
+            .one();
+    }
+
+    private long count(String sql, String value) {
+        return this.databaseClient.sql(sql)
+            .bind("value", value)
+            .map((row, metadata) -> row.get(0, Long.class))
+            .one()
+            .block();
+    }
+
+    private static SignupRequest request() {
+        String username = "load-" + UUID.randomUUID();
+        return new SignupRequest(username, "password123", username + "@example.com");
+    }
+
+    private static Mono<?> timed(Timer timer, Mono<?> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnSuccess(ignored -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    private static Timer timer(SimpleMeterRegistry registry, String flow) {
+        return Timer.builder("signup")
+            .tag("flow", flow)
+            .publishPercentiles(0.5, 0.9, 0.99)
+            .register(registry);
+    }
+}
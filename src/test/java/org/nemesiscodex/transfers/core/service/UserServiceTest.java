@@ -0,0 +1,141 @@
+package org.nemesiscodex.transfers.core.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.core.cache.SingleFlight;
+import org.nemesiscodex.transfers.core.cache.UserCache;
+import org.nemesiscodex.transfers.core.entity.User;
+import org.nemesiscodex.transfers.core.repository.UserRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class UserServiceTest {
+
+    private UserService userService;
+    private UserRepository userRepository;
+    private UserCache userCache;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        userCache = mock(UserCache.class);
+        userService = new UserService(userRepository, userCache, new SingleFlight(new SimpleMeterRegistry()));
+        user = new User(
+            UUID.randomUUID(),
+            "testuser",
+            "hashedPassword",
+            "test@example.com",
+            Instant.now(),
+            Instant.now()
+        );
+    }
+
+    @Test
+    void shouldServeCachedUserWithoutDatabaseRead() {
+        // Given
+        when(userCache.getByUsername("testuser")).thenReturn(Mono.just(user));
+
+        // When/Then
+        StepVerifier.create(userService.findByUsername("testuser"))
+            .expectNext(user)
+            .verifyComplete();
+
+        verify(userRepository, never()).findByUsername(any());
+    }
+
+    @Test
+    void shouldLoadFromDatabaseAndPopulateCacheOnMiss() {
+        // Given
+        User cached = UserCache.cacheable(user);
+        when(userCache.getById(user.id())).thenReturn(Mono.empty());
+        when(userRepository.findById(user.id())).thenReturn(Mono.just(user));
+        when(userCache.put(cached)).thenReturn(Mono.empty());
+
+        // When/Then
+        StepVerifier.create(userService.findById(user.id()))
+            .expectNext(cached)
+            .verifyComplete();
+
+        verify(userCache).put(cached);
+    }
+
+    @Test
+    void shouldKeepPasswordHashOutOfCache() {
+        // Given
+        when(userCache.getByUsername("testuser")).thenReturn(Mono.empty());
+        when(userRepository.findByUsername("testuser")).thenReturn(Mono.just(user));
+        when(userCache.put(any())).thenReturn(Mono.empty());
+
+        // When/Then
+        StepVerifier.create(userService.findByUsername("testuser"))
+            .assertNext(found -> assertThat(found.passwordHash()).isNull())
+            .verifyComplete();
+
+        verify(userCache).put(argThat(cached -> cached.passwordHash() == null));
+    }
+
+    @Test
+    void shouldReadCredentialsFromDatabaseOnly() {
+        // Given
+        when(userRepository.findByUsername("testuser")).thenReturn(Mono.just(user));
+
+        // When/Then
+        StepVerifier.create(userService.findCredentialsByUsername("testuser"))
+            .expectNext(user)
+            .verifyComplete();
+
+        verifyNoInteractions(userCache);
+    }
+
+    @Test
+    void shouldShareDatabaseReadBetweenConcurrentMisses() {
+        // Given
+        Sinks.One<User> row = Sinks.one();
+        User cached = UserCache.cacheable(user);
+        when(userCache.getById(user.id())).thenReturn(Mono.empty());
+        when(userRepository.findById(user.id())).thenReturn(row.asMono());
+        when(userCache.put(cached)).thenReturn(Mono.empty());
+
+        // When
+        Mono<List<User>> all = Flux.merge(
+                userService.findById(user.id()),
+                userService.findById(user.id()),
+                userService.findById(user.id()))
+            .collectList();
+
+        // Then
+        StepVerifier.create(all)
+            .then(() -> row.tryEmitValue(user))
+            .expectNext(List.of(cached, cached, cached))
+            .verifyComplete();
+        verify(userRepository, times(1)).findById(user.id());
+        verify(userCache, times(1)).put(cached);
+    }
+
+    @Test
+    void shouldEvictCachedUserOnSave() {
+        // Given
+        when(userRepository.save(user)).thenReturn(Mono.just(user));
+        when(userCache.evict(user)).thenReturn(Mono.empty());
+
+        // When/Then
+        StepVerifier.create(userService.save(user))
+            .expectNext(user)
+            .verifyComplete();
+
+        verify(userCache).evict(user);
+    }
+}
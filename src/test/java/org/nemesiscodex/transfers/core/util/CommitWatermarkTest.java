@@ -0,0 +1,22 @@
+package org.nemesiscodex.transfers.core.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class CommitWatermarkTest {
+
+    @Test
+    void shouldOnlyReleaseWatermarksOnceTheirTransactionsFinished() {
+        // Given
+        CommitWatermark watermark = new CommitWatermark(mock(DatabaseClient.class), "naive_ledger_seq_seq");
+
+        // When/Then
+        assertThat(watermark.safe(new CommitWatermark.Watermark(10, 100), 90)).isEqualTo(-1);
+        assertThat(watermark.safe(new CommitWatermark.Watermark(20, 120), 110)).isEqualTo(10);
+        assertThat(watermark.safe(new CommitWatermark.Watermark(30, 130), 130)).isEqualTo(30);
+        assertThat(watermark.safe(new CommitWatermark.Watermark(30, 140), 135)).isEqualTo(-1);
+    }
+}
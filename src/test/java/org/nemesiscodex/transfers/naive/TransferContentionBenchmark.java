@@ -0,0 +1,136 @@
+package org.nemesiscodex.transfers.naive;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.naive.service.TransferService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Throughput of the naive transfer path as the same transfers are squeezed onto fewer users. With two
+// users every transfer queues on the same pair of row locks; with many, the locks rarely collide.
+// Run with ./gradlew benchmark; prints transfers/s and the mean lock wait per hot-set size.
+@Tag("benchmark")
+@Testcontainers
+@SpringBootTest(properties = "spring.flyway.enabled=true")
+class TransferContentionBenchmark {
+
+    private static final int[] HOT_USERS = {2, 10, 50, 500};
+    private static final int TRANSFERS = 2_000;
+    private static final int CONCURRENCY = 16;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer postgres = new PostgreSQLContainer(DockerImageName.parse("postgres:latest"));
+
+    @DynamicPropertySource
+    static void flyway(DynamicPropertyRegistry registry) {
+        registry.add("spring.flyway.url", postgres::getJdbcUrl);
+        registry.add("spring.flyway.user", postgres::getUsername);
+        registry.add("spring.flyway.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void measureThroughputUnderContention() {
+        Timer lockTimer = meterRegistry.get("naive.transfer.lock").timer();
+        for (int hotUsers : HOT_USERS) {
+            List<UUID> users = seedUsers(hotUsers);
+            List<UUID[]> pairs = randomPairs(users);
+            long lockCount = lockTimer.count();
+            double lockNanos = lockTimer.totalTime(TimeUnit.NANOSECONDS);
+
+            long start = System.nanoTime();
+            Flux.fromIterable(pairs)
+                .flatMap(pair -> transferService.transfer(pair[0], pair[1], AMOUNT), CONCURRENCY)
+                .blockLast();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            double meanLockMillis = (lockTimer.totalTime(TimeUnit.NANOSECONDS) - lockNanos)
+                / (lockTimer.count() - lockCount) / 1e6;
+            System.out.printf("%4d users: %d transfers in %.2fs, %.0f transfers/s, mean lock wait %.2fms (concurrency %d)%n",
+                hotUsers, TRANSFERS, seconds, TRANSFERS / seconds, meanLockMillis, CONCURRENCY);
+
+            // Transfers only move money between seeded users, so the total never changes
+            assertThat(totalOpenBalance(users)).isEqualByComparingTo(INITIAL_BALANCE.multiply(BigDecimal.valueOf(hotUsers)));
+        }
+    }
+
+    private List<UUID> seedUsers(int count) {
+        return databaseClient.sql("""
+                with seeded as (
+                    insert into users (username, password_hash, email)
+                    select 'contention-' || :run || '-' || n, 'unused', 'contention-' || :run || '-' || n || '@example.com'
+                    from generate_series(1, :count) as n
+                    returning id
+                ),
+                deposit as (
+                    insert into naive_ledger (user_id, amount)
+                    select id, :initial from seeded
+                    returning id, user_id, amount, seq
+                ),
+                opened as (
+                    insert into naive_balance (user_id, amount, open_ledger_id, open_ledger_seq)
+                    select user_id, amount, id, seq from deposit
+                )
+                select user_id from deposit
+                """)
+            .bind("run", UUID.randomUUID().toString())
+            .bind("count", count)
+            .bind("initial", INITIAL_BALANCE)
+            .map((row, metadata) -> row.get("user_id", UUID.class))
+            .all()
+            .collectList()
+            .block();
+    }
+
+    private List<UUID[]> randomPairs(List<UUID> users) {
+        Random random = new Random(42);
+        List<UUID[]> pairs = new ArrayList<>(TRANSFERS);
+        while (pairs.size() < TRANSFERS) {
+            UUID sender = users.get(random.nextInt(users.size()));
+            UUID recipient = users.get(random.nextInt(users.size()));
+            if (!sender.equals(recipient)) {
+                pairs.add(new UUID[] {sender, recipient});
+            }
+        }
+        return pairs;
+    }
+
+    private BigDecimal totalOpenBalance(List<UUID> users) {
+        return databaseClient.sql("select sum(amount) as total from naive_balance where user_id = any(:ids) and close_ledger_id is null")
+            .bind("ids", users.toArray(UUID[]::new))
+            .map((row, metadata) -> row.get("total", BigDecimal.class))
+            .one()
+            .block();
+    }
+}
@@ -0,0 +1,140 @@
+package org.nemesiscodex.transfers.naive.controller;
+
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.SecurityConfig;
+import org.nemesiscodex.transfers.core.security.AuthenticatedUser;
+import org.nemesiscodex.transfers.naive.service.BalanceBatchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.security.autoconfigure.ReactiveUserDetailsServiceAutoConfiguration;
+import org.springframework.boot.security.autoconfigure.SecurityAutoConfiguration;
+import org.springframework.boot.security.autoconfigure.web.reactive.ReactiveWebSecurityAutoConfiguration;
+import org.springframework.boot.webflux.test.autoconfigure.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(
+    controllers = NaiveBalanceBatchController.class,
+    excludeAutoConfiguration = {
+        SecurityAutoConfiguration.class,
+        ReactiveWebSecurityAutoConfiguration.class,
+        ReactiveUserDetailsServiceAutoConfiguration.class
+    }
+)
+@Import(SecurityConfig.class)
+class NaiveBalanceBatchControllerTest {
+
+    private static final String BATCH_GET = "/naive/balances:batchGet";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoBean
+    private BalanceBatchService balanceBatchService;
+
+    @MockitoBean
+    private ReactiveUserDetailsService reactiveUserDetailsService;
+
+    @Test
+    void shouldStreamBalancesForBackOffice() {
+        // Given
+        AuthenticatedUser principal = principal(List.of(AuthenticatedUser.BACKOFFICE_ROLE));
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        when(balanceBatchService.getBalances(any())).thenAnswer(invocation -> {
+            Flux<UUID> userIds = invocation.getArgument(0);
+            return userIds.map(userId -> Map.entry(userId, userId.equals(first) ? new BigDecimal("12.50") : BigDecimal.ZERO));
+        });
+
+        // When
+        List<String> lines = webTestClient
+            .mutateWith(SecurityMockServerConfigurers.mockAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(principal, "token", principal.authorities())))
+            .post()
+            .uri(BATCH_GET)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .bodyValue(List.of(first, second))
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .returnResult(String.class)
+            .getResponseBody()
+            .collectList()
+            .block();
+
+        // Then
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).contains(first.toString()).contains("12.5");
+        assertThat(lines.get(1)).contains(second.toString()).contains("0");
+    }
+
+    @Test
+    void shouldForbidRegularUser() {
+        // Given
+        AuthenticatedUser principal = principal(AuthenticatedUser.DEFAULT_ROLES);
+
+        // When/Then
+        webTestClient
+            .mutateWith(SecurityMockServerConfigurers.mockAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(principal, "token", principal.authorities())))
+            .post()
+            .uri(BATCH_GET)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(List.of(principal.userId()))
+            .exchange()
+            .expectStatus().isForbidden();
+
+        verify(balanceBatchService, never()).getBalances(any());
+    }
+
+    @Test
+    void shouldNotServeTheMethodAsAPathSegment() {
+        // Given
+        AuthenticatedUser principal = principal(List.of(AuthenticatedUser.BACKOFFICE_ROLE));
+
+        // When/Then
+        webTestClient
+            .mutateWith(SecurityMockServerConfigurers.mockAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(principal, "token", principal.authorities())))
+            .post()
+            .uri("/naive/balances/:batchGet")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(List.of(UUID.randomUUID()))
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+
+    @Test
+    void shouldRejectUnauthenticatedRequest() {
+        // When/Then
+        webTestClient
+            .post()
+            .uri(BATCH_GET)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(List.of(UUID.randomUUID()))
+            .exchange()
+            .expectStatus().isUnauthorized();
+    }
+
+    private AuthenticatedUser principal(List<String> roles) {
+        return new AuthenticatedUser(UUID.randomUUID(), "backoffice", roles);
+    }
+}
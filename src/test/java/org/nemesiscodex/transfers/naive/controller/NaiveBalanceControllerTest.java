@@ -0,0 +1,99 @@
+package org.nemesiscodex.transfers.naive.controller;
+
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.SecurityConfig;
+import org.nemesiscodex.transfers.core.security.AuthenticatedUser;
+import org.nemesiscodex.transfers.naive.service.BalanceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.security.autoconfigure.ReactiveUserDetailsServiceAutoConfiguration;
+import org.springframework.boot.security.autoconfigure.SecurityAutoConfiguration;
+import org.springframework.boot.security.autoconfigure.web.reactive.ReactiveWebSecurityAutoConfiguration;
+import org.springframework.boot.webflux.test.autoconfigure.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(
+    controllers = NaiveBalanceController.class,
+    excludeAutoConfiguration = {
+        SecurityAutoConfiguration.class,
+        ReactiveWebSecurityAutoConfiguration.class,
+        ReactiveUserDetailsServiceAutoConfiguration.class
+    }
+)
+@Import(SecurityConfig.class)
+class NaiveBalanceControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoBean
+    private BalanceService balanceService;
+
+    @MockitoBean
+    private ReactiveUserDetailsService reactiveUserDetailsService;
+
+    @Test
+    void shouldReturnBalanceForPrincipalUserId() {
+        // Given
+        AuthenticatedUser principal = new AuthenticatedUser(UUID.randomUUID(), "testuser", AuthenticatedUser.DEFAULT_ROLES);
+
+        when(balanceService.getBalance(principal.userId())).thenReturn(Mono.just(new BigDecimal("42.50")));
+
+        // When/Then
+        webTestClient
+            .mutateWith(SecurityMockServerConfigurers.mockAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(principal, "token", principal.authorities())))
+            .get()
+            .uri("/naive/balance")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.userId").isEqualTo(principal.userId().toString())
+            .jsonPath("$.amount").isEqualTo(42.50);
+    }
+
+    @Test
+    void shouldReturnBalanceAsOfTimestamp() {
+        // Given
+        AuthenticatedUser principal = new AuthenticatedUser(UUID.randomUUID(), "testuser", AuthenticatedUser.DEFAULT_ROLES);
+        Instant asOf = Instant.parse("2025-01-31T23:59:59Z");
+
+        when(balanceService.getBalanceAsOf(principal.userId(), asOf)).thenReturn(Mono.just(new BigDecimal("10.00")));
+
+        // When/Then
+        webTestClient
+            .mutateWith(SecurityMockServerConfigurers.mockAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(principal, "token", principal.authorities())))
+            .get()
+            .uri(uriBuilder -> uriBuilder.path("/naive/balance").queryParam("asOf", asOf.toString()).build())
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.amount").isEqualTo(10.00);
+
+        verify(balanceService, never()).getBalance(principal.userId());
+    }
+
+    @Test
+    void shouldRejectUnauthenticatedRequest() {
+        // When/Then
+        webTestClient
+            .get()
+            .uri("/naive/balance")
+            .exchange()
+            .expectStatus().isUnauthorized();
+    }
+}
@@ -0,0 +1,109 @@
+package org.nemesiscodex.transfers.naive.controller;
+
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.SecurityConfig;
+import org.nemesiscodex.transfers.core.security.AuthenticatedUser;
+import org.nemesiscodex.transfers.naive.service.LedgerVerifier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.security.autoconfigure.ReactiveUserDetailsServiceAutoConfiguration;
+import org.springframework.boot.security.autoconfigure.SecurityAutoConfiguration;
+import org.springframework.boot.security.autoconfigure.web.reactive.ReactiveWebSecurityAutoConfiguration;
+import org.springframework.boot.webflux.test.autoconfigure.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(
+    controllers = NaiveLedgerController.class,
+    excludeAutoConfiguration = {
+        SecurityAutoConfiguration.class,
+        ReactiveWebSecurityAutoConfiguration.class,
+        ReactiveUserDetailsServiceAutoConfiguration.class
+    }
+)
+@Import(SecurityConfig.class)
+class NaiveLedgerControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoBean
+    private LedgerVerifier ledgerVerifier;
+
+    @MockitoBean
+    private ReactiveUserDetailsService reactiveUserDetailsService;
+
+    @Test
+    void shouldReturnReportForBackOffice() {
+        // Given
+        AuthenticatedUser principal = principal(List.of(AuthenticatedUser.BACKOFFICE_ROLE));
+        BigDecimal total = new BigDecimal("100.00");
+
+        when(ledgerVerifier.verify()).thenReturn(Mono.just(
+            new LedgerVerifier.Report(2, 3, total, BigDecimal.ZERO, total, BigDecimal.ZERO, 0, 0, 0, 0, 1)));
+
+        // When/Then
+        webTestClient
+            .mutateWith(SecurityMockServerConfigurers.mockAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(principal, "token", principal.authorities())))
+            .post()
+            .uri("/naive/ledger:verify")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.users").isEqualTo(2)
+            .jsonPath("$.brokenLinks").isEqualTo(1)
+            .jsonPath("$.conserved").isEqualTo(true)
+            .jsonPath("$.consistent").isEqualTo(false);
+    }
+
+    @Test
+    void shouldForbidRegularUser() {
+        // Given
+        AuthenticatedUser principal = principal(AuthenticatedUser.DEFAULT_ROLES);
+
+        // When/Then
+        webTestClient
+            .mutateWith(SecurityMockServerConfigurers.mockAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(principal, "token", principal.authorities())))
+            .post()
+            .uri("/naive/ledger:verify")
+            .exchange()
+            .expectStatus().isForbidden();
+
+        verify(ledgerVerifier, never()).verify();
+    }
+
+    @Test
+    void shouldNotServeTheMethodAsAPathSegment() {
+        // Given
+        AuthenticatedUser principal = principal(List.of(AuthenticatedUser.BACKOFFICE_ROLE));
+
+        // When/Then
+        webTestClient
+            .mutateWith(SecurityMockServerConfigurers.mockAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(principal, "token", principal.authorities())))
+            .post()
+            .uri("/naive/ledger/:verify")
+            .exchange()
+            .expectStatus().isNotFound();
+
+        verify(ledgerVerifier, never()).verify();
+    }
+
+    private AuthenticatedUser principal(List<String> roles) {
+        return new AuthenticatedUser(UUID.randomUUID(), "backoffice", roles);
+    }
+}
@@ -0,0 +1,242 @@
+package org.nemesiscodex.transfers.naive.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.SecurityConfig;
+import org.nemesiscodex.transfers.core.security.AuthenticatedUser;
+import org.nemesiscodex.transfers.core.service.IdempotencyService;
+import org.nemesiscodex.transfers.naive.dto.TransferRequest;
+import org.nemesiscodex.transfers.naive.dto.TransferResponse;
+import org.nemesiscodex.transfers.naive.entity.NaiveTransfer;
+import org.nemesiscodex.transfers.naive.service.TransferService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.security.autoconfigure.ReactiveUserDetailsServiceAutoConfiguration;
+import org.springframework.boot.security.autoconfigure.SecurityAutoConfiguration;
+import org.springframework.boot.security.autoconfigure.web.reactive.ReactiveWebSecurityAutoConfiguration;
+import org.springframework.boot.webflux.test.autoconfigure.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(
+    controllers = NaiveTransferController.class,
+    excludeAutoConfiguration = {
+        SecurityAutoConfiguration.class,
+        ReactiveWebSecurityAutoConfiguration.class,
+        ReactiveUserDetailsServiceAutoConfiguration.class
+    }
+)
+@Import(SecurityConfig.class)
+class NaiveTransferControllerTest {
+
+    private static final AuthenticatedUser PRINCIPAL =
+        new AuthenticatedUser(UUID.randomUUID(), "testuser", AuthenticatedUser.DEFAULT_ROLES);
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoBean
+    private TransferService transferService;
+
+    @MockitoBean
+    private IdempotencyService idempotencyService;
+
+    @MockitoBean
+    private ReactiveUserDetailsService reactiveUserDetailsService;
+
+    @BeforeEach
+    void setUp() {
+        // Without an Idempotency-Key the request goes straight to the transfer path
+        when(idempotencyService.execute(any(), isNull(), any(), eq(TransferResponse.class), any()))
+            .thenAnswer(invocation -> invocation.<Supplier<Mono<TransferResponse>>>getArgument(4).get());
+    }
+
+    @Test
+    void shouldCreateTransfer() {
+        // Given
+        UUID recipientId = UUID.randomUUID();
+        BigDecimal amount = new BigDecimal("10.00");
+        NaiveTransfer transfer = NaiveTransfer.from(PRINCIPAL.userId(), recipientId, amount).toBuilder()
+            .id(UUID.randomUUID())
+            .createdAt(Instant.now())
+            .build();
+
+        when(transferService.transfer(PRINCIPAL.userId(), recipientId, amount))
+            .thenReturn(Mono.just(new TransferService.TransferResult(transfer, new BigDecimal("90.00"))));
+
+        // When/Then
+        authenticated()
+            .post()
+            .uri("/naive/transfer")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new TransferRequest(recipientId, amount))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody()
+            .jsonPath("$.id").isEqualTo(transfer.id().toString())
+            .jsonPath("$.recipientId").isEqualTo(recipientId.toString())
+            .jsonPath("$.balance").isEqualTo(90.00);
+    }
+
+    @Test
+    void shouldRejectTransferWithInsufficientFunds() {
+        // Given
+        UUID recipientId = UUID.randomUUID();
+        BigDecimal amount = new BigDecimal("10.00");
+
+        when(transferService.transfer(PRINCIPAL.userId(), recipientId, amount))
+            .thenReturn(Mono.error(new IllegalStateException("Insufficient funds")));
+
+        // When/Then
+        authenticated()
+            .post()
+            .uri("/naive/transfer")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new TransferRequest(recipientId, amount))
+            .exchange()
+            .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    void shouldRejectTransferToUnknownRecipient() {
+        // Given
+        UUID recipientId = UUID.randomUUID();
+        BigDecimal amount = new BigDecimal("10.00");
+
+        when(transferService.transfer(PRINCIPAL.userId(), recipientId, amount))
+            .thenReturn(Mono.error(new IllegalArgumentException("Recipient not found")));
+
+        // When/Then
+        authenticated()
+            .post()
+            .uri("/naive/transfer")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new TransferRequest(recipientId, amount))
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldRejectNonPositiveAmount() {
+        // When/Then
+        authenticated()
+            .post()
+            .uri("/naive/transfer")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new TransferRequest(UUID.randomUUID(), new BigDecimal("-5.00")))
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        verify(transferService, never()).transfer(any(), any(), eq(new BigDecimal("-5.00")));
+    }
+
+    @Test
+    void shouldRejectUnauthenticatedRequest() {
+        // When/Then
+        webTestClient
+            .post()
+            .uri("/naive/transfer")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new TransferRequest(UUID.randomUUID(), BigDecimal.TEN))
+            .exchange()
+            .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void shouldReplayTransferForRepeatedIdempotencyKey() {
+        // Given
+        UUID recipientId = UUID.randomUUID();
+        BigDecimal amount = new BigDecimal("10.00");
+        TransferResponse stored = new TransferResponse(
+            UUID.randomUUID(), PRINCIPAL.userId(), recipientId, amount, new BigDecimal("90.00"), Instant.now());
+
+        when(idempotencyService.execute(
+            eq(PRINCIPAL.userId()), eq("retry-1"), eq(recipientId + "|10"), eq(TransferResponse.class), any()))
+            .thenReturn(Mono.just(stored));
+
+        // When/Then
+        authenticated()
+            .post()
+            .uri("/naive/transfer")
+            .header(IdempotencyService.HEADER, "retry-1")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new TransferRequest(recipientId, amount))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody()
+            .jsonPath("$.id").isEqualTo(stored.id().toString());
+
+        verify(transferService, never()).transfer(any(), any(), any());
+        verify(transferService, never()).transferInTransaction(any(), any(), any());
+    }
+
+    @Test
+    void shouldApplyKeyedTransferInTheIdempotencyTransaction() {
+        // Given
+        UUID recipientId = UUID.randomUUID();
+        BigDecimal amount = new BigDecimal("10.00");
+        NaiveTransfer transfer = NaiveTransfer.from(PRINCIPAL.userId(), recipientId, amount).toBuilder()
+            .id(UUID.randomUUID())
+            .createdAt(Instant.now())
+            .build();
+
+        when(idempotencyService.execute(any(), eq("first-1"), any(), eq(TransferResponse.class), any()))
+            .thenAnswer(invocation -> invocation.<Supplier<Mono<TransferResponse>>>getArgument(4).get());
+        when(transferService.transferInTransaction(PRINCIPAL.userId(), recipientId, amount))
+            .thenReturn(Mono.just(new TransferService.TransferResult(transfer, new BigDecimal("90.00"))));
+
+        // When/Then
+        authenticated()
+            .post()
+            .uri("/naive/transfer")
+            .header(IdempotencyService.HEADER, "first-1")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new TransferRequest(recipientId, amount))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody()
+            .jsonPath("$.id").isEqualTo(transfer.id().toString());
+
+        // The batching writer commits on its own, so the keyed path must not go through it
+        verify(transferService, never()).transfer(any(), any(), any());
+    }
+
+    @Test
+    void shouldRejectDuplicateWhileFirstRequestIsInProgress() {
+        // Given
+        when(idempotencyService.execute(any(), eq("retry-2"), any(), eq(TransferResponse.class), any()))
+            .thenReturn(Mono.error(new IllegalStateException("A request with this Idempotency-Key is still in progress")));
+
+        // When/Then
+        authenticated()
+            .post()
+            .uri("/naive/transfer")
+            .header(IdempotencyService.HEADER, "retry-2")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new TransferRequest(UUID.randomUUID(), BigDecimal.TEN))
+            .exchange()
+            .expectStatus().isEqualTo(409);
+    }
+
+    private WebTestClient authenticated() {
+        return webTestClient.mutateWith(SecurityMockServerConfigurers.mockAuthentication(
+            UsernamePasswordAuthenticationToken.authenticated(PRINCIPAL, "token", PRINCIPAL.authorities())));
+    }
+}
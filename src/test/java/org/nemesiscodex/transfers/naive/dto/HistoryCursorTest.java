@@ -0,0 +1,47 @@
+package org.nemesiscodex.transfers.naive.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HistoryCursorTest {
+
+    @Test
+    void shouldRoundTripEncodedCursor() {
+        // Given
+        var cursor = HistoryCursor.of(Instant.parse("2025-01-02T03:04:05.123456Z"), UUID.randomUUID());
+
+        // When
+        var decoded = HistoryCursor.decode(cursor.encode());
+
+        // Then
+        assertThat(decoded).isEqualTo(cursor);
+    }
+
+    @Test
+    void shouldKeepCreatedAtInUtc() {
+        // When
+        var cursor = HistoryCursor.of(Instant.parse("2025-01-02T03:04:05.123456Z"), UUID.randomUUID());
+
+        // Then
+        assertThat(cursor.createdAt()).isEqualTo(LocalDateTime.of(2025, 1, 2, 3, 4, 5, 123_456_000));
+    }
+
+    @Test
+    void shouldStartFromFirstPageWhenCursorIsMissing() {
+        assertThat(HistoryCursor.decode(null)).isEqualTo(HistoryCursor.FIRST_PAGE);
+        assertThat(HistoryCursor.decode("")).isEqualTo(HistoryCursor.FIRST_PAGE);
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() {
+        assertThatThrownBy(() -> HistoryCursor.decode("not-a-cursor"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Invalid cursor");
+    }
+}
@@ -0,0 +1,48 @@
+package org.nemesiscodex.transfers.naive.entity;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransferStateTest {
+
+    @Test
+    void shouldAllowForwardTransitions() {
+        assertThat(TransferState.PENDING.canTransitionTo(TransferState.PROCESSING)).isTrue();
+        assertThat(TransferState.PROCESSING.canTransitionTo(TransferState.COMPLETED)).isTrue();
+        assertThat(TransferState.PROCESSING.canTransitionTo(TransferState.FAILED)).isTrue();
+        assertThat(TransferState.PENDING.canTransitionTo(TransferState.FAILED)).isTrue();
+    }
+
+    @Test
+    void shouldAllowHandingProcessingTransferBack() {
+        assertThat(TransferState.PROCESSING.canTransitionTo(TransferState.PENDING)).isTrue();
+        assertThat(TransferState.SUBMITTING.canTransitionTo(TransferState.PENDING)).isTrue();
+    }
+
+    @Test
+    void shouldSettleSubmittedTransfers() {
+        assertThat(TransferState.PROCESSING.canTransitionTo(TransferState.SUBMITTING)).isTrue();
+        assertThat(TransferState.SUBMITTING.canTransitionTo(TransferState.COMPLETED)).isTrue();
+        assertThat(TransferState.SUBMITTING.canTransitionTo(TransferState.FAILED)).isTrue();
+        assertThat(TransferState.PENDING.canTransitionTo(TransferState.SUBMITTING)).isFalse();
+    }
+
+    @Test
+    void shouldNeverLeaveTerminalStates() {
+        for (TransferState target : TransferState.values()) {
+            assertThat(TransferState.COMPLETED.canTransitionTo(target)).isFalse();
+            assertThat(TransferState.FAILED.canTransitionTo(target)).isFalse();
+        }
+        assertThat(TransferState.COMPLETED.isTerminal()).isTrue();
+        assertThat(TransferState.FAILED.isTerminal()).isTrue();
+        assertThat(TransferState.PROCESSING.isTerminal()).isFalse();
+        assertThat(TransferState.SUBMITTING.isTerminal()).isFalse();
+    }
+
+    @Test
+    void shouldNotSkipProcessing() {
+        assertThat(TransferState.PENDING.canTransitionTo(TransferState.COMPLETED)).isFalse();
+        assertThat(TransferState.PENDING.canTransitionTo(TransferState.PENDING)).isFalse();
+    }
+}
@@ -0,0 +1,72 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.naive.entity.NaiveBalance;
+import org.nemesiscodex.transfers.naive.repository.NaiveBalanceRepository;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BalanceBatchServiceTest {
+
+    private final NaiveBalanceRepository balanceRepository = mock(NaiveBalanceRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BalanceBatchService service = new BalanceBatchService(balanceRepository, meterRegistry, 2, 2);
+
+    @Test
+    void shouldResolveInChunksAndZeroFillMissingUsers() {
+        // Given
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+
+        when(balanceRepository.findOpenByUserIds(any())).thenAnswer(invocation -> {
+            UUID[] userIds = invocation.getArgument(0);
+            return Flux.fromArray(userIds)
+                .filter(userId -> !userId.equals(second))
+                .map(userId -> balance(userId, new BigDecimal("7.00")));
+        });
+
+        // When/Then
+        StepVerifier.create(service.getBalances(Flux.just(first, second, third)))
+            .expectNext(Map.entry(first, new BigDecimal("7.00")))
+            .expectNext(Map.entry(second, BigDecimal.ZERO))
+            .expectNext(Map.entry(third, new BigDecimal("7.00")))
+            .verifyComplete();
+        verify(balanceRepository, times(2)).findOpenByUserIds(any());
+        assertThat(meterRegistry.get("naive.balance.batch.chunk").summary().totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldAnswerEveryRequestedIdEvenWhenRepeated() {
+        // Given
+        UUID userId = UUID.randomUUID();
+
+        when(balanceRepository.findOpenByUserIds(any()))
+            .thenAnswer(invocation -> {
+                UUID[] userIds = invocation.getArgument(0);
+                assertThat(userIds).containsExactly(userId);
+                return Flux.just(balance(userId, BigDecimal.ONE));
+            });
+
+        // When/Then
+        StepVerifier.create(service.getBalances(Flux.just(userId, userId)))
+            .expectNext(Map.entry(userId, BigDecimal.ONE), Map.entry(userId, BigDecimal.ONE))
+            .verifyComplete();
+    }
+
+    private NaiveBalance balance(UUID userId, BigDecimal amount) {
+        return NaiveBalance.from(userId, amount);
+    }
+}
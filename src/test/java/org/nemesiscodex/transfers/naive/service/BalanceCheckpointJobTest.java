@@ -0,0 +1,137 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.LedgerFixtures;
+import org.nemesiscodex.transfers.config.TestContainers;
+import org.nemesiscodex.transfers.naive.repository.NaiveLedgerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Import({TestContainers.class, LedgerFixtures.class})
+@SpringBootTest(properties = {
+    "spring.flyway.enabled=true",
+    "naive.balance.checkpoint.enabled=true",
+    "naive.balance.checkpoint.initial-delay=PT1H"
+})
+class BalanceCheckpointJobTest {
+
+    @Autowired
+    private BalanceCheckpointJob checkpointJob;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private NaiveLedgerRepository ledgerRepository;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private LedgerFixtures fixtures;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Test
+    void shouldCheckpointCommittedRowsAndReplayLaterOnes() {
+        // Given
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+        transferService.transfer(alice, bob, new BigDecimal("30.00")).block();
+
+        // When
+        checkpointJob.writeCheckpoints().block();
+        checkpointJob.writeCheckpoints().block();
+        transferService.transfer(alice, bob, new BigDecimal("5.00")).block();
+
+        // Then: the checkpoint stops at the pass, the as-of read adds what came after it
+        assertThat(checkpointAmount(alice)).isEqualByComparingTo("70.00");
+        assertThat(checkpointAmount(bob)).isEqualByComparingTo("30.00");
+        assertThat(ledgerRepository.findBalanceAsOf(alice, Instant.now()).block()).isEqualByComparingTo("65.00");
+        assertThat(ledgerRepository.findBalanceAsOf(bob, Instant.now()).block()).isEqualByComparingTo("35.00");
+    }
+
+    @Test
+    void shouldHoldTheWatermarkBehindAnOpenTransaction() {
+        // Given: a transaction that drew its seq first and commits after a later one
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        Connection open = Mono.from(connectionFactory.create()).block();
+        try {
+            Mono.from(open.beginTransaction()).block();
+            execute(open, "select id from users where id = $1 for update", alice);
+            execute(open, """
+                with ledger as (
+                    insert into naive_ledger (user_id, amount)
+                    values ($1, 40)
+                    returning id, user_id, amount, seq
+                )
+                insert into naive_balance (user_id, amount, open_ledger_id, open_ledger_seq)
+                select user_id, amount, id, seq from ledger
+                """, alice);
+            fixtures.deposit(bob, new BigDecimal("10.00"));
+
+            // When
+            checkpointJob.writeCheckpoints().block();
+
+            // Then: nothing past the open transaction's seq is checkpointed, not even Bob's committed row
+            assertThat(checkpointCount(alice)).isZero();
+            assertThat(checkpointCount(bob)).isZero();
+
+            Mono.from(open.commitTransaction()).block();
+        } finally {
+            Mono.from(open.close()).block();
+        }
+
+        // When
+        checkpointJob.writeCheckpoints().block();
+        checkpointJob.writeCheckpoints().block();
+
+        // Then: the late commit is in the checkpoint instead of being skipped for good
+        assertThat(checkpointAmount(alice)).isEqualByComparingTo("40.00");
+        assertThat(checkpointAmount(bob)).isEqualByComparingTo("10.00");
+        assertThat(ledgerRepository.findBalanceAsOf(alice, Instant.now()).block()).isEqualByComparingTo("40.00");
+    }
+
+    private void execute(Connection connection, String sql, UUID userId) {
+        Flux.from(connection.createStatement(sql).bind("$1", userId).execute())
+            .flatMap(Result::getRowsUpdated)
+            .blockLast();
+    }
+
+    private BigDecimal checkpointAmount(UUID userId) {
+        return databaseClient.sql("""
+                select amount from naive_balance_checkpoint
+                where user_id = :userId
+                order by ledger_seq desc
+                limit 1
+                """)
+            .bind("userId", userId)
+            .map((row, metadata) -> row.get("amount", BigDecimal.class))
+            .one()
+            .block();
+    }
+
+    private long checkpointCount(UUID userId) {
+        return databaseClient.sql("select count(*) as n from naive_balance_checkpoint where user_id = :userId")
+            .bind("userId", userId)
+            .map((row, metadata) -> row.get("n", Long.class))
+            .one()
+            .block();
+    }
+}
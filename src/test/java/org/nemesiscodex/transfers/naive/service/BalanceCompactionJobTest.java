@@ -0,0 +1,100 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.LedgerFixtures;
+import org.nemesiscodex.transfers.config.TestContainers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Import({TestContainers.class, LedgerFixtures.class})
+@SpringBootTest(properties = {
+    "spring.flyway.enabled=true",
+    "naive.balance.compaction.enabled=true",
+    "naive.balance.compaction.initial-delay=PT1H",
+    "naive.balance.compaction.retention=30d",
+    "naive.balance.compaction.pause=0ms"
+})
+class BalanceCompactionJobTest {
+
+    @Autowired
+    private BalanceCompactionJob compactionJob;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private LedgerFixtures fixtures;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Test
+    void shouldReclaimOnlyClosedRowsPastRetention() {
+        // Given: three rows for Alice, the first closed long ago, the second closed recently, the third open
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+        transferService.transfer(alice, bob, new BigDecimal("10.00")).block();
+        transferService.transfer(alice, bob, new BigDecimal("10.00")).block();
+        List<BigDecimal> before = balanceAmounts(alice);
+        backdate(alice, "100.00");
+        // An open row is never reclaimed, however old
+        backdate(alice, "80.00");
+
+        // When
+        Long reclaimed = compactionJob.compact().block();
+
+        // Then
+        assertThat(reclaimed).isGreaterThanOrEqualTo(1);
+        assertThat(before).hasSize(3);
+        assertThat(balanceAmounts(alice)).containsExactly(new BigDecimal("80.00"), new BigDecimal("90.00"));
+    }
+
+    // updated_at is set by a trigger, replica mode skips it for this transaction only
+    private void backdate(UUID userId, String amount) {
+        Connection connection = Mono.from(connectionFactory.create()).block();
+        try {
+            Mono.from(connection.beginTransaction()).block();
+            Flux.from(connection.createStatement("set local session_replication_role = replica").execute())
+                .flatMap(Result::getRowsUpdated)
+                .blockLast();
+            Flux.from(connection.createStatement("""
+                    update naive_balance set updated_at = now() - interval '40 days'
+                    where user_id = $1 and amount = $2
+                    """)
+                    .bind("$1", userId)
+                    .bind("$2", new BigDecimal(amount))
+                    .execute())
+                .flatMap(Result::getRowsUpdated)
+                .blockLast();
+            Mono.from(connection.commitTransaction()).block();
+        } finally {
+            Mono.from(connection.close()).block();
+        }
+    }
+
+    private List<BigDecimal> balanceAmounts(UUID userId) {
+        return databaseClient.sql("select amount from naive_balance where user_id = :userId order by amount")
+            .bind("userId", userId)
+            .map((row, metadata) -> row.get("amount", BigDecimal.class))
+            .all()
+            .collectList()
+            .block();
+    }
+}
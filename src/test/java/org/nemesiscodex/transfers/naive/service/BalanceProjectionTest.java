@@ -0,0 +1,154 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.LedgerFixtures;
+import org.nemesiscodex.transfers.config.TestContainers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Import({TestContainers.class, LedgerFixtures.class})
+@SpringBootTest(properties = {
+    "spring.flyway.enabled=true",
+    "naive.balance.projection.enabled=true",
+    "naive.balance.projection.initial-delay=PT0S",
+    "naive.balance.projection.poll-interval=PT0.05S",
+    "naive.balance.projection.checker.initial-delay=PT1H"
+})
+class BalanceProjectionTest {
+
+    @Autowired
+    private BalanceProjection projection;
+
+    @Autowired
+    private BalanceProjectionChecker checker;
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private LedgerFixtures fixtures;
+
+    @BeforeEach
+    void waitForPoll() {
+        Mono.fromCallable(projection::isCurrent)
+            .filter(Boolean::booleanValue)
+            .repeatWhenEmpty(attempts -> attempts.delayElements(Duration.ofMillis(50)))
+            .block(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void shouldRejectOlderSeq() {
+        // Given
+        UUID userId = UUID.randomUUID();
+
+        // When/Then
+        StepVerifier.create(projection.apply(userId, new BigDecimal("10.00"), 5))
+            .expectNext(true)
+            .verifyComplete();
+        StepVerifier.create(projection.apply(userId, new BigDecimal("7.00"), 4))
+            .expectNext(false)
+            .verifyComplete();
+        StepVerifier.create(projection.apply(userId, new BigDecimal("7.00"), 5))
+            .expectNext(false)
+            .verifyComplete();
+        StepVerifier.create(projection.read(userId))
+            .expectNext(new BalanceProjection.Snapshot(new BigDecimal("10.00"), 5))
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldReadOwnTransferBackRightAway() {
+        // Given
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        long seq = fixtures.deposit(alice, new BigDecimal("100.00")).ledgerSeq();
+        awaitSeq(alice, seq).block();
+
+        // When
+        transferService.transfer(alice, bob, new BigDecimal("30.00")).block();
+
+        // Then: written through before the transfer returned, without waiting for a poll
+        assertThat(projection.read(alice).block().amount()).isEqualByComparingTo("70.00");
+        assertThat(projection.read(bob).block().amount()).isEqualByComparingTo("30.00");
+        assertThat(balanceService.getBalance(alice).block()).isEqualByComparingTo("70.00");
+    }
+
+    @Test
+    void shouldPickUpBalancesOpenedOutsideTheApplication() {
+        // Given
+        UUID userId = fixtures.createUser();
+
+        // When
+        long seq = fixtures.deposit(userId, new BigDecimal("25.00")).ledgerSeq();
+
+        // Then
+        StepVerifier.create(awaitSeq(userId, seq))
+            .expectNext(new BalanceProjection.Snapshot(new BigDecimal("25.00"), seq))
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldRepairMissFromPostgres() {
+        // Given
+        UUID userId = fixtures.createUser();
+        long seq = fixtures.deposit(userId, new BigDecimal("40.00")).ledgerSeq();
+        awaitSeq(userId, seq).block();
+        projection.evict(userId).block();
+
+        // When
+        StepVerifier.create(balanceService.getBalance(userId))
+            .assertNext(balance -> assertThat(balance).isEqualByComparingTo("40.00"))
+            .verifyComplete();
+
+        // Then
+        StepVerifier.create(projection.read(userId))
+            .expectNext(new BalanceProjection.Snapshot(new BigDecimal("40.00"), seq))
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldRepairStaleAndEvictDivergedEntries() {
+        // Given
+        UUID stale = fixtures.createUser();
+        long staleSeq = fixtures.deposit(stale, new BigDecimal("5.00")).ledgerSeq();
+        UUID diverged = fixtures.createUser();
+        long divergedSeq = fixtures.deposit(diverged, new BigDecimal("6.00")).ledgerSeq();
+        awaitSeq(stale, staleSeq).block();
+        awaitSeq(diverged, divergedSeq).block();
+        projection.evict(stale).then(projection.apply(stale, new BigDecimal("1.00"), staleSeq - 1)).block();
+        projection.evict(diverged).then(projection.apply(diverged, new BigDecimal("1.00"), divergedSeq)).block();
+
+        // When
+        BalanceProjectionChecker.Report report = checker.check(Flux.just(stale, diverged)).block();
+
+        // Then
+        assertThat(report.stale()).isEqualTo(1);
+        assertThat(report.diverged()).isEqualTo(1);
+        StepVerifier.create(projection.read(stale))
+            .expectNext(new BalanceProjection.Snapshot(new BigDecimal("5.00"), staleSeq))
+            .verifyComplete();
+        StepVerifier.create(projection.read(diverged))
+            .verifyComplete();
+    }
+
+    private Mono<BalanceProjection.Snapshot> awaitSeq(UUID userId, long seq) {
+        return projection.read(userId)
+            .filter(snapshot -> snapshot.seq() >= seq)
+            .repeatWhenEmpty(attempts -> attempts.delayElements(Duration.ofMillis(20)))
+            .timeout(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,122 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.LedgerFixtures;
+import org.nemesiscodex.transfers.config.TestContainers;
+import org.nemesiscodex.transfers.naive.dto.HistoryCursor;
+import org.nemesiscodex.transfers.naive.entity.NaiveLedger;
+import org.nemesiscodex.transfers.naive.entity.NaiveTransfer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Pages through real rows the way clients do, re-encoding each page's last row as the next cursor
+@Import({TestContainers.class, LedgerFixtures.class})
+@SpringBootTest(properties = "spring.flyway.enabled=true")
+class HistoryServiceTest {
+
+    @Autowired
+    private HistoryService historyService;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private LedgerFixtures fixtures;
+
+    @Test
+    void shouldPageSentAndReceivedTransfersWithoutGapsOrDuplicates() {
+        // Given: rows of one statement share created_at, so only the id tiebreaker orders them
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        insertTransfers(alice, bob, 3);
+        insertTransfers(bob, alice, 4);
+        insertTransfers(bob, fixtures.createUser(), 2);
+
+        // When
+        List<NaiveTransfer> history = pageThrough(
+            (cursor, limit) -> historyService.transfers(alice, cursor, limit),
+            transfer -> HistoryCursor.of(transfer.createdAt(), transfer.id()));
+
+        // Then
+        assertThat(history).hasSize(7);
+        assertThat(history).extracting(NaiveTransfer::id).doesNotHaveDuplicates();
+        assertThat(history).isSortedAccordingTo(Comparator.comparing(NaiveTransfer::createdAt).reversed());
+        assertThat(history).allMatch(transfer -> alice.equals(transfer.userId()) || alice.equals(transfer.recipientId()));
+    }
+
+    @Test
+    void shouldPageLedgerEntriesWithoutGapsOrDuplicates() {
+        // Given
+        UUID alice = fixtures.createUser();
+        insertLedgerEntries(alice, 5);
+        insertLedgerEntries(alice, 2);
+        insertLedgerEntries(fixtures.createUser(), 3);
+
+        // When
+        List<NaiveLedger> history = pageThrough(
+            (cursor, limit) -> historyService.ledger(alice, cursor, limit),
+            entry -> HistoryCursor.of(entry.createdAt(), entry.id()));
+
+        // Then
+        assertThat(history).hasSize(7);
+        assertThat(history).extracting(NaiveLedger::id).doesNotHaveDuplicates();
+        assertThat(history).allMatch(entry -> alice.equals(entry.userId()));
+        assertThat(history).isSortedAccordingTo(Comparator.comparing(NaiveLedger::createdAt).reversed());
+    }
+
+    @Test
+    void shouldClampPageSize() {
+        // Given
+        UUID alice = fixtures.createUser();
+        insertLedgerEntries(alice, 3);
+
+        // When/Then
+        assertThat(historyService.ledger(alice, HistoryCursor.FIRST_PAGE, 0).collectList().block()).hasSize(1);
+    }
+
+    private <T> List<T> pageThrough(BiFunction<HistoryCursor, Integer, Flux<T>> page, Function<T, HistoryCursor> cursorOf) {
+        List<T> all = new ArrayList<>();
+        HistoryCursor cursor = HistoryCursor.FIRST_PAGE;
+        while (true) {
+            List<T> rows = page.apply(HistoryCursor.decode(cursor.encode()), 2).collectList().block();
+            all.addAll(rows);
+            if (rows.size() < 2) {
+                return all;
+            }
+            cursor = cursorOf.apply(rows.getLast());
+        }
+    }
+
+    private void insertTransfers(UUID senderId, UUID recipientId, int count) {
+        databaseClient.sql("""
+                insert into naive_transfer (user_id, recipient_id, amount)
+                select :senderId, :recipientId, 1 from generate_series(1, :count)
+                """)
+            .bind("senderId", senderId)
+            .bind("recipientId", recipientId)
+            .bind("count", count)
+            .fetch().rowsUpdated().block();
+    }
+
+    private void insertLedgerEntries(UUID userId, int count) {
+        databaseClient.sql("""
+                insert into naive_ledger (user_id, amount)
+                select :userId, 0 from generate_series(1, :count)
+                """)
+            .bind("userId", userId)
+            .bind("count", count)
+            .fetch().rowsUpdated().block();
+    }
+}
@@ -0,0 +1,178 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.LedgerFixtures;
+import org.nemesiscodex.transfers.config.TestContainers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The database is shared with other tests, so each test compares a pass against one taken before it
+@Import({TestContainers.class, LedgerFixtures.class})
+@SpringBootTest(properties = {
+    "spring.flyway.enabled=true",
+    "naive.ledger.verifier.partitions=4",
+    "naive.ledger.verifier.chunk-size=2"
+})
+class LedgerVerifierTest {
+
+    @Autowired
+    private LedgerVerifier verifier;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private LedgerFixtures fixtures;
+
+    @Test
+    void shouldFindNothingWrongAfterTransfersAndCompaction() {
+        // Given
+        LedgerVerifier.Report before = verifier.verify().block();
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+        transferService.transfer(alice, bob, new BigDecimal("30.00")).block();
+        transferService.transfer(bob, alice, new BigDecimal("10.00")).block();
+        compactOldestClosedRow(alice);
+
+        // When
+        LedgerVerifier.Report after = verifier.verify().block();
+
+        // Then
+        assertThat(after.users() - before.users()).isEqualTo(2);
+        assertThat(after.ledgerEntries() - before.ledgerEntries()).isEqualTo(5);
+        assertThat(after.ledgerTotal().subtract(before.ledgerTotal())).isEqualByComparingTo("100.00");
+        assertThat(after.balanceTotal().subtract(before.balanceTotal())).isEqualByComparingTo("100.00");
+        assertThat(after.transferredTotal()).isEqualByComparingTo(before.transferredTotal());
+        assertViolations(after, before, 0, 0, 0);
+    }
+
+    @Test
+    void shouldReportBrokenChainsDoubleOpenedBalancesAndUnbalancedUsers() {
+        // Given
+        LedgerVerifier.Report before = verifier.verify().block();
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+        transferService.transfer(alice, bob, new BigDecimal("30.00")).block();
+        // The closed row no longer leads to the open one: 90 - 30 is not 70
+        databaseClient.sql("update naive_balance set amount = 90 where user_id = :userId and close_ledger_id is not null")
+            .bind("userId", alice)
+            .fetch().rowsUpdated().block();
+
+        UUID carol = fixtures.createUser();
+        UUID opener = fixtures.deposit(carol, new BigDecimal("50.00")).ledgerId();
+        // A second row opened by the same entry, closed by an entry that does not exist
+        databaseClient.sql("""
+                insert into naive_balance (user_id, amount, open_ledger_id, close_ledger_id)
+                values (:userId, 50, :opener, :closer)
+                """)
+            .bind("userId", carol)
+            .bind("opener", opener)
+            .bind("closer", UUID.randomUUID())
+            .fetch().rowsUpdated().block();
+
+        UUID dave = fixtures.createUser();
+        fixtures.deposit(dave, new BigDecimal("20.00"));
+        // Money that reached the ledger but never a balance
+        UUID stray = databaseClient.sql("insert into naive_ledger (user_id, amount) values (:userId, 5) returning id")
+            .bind("userId", dave)
+            .map((row, metadata) -> row.get("id", UUID.class))
+            .one()
+            .block();
+
+        try {
+            // When
+            LedgerVerifier.Report after = verifier.verify().block();
+
+            // Then
+            assertViolations(after, before, 2, 1, 1);
+            assertThat(after.isConserved()).isFalse();
+        } finally {
+            // Keep the global totals of later passes conserved
+            databaseClient.sql("delete from naive_ledger where id = :id").bind("id", stray).fetch().rowsUpdated().block();
+        }
+    }
+
+    @Test
+    void shouldCountOpeningBalancesAsDepositsOutsideTheLedger() {
+        // Given: an opening balance with no ledger entry behind it, as NaiveBalance.from creates
+        LedgerVerifier.Report before = verifier.verify().block();
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        databaseClient.sql("insert into naive_balance (user_id, amount, open_ledger_id) values (:userId, 40, :opener)")
+            .bind("userId", alice)
+            .bind("opener", UUID.randomUUID())
+            .fetch().rowsUpdated().block();
+        transferService.transfer(alice, bob, new BigDecimal("10.00")).block();
+
+        // When
+        LedgerVerifier.Report after = verifier.verify().block();
+
+        // Then
+        assertThat(after.openingTotal().subtract(before.openingTotal())).isEqualByComparingTo("40.00");
+        assertThat(after.ledgerTotal()).isEqualByComparingTo(before.ledgerTotal());
+        assertThat(after.balanceTotal().subtract(before.balanceTotal())).isEqualByComparingTo("40.00");
+        assertViolations(after, before, 0, 0, 0);
+    }
+
+    @Test
+    void shouldShareOnePassBetweenConcurrentCallers() {
+        // When
+        Tuple2<LedgerVerifier.Report, LedgerVerifier.Report> reports =
+            Mono.zip(verifier.verify(), verifier.verify()).block();
+
+        // Then: the second caller joined the first pass instead of opening connections of its own
+        assertThat(reports.getT2()).isSameAs(reports.getT1());
+    }
+
+    @Test
+    void shouldSplitTheUuidSpaceWithoutGapsOrOverlaps() {
+        // When
+        List<LedgerVerifier.Partition> partitions = verifier.partitions();
+
+        // Then
+        assertThat(partitions).hasSize(4);
+        assertThat(partitions.getFirst().from()).isEqualTo(new UUID(0L, 0L));
+        assertThat(partitions.getLast().to()).isEqualTo(new UUID(-1L, -1L));
+        for (int i = 1; i < partitions.size(); i++) {
+            assertThat(LedgerVerifier.successor(partitions.get(i - 1).to())).isEqualTo(partitions.get(i).from());
+        }
+    }
+
+    private void assertViolations(
+        LedgerVerifier.Report after, LedgerVerifier.Report before, long brokenLinks, long doubleOpened, long unbalanced) {
+        assertThat(after.brokenLinks() - before.brokenLinks()).isEqualTo(brokenLinks);
+        assertThat(after.doubleOpened() - before.doubleOpened()).isEqualTo(doubleOpened);
+        assertThat(after.unbalanced() - before.unbalanced()).isEqualTo(unbalanced);
+        assertThat(after.orphaned() - before.orphaned()).isZero();
+        assertThat(after.missingOpen() - before.missingOpen()).isZero();
+    }
+
+    private void compactOldestClosedRow(UUID userId) {
+        databaseClient.sql("""
+                delete from naive_balance
+                where id = (
+                    select id from naive_balance
+                    where user_id = :userId and close_ledger_id is not null
+                    order by updated_at
+                    limit 1
+                )
+                """)
+            .bind("userId", userId)
+            .fetch().rowsUpdated().block();
+    }
+}
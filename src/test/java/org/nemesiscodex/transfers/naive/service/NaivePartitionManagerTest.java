@@ -0,0 +1,147 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.TestContainers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Import(TestContainers.class)
+@SpringBootTest(properties = {
+    "spring.flyway.enabled=true",
+    "naive.partitioning.enabled=true",
+    "naive.partitioning.initial-delay=PT1H",
+    "naive.partitioning.ahead=120d"
+})
+class NaivePartitionManagerTest {
+
+    @Autowired
+    private NaivePartitionManager partitionManager;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Test
+    void shouldCreatePartitionsAheadAndRouteInsertsToThem() {
+        // When
+        partitionManager.maintain().block();
+
+        // Then
+        assertThat(query("""
+                select count(*)::text from naive_partition_bounds('naive_ledger')
+                where lower_bound <= localtimestamp + interval '110 days'
+                  and upper_bound > localtimestamp + interval '110 days'
+                """))
+            .containsExactly("1");
+        UUID ledgerId = UUID.randomUUID();
+        assertThat(query("""
+                insert into naive_ledger (id, user_id, amount, created_at)
+                values ('%s', gen_random_uuid(), 1, localtimestamp + interval '45 days')
+                returning tableoid::regclass::text
+                """.formatted(ledgerId)))
+            .singleElement().asString().startsWith("naive_ledger_p");
+        query("delete from naive_ledger where id = '%s' returning id::text".formatted(ledgerId));
+    }
+
+    @Test
+    void shouldDetachExpiredPartitionsIntoTheArchiveSchema() {
+        // Given
+        databaseClient.sql("drop table if exists partition_probe, naive_archive.partition_probe_p20000101").then().block();
+        databaseClient.sql("""
+                create table partition_probe (id int, created_at timestamp not null)
+                    partition by range (created_at)
+                """).then().block();
+        databaseClient.sql("""
+                create table partition_probe_p20000101 partition of partition_probe
+                    for values from ('2000-01-01') to ('2000-02-01')
+                """).then().block();
+        databaseClient.sql("""
+                create table partition_probe_current partition of partition_probe
+                    for values from ('2000-02-01') to (maxvalue)
+                """).then().block();
+
+        // When
+        Long detached = partitionManager.detachExpired("partition_probe").block();
+
+        // Then
+        assertThat(detached).isEqualTo(1);
+        assertThat(query("select partition_name::text from naive_partition_bounds('partition_probe')"))
+            .containsExactly("partition_probe_current");
+        assertThat(query("select to_regclass('naive_archive.partition_probe_p20000101')::text"))
+            .containsExactly("naive_archive.partition_probe_p20000101");
+    }
+
+    @Test
+    void shouldCatchRowsPastTheLastPartitionInTheDefaultPartition() {
+        // Given
+        UUID ledgerId = UUID.randomUUID();
+        List<String> partition = query("""
+                insert into naive_ledger (id, user_id, amount, created_at)
+                values ('%s', gen_random_uuid(), 1, localtimestamp + interval '10 years')
+                returning tableoid::regclass::text
+                """.formatted(ledgerId));
+
+        try {
+            // When
+            Long rows = partitionManager.countDefaultRows("naive_ledger").block();
+
+            // Then
+            assertThat(partition).containsExactly("naive_ledger_default");
+            assertThat(rows).isEqualTo(1);
+        } finally {
+            query("delete from naive_ledger where id = '%s' returning id::text".formatted(ledgerId));
+        }
+    }
+
+    @Test
+    void shouldRefuseToDetachWithoutAcknowledgingTheIncompleteLedger() {
+        // When/Then
+        assertThatThrownBy(() -> new NaivePartitionManager(
+                databaseClient, new SimpleMeterRegistry(), "month", Duration.ofDays(90),
+                true, Duration.ofDays(365), true, false))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("acknowledge-incomplete-ledger");
+    }
+
+    @Test
+    void shouldPruneLaterPartitionsFromHistoryPages() {
+        // Given
+        String latest = query("""
+                select partition_name::text from naive_partition_bounds('naive_ledger')
+                order by upper_bound desc nulls last
+                limit 1
+                """).getFirst();
+
+        // When: the history page predicate of NaiveLedgerRepository with a cursor in the past
+        List<String> plan = query("""
+                explain select * from naive_ledger
+                where user_id = gen_random_uuid()
+                  and created_at <= timestamp '2000-01-01'
+                  and (created_at, id) < (timestamp '2000-01-01', gen_random_uuid())
+                order by created_at desc, id desc
+                limit 20
+                """);
+
+        // Then
+        assertThat(String.join("\n", plan))
+            .contains("naive_ledger_legacy")
+            .doesNotContain(latest);
+    }
+
+    private List<String> query(String sql) {
+        return databaseClient.sql(sql)
+            .map((row, metadata) -> row.get(0, String.class))
+            .all()
+            .collectList()
+            .block();
+    }
+}
@@ -0,0 +1,96 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransferBatchPlanTest {
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID carol = UUID.randomUUID();
+
+    @Test
+    void shouldApplyTransfersInSubmissionOrder() {
+        // Given
+        var first = pending(alice, bob, "60.00");
+        var second = pending(bob, carol, "80.00");
+
+        // When
+        var plan = TransferBatchPlan.of(
+            List.of(first, second),
+            Set.of(alice, bob, carol),
+            Map.of(alice, new BigDecimal("100.00"), bob, new BigDecimal("20.00")));
+
+        // Then
+        assertThat(plan.rejected()).isEmpty();
+        assertThat(plan.accepted()).extracting(TransferBatchPlan.Accepted::senderBalance)
+            .containsExactly(new BigDecimal("40.00"), new BigDecimal("0.00"));
+        assertThat(plan.senderIds()).containsExactly(alice, bob);
+        assertThat(plan.recipientIds()).containsExactly(bob, carol);
+    }
+
+    @Test
+    void shouldRejectOnlyTransfersThatCannotBeCovered() {
+        // Given
+        var overdraft = pending(alice, bob, "150.00");
+        var covered = pending(alice, bob, "100.00");
+
+        // When
+        var plan = TransferBatchPlan.of(
+            List.of(overdraft, covered),
+            Set.of(alice, bob),
+            Map.of(alice, new BigDecimal("100.00")));
+
+        // Then
+        assertThat(plan.rejected()).singleElement().satisfies(rejected -> {
+            assertThat(rejected.pending()).isEqualTo(overdraft);
+            assertThat(rejected.error()).isInstanceOf(IllegalStateException.class);
+        });
+        assertThat(plan.accepted()).singleElement()
+            .satisfies(accepted -> assertThat(accepted.pending()).isEqualTo(covered));
+        assertThat(plan.transferIds()).hasSize(1);
+    }
+
+    @Test
+    void shouldRejectUnknownRecipient() {
+        // Given
+        var unknown = pending(alice, UUID.randomUUID(), "10.00");
+
+        // When
+        var plan = TransferBatchPlan.of(List.of(unknown), Set.of(alice), Map.of(alice, BigDecimal.TEN));
+
+        // Then
+        assertThat(plan.hasTransfers()).isFalse();
+        assertThat(plan.rejected()).singleElement()
+            .satisfies(rejected -> assertThat(rejected.error())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Recipient not found"));
+    }
+
+    @Test
+    void shouldRejectUnknownSender() {
+        // Given
+        var unknown = pending(UUID.randomUUID(), alice, "10.00");
+
+        // When
+        var plan = TransferBatchPlan.of(List.of(unknown), Set.of(alice), Map.of(alice, BigDecimal.TEN));
+
+        // Then
+        assertThat(plan.hasTransfers()).isFalse();
+        assertThat(plan.rejected()).singleElement()
+            .satisfies(rejected -> assertThat(rejected.error())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Sender not found"));
+    }
+
+    private TransferBatchPlan.Pending pending(UUID senderId, UUID recipientId, String amount) {
+        return new TransferBatchPlan.Pending(senderId, recipientId, new BigDecimal(amount), null);
+    }
+}
@@ -0,0 +1,206 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.LedgerFixtures;
+import org.nemesiscodex.transfers.config.TestContainers;
+import org.nemesiscodex.transfers.core.util.DbTransactionUtil;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Batching and flushing run against Postgres; failure paths use a writer over a mocked transaction
+@Import({TestContainers.class, LedgerFixtures.class})
+@SpringBootTest(properties = {
+    "spring.flyway.enabled=true",
+    "naive.transfer.batching.enabled=true",
+    "naive.transfer.batching.max-batch-size=10",
+    "naive.transfer.batching.max-wait=20ms"
+})
+class TransferBatchWriterTest {
+
+    @Autowired
+    private TransferBatchWriter writer;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private LedgerFixtures fixtures;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void shouldCommitConcurrentTransfersInSharedBatches() {
+        // Given
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+        DistributionSummary batchSize = meterRegistry.get("naive.transfer.batch.size").summary();
+        long batchesBefore = batchSize.count();
+
+        // When
+        List<TransferService.TransferResult> results = Flux.range(0, 30)
+            .flatMap(i -> writer.submit(alice, bob, BigDecimal.ONE), 30)
+            .collectList()
+            .block();
+
+        // Then
+        assertThat(results).hasSize(30);
+        assertThat(batchSize.count() - batchesBefore).isLessThan(30);
+        assertThat(openBalance(alice)).isEqualByComparingTo("70.00");
+        assertThat(openBalance(bob)).isEqualByComparingTo("30.00");
+        // One row per ledger entry, only the last one of each user left open
+        assertThat(count("select count(*) as n from naive_balance where user_id = :userId and close_ledger_id is null", alice))
+            .isEqualTo(1);
+        assertThat(count("select count(*) as n from naive_balance where user_id = :userId", alice)).isEqualTo(31);
+        // Each row is the previous one minus one transfer, in ledger order
+        assertThat(balanceChain(alice)).containsExactlyElementsOf(
+            IntStream.iterate(100, amount -> amount - 1).limit(31).boxed().toList());
+    }
+
+    @Test
+    void shouldFlushPartialBatchAfterMaxWait() {
+        // Given
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("10.00"));
+        DistributionSummary batchSize = meterRegistry.get("naive.transfer.batch.size").summary();
+        double itemsBefore = batchSize.totalAmount();
+
+        // When/Then: one transfer never fills a batch of ten, max-wait alone writes it
+        StepVerifier.create(writer.submit(alice, bob, new BigDecimal("4.00")))
+            .assertNext(result -> assertThat(result.senderBalance()).isEqualByComparingTo("6.00"))
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+        assertThat(batchSize.totalAmount() - itemsBefore).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectOnlyTheFailingTransfersOfABatch() {
+        // Given
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("10.00"));
+
+        // When
+        List<Object> outcomes = Flux.mergeSequential(
+                outcome(writer.submit(UUID.randomUUID(), bob, BigDecimal.ONE)),
+                outcome(writer.submit(alice, UUID.randomUUID(), BigDecimal.ONE)),
+                outcome(writer.submit(alice, bob, new BigDecimal("11.00"))),
+                outcome(writer.submit(alice, bob, new BigDecimal("10.00"))))
+            .collectList()
+            .block();
+
+        // Then
+        assertThat(outcomes).containsExactly(
+            "Sender not found", "Recipient not found", "Insufficient funds", new BigDecimal("0.00"));
+        assertThat(openBalance(bob)).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void shouldFailEveryTransferOfABatchWhenTheTransactionFails() {
+        // Given
+        DbTransactionUtil db = mock(DbTransactionUtil.class);
+        when(db.runInTransaction(any())).thenReturn(Mono.error(new DataAccessResourceFailureException("down")));
+        TransferBatchWriter failing = standalone(db, 10, 100);
+
+        try {
+            // When
+            List<Object> outcomes = Flux.merge(
+                    outcome(failing.submit(UUID.randomUUID(), UUID.randomUUID(), BigDecimal.ONE)),
+                    outcome(failing.submit(UUID.randomUUID(), UUID.randomUUID(), BigDecimal.ONE)))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+            // Then
+            assertThat(outcomes).containsExactly("down", "down");
+        } finally {
+            failing.stop();
+        }
+    }
+
+    @Test
+    void shouldRejectWhenTheQueueIsFull() {
+        // Given: the first batch never commits, so nothing after it leaves the queue
+        DbTransactionUtil db = mock(DbTransactionUtil.class);
+        when(db.runInTransaction(any())).thenReturn(Mono.never());
+        TransferBatchWriter stalled = standalone(db, 1, 2);
+        List<Throwable> errors = new ArrayList<>();
+
+        try {
+            // When
+            for (int i = 0; i < 5; i++) {
+                stalled.submit(UUID.randomUUID(), UUID.randomUUID(), BigDecimal.ONE).subscribe(result -> { }, errors::add);
+            }
+
+            // Then: one transfer in the stalled batch, two queued, the rest refused
+            assertThat(errors).hasSize(2).allMatch(RejectedExecutionException.class::isInstance);
+        } finally {
+            stalled.stop();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private TransferBatchWriter standalone(DbTransactionUtil db, int maxBatchSize, int queueCapacity) {
+        TransferBatchWriter standalone = new TransferBatchWriter(
+            mock(DatabaseClient.class), mock(R2dbcConverter.class), db, new SimpleMeterRegistry(),
+            mock(ObjectProvider.class), maxBatchSize, Duration.ofMillis(10), queueCapacity, 1);
+        standalone.start();
+        return standalone;
+    }
+
+    // The sender balance on success, the error message otherwise
+    private Mono<Object> outcome(Mono<TransferService.TransferResult> transfer) {
+        return transfer.<Object>map(TransferService.TransferResult::senderBalance)
+            .onErrorResume(ex -> Mono.just(ex.getMessage()));
+    }
+
+    private BigDecimal openBalance(UUID userId) {
+        return databaseClient.sql("select amount from naive_balance where user_id = :userId and close_ledger_id is null")
+            .bind("userId", userId)
+            .map((row, metadata) -> row.get("amount", BigDecimal.class))
+            .one()
+            .block();
+    }
+
+    private List<Integer> balanceChain(UUID userId) {
+        return databaseClient.sql("select amount from naive_balance where user_id = :userId order by open_ledger_seq")
+            .bind("userId", userId)
+            .map((row, metadata) -> row.get("amount", BigDecimal.class).intValueExact())
+            .all()
+            .collectList()
+            .block();
+    }
+
+    private long count(String sql, UUID userId) {
+        return databaseClient.sql(sql)
+            .bind("userId", userId)
+            .map((row, metadata) -> row.get("n", Long.class))
+            .one()
+            .block();
+    }
+}
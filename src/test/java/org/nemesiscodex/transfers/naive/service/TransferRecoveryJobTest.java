@@ -0,0 +1,138 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.LedgerFixtures;
+import org.nemesiscodex.transfers.config.TestContainers;
+import org.nemesiscodex.transfers.naive.entity.NaiveTransfer;
+import org.nemesiscodex.transfers.naive.entity.TransferState;
+import org.nemesiscodex.transfers.naive.repository.NaiveTransferRepository;
+import org.nemesiscodex.transfers.scalable.dto.TransferCommand;
+import org.nemesiscodex.transfers.scalable.service.TransferCommandProcessor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.core.DatabaseClient;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// stale-after=0s makes every PROCESSING transfer stale on the next sweep, so tests drive the job directly
+@Import({TestContainers.class, LedgerFixtures.class, TestChannelBinderConfiguration.class})
+@SpringBootTest(properties = {
+    "spring.flyway.enabled=true",
+    "scalable.processor.enabled=true",
+    "naive.transfer.recovery.enabled=true",
+    "naive.transfer.recovery.initial-delay=PT1H",
+    "naive.transfer.recovery.stale-after=0s",
+    "naive.transfer.recovery.max-attempts=2"
+})
+class TransferRecoveryJobTest {
+
+    @Autowired
+    private TransferRecoveryJob recoveryJob;
+
+    @Autowired
+    private TransferCommandProcessor processor;
+
+    @Autowired
+    private TransferStateMachine stateMachine;
+
+    @Autowired
+    private NaiveTransferRepository transferRepository;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private LedgerFixtures fixtures;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Test
+    void shouldResetStaleTransferAndPublishANewCommand() {
+        // Given
+        UUID transferId = createProcessingTransfer(fixtures.createUser(), fixtures.createUser());
+
+        // When
+        recoveryJob.sweep().block();
+
+        // Then
+        NaiveTransfer transfer = transferRepository.findById(transferId).block();
+        assertThat(transfer.state()).isEqualTo(TransferState.PENDING);
+        assertThat(transfer.recoveryAttempts()).isEqualTo(1);
+        assertThat(commands(transferId)).singleElement()
+            .satisfies(command -> assertThat(command.amount()).isEqualByComparingTo("10.00"));
+    }
+
+    @Test
+    void shouldLetTheProcessorDriveAResetTransferToCompletion() {
+        // Given
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+        UUID transferId = createProcessingTransfer(alice, bob);
+        recoveryJob.sweep().block();
+
+        // When: the re-published command is consumed
+        processor.process(commands(transferId)).block();
+
+        // Then
+        assertThat(transferRepository.findById(transferId).block().state()).isEqualTo(TransferState.COMPLETED);
+        assertThat(openBalance(alice)).isEqualByComparingTo("90.00");
+        assertThat(openBalance(bob)).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void shouldFailTransferOnceMaxAttemptsIsReached() {
+        // Given: re-driven once, then stuck in PROCESSING again
+        UUID transferId = createProcessingTransfer(fixtures.createUser(), fixtures.createUser());
+        recoveryJob.sweep().block();
+        stateMachine.transition(transferId, TransferState.PENDING, TransferState.PROCESSING).block();
+
+        // When
+        recoveryJob.sweep().block();
+
+        // Then
+        NaiveTransfer transfer = transferRepository.findById(transferId).block();
+        assertThat(transfer.state()).isEqualTo(TransferState.FAILED);
+        assertThat(transfer.failureReason()).isEqualTo("Recovery attempts exhausted");
+        assertThat(transfer.recoveryAttempts()).isEqualTo(2);
+        assertThat(commands(transferId)).hasSize(1);
+    }
+
+    private List<TransferCommand> commands(UUID transferId) {
+        return databaseClient.sql("select payload from outbox_event where aggregate_id = :transferId order by id")
+            .bind("transferId", transferId)
+            .map((row, metadata) -> jsonMapper.readValue(row.get("payload", String.class), TransferCommand.class))
+            .all()
+            .collectList()
+            .block();
+    }
+
+    private UUID createProcessingTransfer(UUID senderId, UUID recipientId) {
+        return databaseClient.sql("""
+                insert into naive_transfer (user_id, recipient_id, amount, state)
+                values (:senderId, :recipientId, 10, 'PROCESSING')
+                returning id
+                """)
+            .bind("senderId", senderId)
+            .bind("recipientId", recipientId)
+            .map((row, metadata) -> row.get("id", UUID.class))
+            .one()
+            .block();
+    }
+
+    private BigDecimal openBalance(UUID userId) {
+        return databaseClient.sql("select amount from naive_balance where user_id = :userId and close_ledger_id is null")
+            .bind("userId", userId)
+            .map((row, metadata) -> row.get("amount", BigDecimal.class))
+            .one()
+            .block();
+    }
+}
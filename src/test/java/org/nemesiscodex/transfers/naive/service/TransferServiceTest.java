@@ -0,0 +1,145 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.LedgerFixtures;
+import org.nemesiscodex.transfers.config.TestContainers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs the lock and APPLY_TRANSFER statements against Postgres, the batching writer stays off
+@Import({TestContainers.class, LedgerFixtures.class})
+@SpringBootTest(properties = "spring.flyway.enabled=true")
+class TransferServiceTest {
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private LedgerFixtures fixtures;
+
+    @Test
+    void shouldWriteTransferLedgerAndChainedBalances() {
+        // Given
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+
+        // When
+        TransferService.TransferResult result = transferService.transfer(alice, bob, new BigDecimal("30.00")).block();
+
+        // Then
+        assertThat(result.senderBalance()).isEqualByComparingTo("70.00");
+        assertThat(result.transfer().userId()).isEqualTo(alice);
+        assertThat(result.transfer().recipientId()).isEqualTo(bob);
+        assertThat(ledgerAmounts(result.transfer().id())).containsExactlyInAnyOrder(
+            new BigDecimal("-30.00"), new BigDecimal("30.00"));
+        assertThat(openBalance(alice)).isEqualByComparingTo("70.00");
+        assertThat(openBalance(bob)).isEqualByComparingTo("30.00");
+        // The deposit row was closed by the debit, Bob had no balance to close
+        assertThat(balanceRows(alice)).isEqualTo(2);
+        assertThat(balanceRows(bob)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldWriteNothingOnInsufficientFunds() {
+        // Given
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("10.00"));
+
+        // When/Then
+        StepVerifier.create(transferService.transfer(alice, bob, new BigDecimal("10.01")))
+            .expectErrorMatches(ex -> ex instanceof IllegalStateException && ex.getMessage().equals("Insufficient funds"))
+            .verify();
+        assertThat(transferCount(alice)).isZero();
+        assertThat(openBalance(alice)).isEqualByComparingTo("10.00");
+        assertThat(balanceRows(alice)).isEqualTo(1);
+        assertThat(balanceRows(bob)).isZero();
+    }
+
+    @Test
+    void shouldRejectUnknownRecipient() {
+        // Given
+        UUID alice = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("10.00"));
+
+        // When/Then
+        StepVerifier.create(transferService.transfer(alice, UUID.randomUUID(), new BigDecimal("1.00")))
+            .expectErrorMatches(ex -> ex instanceof IllegalArgumentException)
+            .verify();
+        assertThat(transferCount(alice)).isZero();
+    }
+
+    @Test
+    void shouldApplyOpposingTransfersWithoutDeadlockOrLostUpdates() {
+        // Given
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+        fixtures.deposit(bob, new BigDecimal("100.00"));
+
+        // When: A->B and B->A interleave on the same two rows
+        Flux.range(0, 40)
+            .flatMap(i -> i % 2 == 0
+                ? transferService.transfer(alice, bob, BigDecimal.ONE)
+                : transferService.transfer(bob, alice, BigDecimal.ONE), 8)
+            .blockLast();
+
+        // Then
+        assertThat(transferCount(alice) + transferCount(bob)).isEqualTo(40);
+        assertThat(openBalance(alice)).isEqualByComparingTo("100.00");
+        assertThat(openBalance(bob)).isEqualByComparingTo("100.00");
+        assertThat(openRows(alice)).isEqualTo(1);
+        assertThat(openRows(bob)).isEqualTo(1);
+    }
+
+    private List<BigDecimal> ledgerAmounts(UUID transferId) {
+        return databaseClient.sql("select amount from naive_ledger where transfer_id = :transferId")
+            .bind("transferId", transferId)
+            .map((row, metadata) -> row.get("amount", BigDecimal.class))
+            .all()
+            .collectList()
+            .block();
+    }
+
+    private BigDecimal openBalance(UUID userId) {
+        return databaseClient.sql("select amount from naive_balance where user_id = :userId and close_ledger_id is null")
+            .bind("userId", userId)
+            .map((row, metadata) -> row.get("amount", BigDecimal.class))
+            .one()
+            .block();
+    }
+
+    private long openRows(UUID userId) {
+        return count("select count(*) as n from naive_balance where user_id = :userId and close_ledger_id is null", userId);
+    }
+
+    private long balanceRows(UUID userId) {
+        return count("select count(*) as n from naive_balance where user_id = :userId", userId);
+    }
+
+    private long transferCount(UUID userId) {
+        return count("select count(*) as n from naive_transfer where user_id = :userId", userId);
+    }
+
+    private long count(String sql, UUID userId) {
+        return databaseClient.sql(sql)
+            .bind("userId", userId)
+            .map((row, metadata) -> row.get("n", Long.class))
+            .one()
+            .block();
+    }
+}
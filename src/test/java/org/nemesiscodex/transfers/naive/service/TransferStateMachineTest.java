@@ -0,0 +1,185 @@
+package org.nemesiscodex.transfers.naive.service;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.LedgerFixtures;
+import org.nemesiscodex.transfers.config.TestContainers;
+import org.nemesiscodex.transfers.naive.entity.NaiveTransfer;
+import org.nemesiscodex.transfers.naive.entity.TransferState;
+import org.nemesiscodex.transfers.naive.repository.NaiveTransferRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Import({TestContainers.class, LedgerFixtures.class})
+@SpringBootTest(properties = "spring.flyway.enabled=true")
+class TransferStateMachineTest {
+
+    @Autowired
+    private TransferStateMachine stateMachine;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private LedgerFixtures fixtures;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Autowired
+    private NaiveTransferRepository transferRepository;
+
+    @Test
+    void shouldApplyTransitionAndBumpVersion() {
+        // Given
+        UUID transferId = createPendingTransfer();
+
+        // When
+        TransferStateMachine.Transition transition =
+            stateMachine.transition(transferId, TransferState.PENDING, TransferState.PROCESSING).block();
+
+        // Then
+        assertThat(transition.applied()).isTrue();
+        assertThat(transition.transfer().state()).isEqualTo(TransferState.PROCESSING);
+        assertThat(transition.transfer().version()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReportTheCurrentRowWhenTheStateAlreadyMoved() {
+        // Given
+        UUID transferId = createPendingTransfer();
+        stateMachine.fail(transferId, TransferState.PENDING, "rejected").block();
+
+        // When
+        TransferStateMachine.Transition transition =
+            stateMachine.transition(transferId, TransferState.PENDING, TransferState.PROCESSING).block();
+
+        // Then
+        assertThat(transition).isInstanceOf(TransferStateMachine.LostRace.class);
+        assertThat(transition.transfer().state()).isEqualTo(TransferState.FAILED);
+        assertThat(transition.transfer().failureReason()).isEqualTo("rejected");
+    }
+
+    @Test
+    void shouldLoseRaceOnVersionMismatch() {
+        // Given
+        UUID transferId = createPendingTransfer();
+
+        // When
+        TransferStateMachine.Transition transition = stateMachine
+            .transition(transferId, TransferState.PENDING, TransferState.PROCESSING, 5L, null)
+            .block();
+
+        // Then
+        assertThat(transition.applied()).isFalse();
+        assertThat(transition.transfer().state()).isEqualTo(TransferState.PENDING);
+        assertThat(transition.transfer().version()).isZero();
+    }
+
+    @Test
+    void shouldReportTheWinnersRowWhenTheUpdateWaitedOnIt() {
+        // Given: another worker moved the transfer and still holds its row lock
+        UUID transferId = createPendingTransfer();
+        Connection winner = Mono.from(connectionFactory.create()).block();
+        try {
+            Mono.from(winner.beginTransaction()).block();
+            Flux.from(winner.createStatement("""
+                    update naive_transfer set state = 'PROCESSING', version = version + 1
+                    where id = $1
+                    """)
+                    .bind("$1", transferId)
+                    .execute())
+                .flatMap(Result::getRowsUpdated)
+                .blockLast();
+
+            // When: the loser's update blocks on the lock, then re-checks the committed row
+            CompletableFuture<TransferStateMachine.Transition> loser = stateMachine
+                .transition(transferId, TransferState.PENDING, TransferState.PROCESSING)
+                .toFuture();
+            Mono.delay(Duration.ofMillis(300)).block();
+            assertThat(loser).isNotDone();
+            Mono.from(winner.commitTransaction()).block();
+
+            // Then: the lost race carries the state the winner committed, not the pre-update snapshot
+            TransferStateMachine.Transition transition = Mono.fromFuture(loser).block(Duration.ofSeconds(5));
+            assertThat(transition.applied()).isFalse();
+            assertThat(transition.transfer().state()).isEqualTo(TransferState.PROCESSING);
+            assertThat(transition.transfer().version()).isEqualTo(1);
+        } finally {
+            Mono.from(winner.close()).block();
+        }
+    }
+
+    @Test
+    void shouldTransitionTheRowAtItsCreatedAt() {
+        // Given
+        NaiveTransfer transfer = transferRepository.findById(createPendingTransfer()).block();
+
+        // When
+        TransferStateMachine.Transition transition = stateMachine.transition(
+                transfer.id(), transfer.createdAt(), TransferState.PENDING, TransferState.PROCESSING, null, null)
+            .block();
+
+        // Then
+        assertThat(transition.applied()).isTrue();
+        assertThat(transition.transfer().state()).isEqualTo(TransferState.PROCESSING);
+    }
+
+    @Test
+    void shouldNotFindTheTransferUnderAnotherCreatedAt() {
+        // Given
+        NaiveTransfer transfer = transferRepository.findById(createPendingTransfer()).block();
+
+        // When/Then: the created_at is part of the key, not just a hint
+        StepVerifier.create(stateMachine.transition(
+                transfer.id(), transfer.createdAt().minusSeconds(1), TransferState.PENDING, TransferState.PROCESSING,
+                null, null))
+            .expectErrorMessage("Transfer not found")
+            .verify();
+    }
+
+    @Test
+    void shouldRejectUnknownTransfer() {
+        // When/Then
+        StepVerifier.create(stateMachine.transition(UUID.randomUUID(), TransferState.PENDING, TransferState.PROCESSING))
+            .expectErrorMessage("Transfer not found")
+            .verify();
+    }
+
+    @Test
+    void shouldRejectInvalidTransition() {
+        // Given
+        UUID transferId = createPendingTransfer();
+
+        // When/Then
+        StepVerifier.create(stateMachine.transition(transferId, TransferState.PENDING, TransferState.COMPLETED))
+            .expectError(IllegalArgumentException.class)
+            .verify();
+    }
+
+    private UUID createPendingTransfer() {
+        return databaseClient.sql("""
+                insert into naive_transfer (user_id, recipient_id, amount, state)
+                values (:userId, :recipientId, 10, 'PENDING')
+                returning id
+                """)
+            .bind("userId", fixtures.createUser())
+            .bind("recipientId", fixtures.createUser())
+            .map((row, metadata) -> row.get("id", UUID.class))
+            .one()
+            .block();
+    }
+}
@@ -0,0 +1,210 @@
+package org.nemesiscodex.transfers.scalable;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.naive.service.TransferService;
+import org.nemesiscodex.transfers.scalable.dto.TransferCommand;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.cloud.stream.binder.test.InputDestination;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.MimeTypeUtils;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+import reactor.core.publisher.Flux;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Compares the synchronous naive path with the partitioned processor consuming through the test binder.
+// Run with ./gradlew benchmark; both sides apply the same transfers between the same seeded users.
+@Tag("benchmark")
+@Testcontainers
+@Import(TestChannelBinderConfiguration.class)
+@SpringBootTest(properties = {
+    "spring.flyway.enabled=true",
+    "scalable.processor.enabled=true"
+})
+class TransferThroughputBenchmark {
+
+    private static final int USERS = 200;
+    private static final int TRANSFERS = 5_000;
+    private static final int NAIVE_CONCURRENCY = 16;
+    private static final int PARTITIONS = 4;
+    private static final int BATCH_SIZE = 100;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer postgres = new PostgreSQLContainer(DockerImageName.parse("postgres:latest"));
+
+    @DynamicPropertySource
+    static void flyway(DynamicPropertyRegistry registry) {
+        registry.add("spring.flyway.url", postgres::getJdbcUrl);
+        registry.add("spring.flyway.user", postgres::getUsername);
+        registry.add("spring.flyway.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private InputDestination inputDestination;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Test
+    void compareNaiveAndPartitionedThroughput() throws Exception {
+        List<UUID> users = seedUsers();
+        List<UUID[]> pairs = randomPairs(users);
+
+        // Naive: every transfer is a synchronous request holding both user locks
+        long naiveStart = System.nanoTime();
+        Flux.fromIterable(pairs)
+            .flatMap(pair -> transferService.transfer(pair[0], pair[1], AMOUNT), NAIVE_CONCURRENCY)
+            .blockLast();
+        double naiveSeconds = (System.nanoTime() - naiveStart) / 1e9;
+
+        // Scalable: transfers are accepted as PENDING up front, then consumed in batches, one thread per partition
+        List<TransferCommand> commands = insertPending(pairs);
+        List<List<TransferCommand>> partitions = new ArrayList<>();
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        commands.forEach(command -> partitions.get(Math.floorMod(command.senderId().hashCode(), PARTITIONS)).add(command));
+
+        long scalableStart = System.nanoTime();
+        try (ExecutorService consumers = Executors.newFixedThreadPool(PARTITIONS)) {
+            List<Future<?>> running = new ArrayList<>();
+            for (List<TransferCommand> partition : partitions) {
+                running.add(consumers.submit(() -> consume(partition)));
+            }
+            for (Future<?> consumer : running) {
+                consumer.get();
+            }
+        }
+        double scalableSeconds = (System.nanoTime() - scalableStart) / 1e9;
+
+        System.out.printf("naive:    %d transfers in %.2fs, %.0f transfers/s (concurrency %d)%n",
+            TRANSFERS, naiveSeconds, TRANSFERS / naiveSeconds, NAIVE_CONCURRENCY);
+        System.out.printf("scalable: %d transfers in %.2fs, %.0f transfers/s (%d partitions, batch %d)%n",
+            TRANSFERS, scalableSeconds, TRANSFERS / scalableSeconds, PARTITIONS, BATCH_SIZE);
+
+        assertThat(countCompletedPending(commands)).isEqualTo(TRANSFERS);
+        // Transfers only move money between seeded users, so the total never changes
+        assertThat(totalOpenBalance(users)).isEqualByComparingTo(INITIAL_BALANCE.multiply(BigDecimal.valueOf(USERS)));
+    }
+
+    // The test binder delivers on the calling thread, so each send returns once its batch is applied
+    private void consume(List<TransferCommand> partition) {
+        for (int from = 0; from < partition.size(); from += BATCH_SIZE) {
+            List<TransferCommand> batch = partition.subList(from, Math.min(from + BATCH_SIZE, partition.size()));
+            inputDestination.send(MessageBuilder.withPayload(jsonMapper.writeValueAsBytes(batch))
+                .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON_VALUE)
+                .build(), "transfer-events");
+        }
+    }
+
+    private List<UUID> seedUsers() {
+        return databaseClient.sql("""
+                with seeded as (
+                    insert into users (username, password_hash, email)
+                    select 'bench-' || :run || '-' || n, 'unused', 'bench-' || :run || '-' || n || '@example.com'
+                    from generate_series(1, :count) as n
+                    returning id
+                ),
+                deposit as (
+                    insert into naive_ledger (user_id, amount)
+                    select id, :initial from seeded
+                    returning id, user_id, amount
+                ),
+                opened as (
+                    insert into naive_balance (user_id, amount, open_ledger_id)
+                    select user_id, amount, id from deposit
+                )
+                select user_id from deposit
+                """)
+            .bind("run", UUID.randomUUID().toString())
+            .bind("count", USERS)
+            .bind("initial", INITIAL_BALANCE)
+            .map((row, metadata) -> row.get("user_id", UUID.class))
+            .all()
+            .collectList()
+            .block();
+    }
+
+    private List<UUID[]> randomPairs(List<UUID> users) {
+        Random random = new Random(42);
+        List<UUID[]> pairs = new ArrayList<>(TRANSFERS);
+        while (pairs.size() < TRANSFERS) {
+            UUID sender = users.get(random.nextInt(users.size()));
+            UUID recipient = users.get(random.nextInt(users.size()));
+            if (!sender.equals(recipient)) {
+                pairs.add(new UUID[] {sender, recipient});
+            }
+        }
+        return pairs;
+    }
+
+    private List<TransferCommand> insertPending(List<UUID[]> pairs) {
+        return databaseClient.sql("""
+                insert into naive_transfer (user_id, recipient_id, amount, state)
+                select sender_id, recipient_id, :amount, 'PENDING'
+                from unnest(:senderIds, :recipientIds) with ordinality as pair(sender_id, recipient_id, position)
+                order by position
+                returning id, user_id, recipient_id
+                """)
+            .bind("amount", AMOUNT)
+            .bind("senderIds", pairs.stream().map(pair -> pair[0]).toArray(UUID[]::new))
+            .bind("recipientIds", pairs.stream().map(pair -> pair[1]).toArray(UUID[]::new))
+            .map((row, metadata) -> new TransferCommand(
+                row.get("id", UUID.class),
+                row.get("user_id", UUID.class),
+                row.get("recipient_id", UUID.class),
+                AMOUNT,
+                Instant.now()))
+            .all()
+            .collectList()
+            .block();
+    }
+
+    private long countCompletedPending(List<TransferCommand> commands) {
+        return databaseClient.sql("select count(*) as completed from naive_transfer where id = any(:ids) and state = 'COMPLETED'")
+            .bind("ids", commands.stream().map(TransferCommand::transferId).toArray(UUID[]::new))
+            .map((row, metadata) -> row.get("completed", Long.class))
+            .one()
+            .block();
+    }
+
+    private BigDecimal totalOpenBalance(List<UUID> users) {
+        return databaseClient.sql("select sum(amount) as total from naive_balance where user_id = any(:ids) and close_ledger_id is null")
+            .bind("ids", users.toArray(UUID[]::new))
+            .map((row, metadata) -> row.get("total", BigDecimal.class))
+            .one()
+            .block();
+    }
+}
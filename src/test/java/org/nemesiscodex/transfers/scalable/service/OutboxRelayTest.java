@@ -0,0 +1,235 @@
+package org.nemesiscodex.transfers.scalable.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.TestContainers;
+import org.nemesiscodex.transfers.core.util.DbTransactionUtil;
+import org.nemesiscodex.transfers.naive.entity.NaiveTransfer;
+import org.nemesiscodex.transfers.scalable.dto.TransferCommand;
+import org.nemesiscodex.transfers.scalable.entity.OutboxEvent;
+import org.nemesiscodex.transfers.scalable.repository.OutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.binder.test.OutputDestination;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.Message;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Relays through the in-memory test binder; the end-to-end tests read and mark real outbox rows,
+// the others put a mocked repository behind the relay
+@Import({TestContainers.class, TestChannelBinderConfiguration.class})
+@SpringBootTest(properties = {
+    "spring.flyway.enabled=true",
+    "spring.cloud.stream.bindings.transferEvents-out-0.producer.partition-count=1"
+})
+class OutboxRelayTest {
+
+    private static final String DESTINATION = "transfer-events";
+
+    @Autowired
+    private StreamBridge streamBridge;
+
+    @Autowired
+    private OutputDestination outputDestination;
+
+    @Autowired
+    private OutboxRepository repository;
+
+    @Autowired
+    private DbTransactionUtil transactions;
+
+    @Autowired
+    private ScalableTransferService scalableTransferService;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    private final OutboxRepository outboxRepository = mock(OutboxRepository.class);
+    private final DbTransactionUtil db = mock(DbTransactionUtil.class);
+
+    @BeforeEach
+    void setUp() {
+        when(db.runInTransaction(any()))
+            .thenAnswer(invocation -> invocation.<Supplier<Mono<?>>>getArgument(0).get());
+    }
+
+    @Test
+    void shouldPublishUnsentEventsInOrderAndMarkThemSent() {
+        // Given
+        UUID sender = UUID.randomUUID();
+        OutboxEvent first = event(1L, sender, "{\"n\":1}");
+        OutboxEvent second = event(2L, sender, "{\"n\":2}");
+        OutboxEvent third = event(3L, sender, "{\"n\":3}");
+
+        when(outboxRepository.tryLockRelay()).thenReturn(Mono.just(true));
+        when(outboxRepository.findUnsent(anyLong(), eq(2))).thenReturn(Flux.just(first, second), Flux.just(third));
+        when(outboxRepository.markSent(any())).thenReturn(Mono.just(1L));
+
+        // When/Then
+        StepVerifier.create(relay(2).drain())
+            .expectNext(3L)
+            .verifyComplete();
+
+        for (OutboxEvent expected : List.of(first, second, third)) {
+            Message<byte[]> message = outputDestination.receive(1000, DESTINATION);
+            assertThat(new String(message.getPayload(), StandardCharsets.UTF_8)).isEqualTo(expected.payload());
+            assertThat(message.getHeaders().get(OutboxRelay.PARTITION_KEY_HEADER)).isEqualTo(sender.toString());
+            assertThat(message.getHeaders().get(OutboxRelay.EVENT_ID_HEADER)).isEqualTo(expected.id());
+        }
+        verify(outboxRepository).markSent(List.of(1L, 2L));
+        verify(outboxRepository).markSent(List.of(3L));
+    }
+
+    @Test
+    void shouldSkipDrainWhenAnotherInstanceHoldsTheRelayLock() {
+        // Given
+        when(outboxRepository.tryLockRelay()).thenReturn(Mono.just(false));
+
+        // When/Then
+        StepVerifier.create(relay(2).drain())
+            .expectNext(0L)
+            .verifyComplete();
+
+        verify(outboxRepository, never()).findUnsent(anyLong(), anyInt());
+        assertThat(outputDestination.receive(100, DESTINATION)).isNull();
+    }
+
+    @Test
+    void shouldRelayCommittedTransfersThroughTheBinderAndMarkThemSent() {
+        // Given
+        UUID sender = UUID.randomUUID();
+        List<NaiveTransfer> transfers = Flux.range(0, 3)
+            .concatMap(i -> scalableTransferService.submit(sender, UUID.randomUUID(), BigDecimal.TEN))
+            .collectList()
+            .block();
+
+        // When
+        relay(repository, transactions, 500).drain().block();
+
+        // Then
+        assertThat(received(sender)).extracting(TransferCommand::transferId)
+            .containsExactlyElementsOf(transfers.stream().map(NaiveTransfer::id).toList());
+        assertThat(unsentCount(sender)).isZero();
+    }
+
+    @Test
+    void shouldHoldBackLaterEventsUntilAnEarlierIdCommits() {
+        // Given: a transaction drew the lower outbox id and is still open when a later one commits.
+        // pg_current_xact_id() takes its transaction id before the id is drawn, like a transfer insert would.
+        UUID sender = UUID.randomUUID();
+        UUID early = UUID.randomUUID();
+        Connection open = Mono.from(connectionFactory.create()).block();
+        try {
+            Mono.from(open.beginTransaction()).block();
+            Flux.from(open.createStatement("""
+                    insert into outbox_event (aggregate_id, partition_key, event_type, payload)
+                    select $1, $2, $3, $4 from (select pg_current_xact_id()) xact
+                    """)
+                    .bind("$1", early)
+                    .bind("$2", sender.toString())
+                    .bind("$3", TransferCommand.EVENT_TYPE)
+                    .bind("$4", jsonMapper.writeValueAsString(
+                        new TransferCommand(early, sender, UUID.randomUUID(), BigDecimal.ONE, null)))
+                    .execute())
+                .flatMap(Result::getRowsUpdated)
+                .blockLast();
+            NaiveTransfer late = scalableTransferService.submit(sender, UUID.randomUUID(), BigDecimal.TEN).block();
+
+            // When
+            relay(repository, transactions, 500).drain().block();
+
+            // Then: the committed event waits behind the open one instead of overtaking it
+            assertThat(received(sender)).isEmpty();
+
+            Mono.from(open.commitTransaction()).block();
+            OutboxRelay relay = relay(repository, transactions, 500);
+            relay.drain().block();
+            relay.drain().block();
+
+            assertThat(received(sender)).extracting(TransferCommand::transferId).containsExactly(early, late.id());
+        } finally {
+            Mono.from(open.close()).block();
+        }
+    }
+
+    private OutboxRelay relay(int batchSize) {
+        return relay(outboxRepository, db, batchSize);
+    }
+
+    private OutboxRelay relay(OutboxRepository outboxRepository, DbTransactionUtil db, int batchSize) {
+        return new OutboxRelay(
+            outboxRepository,
+            db,
+            streamBridge,
+            mock(OutboxNotificationListener.class),
+            databaseClient,
+            new SimpleMeterRegistry(),
+            batchSize,
+            Duration.ofSeconds(5));
+    }
+
+    // Other tests leave unsent rows behind, so only this sender's commands are kept
+    private List<TransferCommand> received(UUID sender) {
+        List<TransferCommand> commands = new ArrayList<>();
+        Message<byte[]> message;
+        while ((message = outputDestination.receive(200, DESTINATION)) != null) {
+            if (sender.toString().equals(message.getHeaders().get(OutboxRelay.PARTITION_KEY_HEADER))) {
+                commands.add(jsonMapper.readValue(message.getPayload(), TransferCommand.class));
+            }
+        }
+        return commands;
+    }
+
+    private long unsentCount(UUID sender) {
+        return databaseClient.sql(
+                "select count(*) as n from outbox_event where partition_key = :sender and sent_at is null")
+            .bind("sender", sender.toString())
+            .map((row, metadata) -> row.get("n", Long.class))
+            .one()
+            .block();
+    }
+
+    private static OutboxEvent event(long id, UUID sender, String payload) {
+        return OutboxEvent.builder()
+            .id(id)
+            .aggregateId(UUID.randomUUID())
+            .partitionKey(sender.toString())
+            .eventType("TransferRequested")
+            .payload(payload)
+            .build();
+    }
+}
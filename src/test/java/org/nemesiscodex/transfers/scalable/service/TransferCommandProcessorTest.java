@@ -0,0 +1,291 @@
+package org.nemesiscodex.transfers.scalable.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.nemesiscodex.transfers.config.LedgerFixtures;
+import org.nemesiscodex.transfers.config.TestContainers;
+import org.nemesiscodex.transfers.core.client.AdaptiveConcurrencyLimiter;
+import org.nemesiscodex.transfers.core.client.BankApiClient;
+import org.nemesiscodex.transfers.core.client.BankStubServer;
+import org.nemesiscodex.transfers.core.util.DbTransactionUtil;
+import org.nemesiscodex.transfers.naive.entity.NaiveTransfer;
+import org.nemesiscodex.transfers.naive.entity.TransferState;
+import org.nemesiscodex.transfers.naive.repository.NaiveTransferRepository;
+import org.nemesiscodex.transfers.naive.service.TransferStateMachine;
+import org.nemesiscodex.transfers.scalable.dto.TransferCommand;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.binder.test.OutputDestination;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.messaging.Message;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Processors are built per test over the real state machine and Postgres, failures come from a mocked transaction
+@Import({TestContainers.class, LedgerFixtures.class, TestChannelBinderConfiguration.class})
+@SpringBootTest(properties = "spring.flyway.enabled=true")
+class TransferCommandProcessorTest {
+
+    private static final String DEAD_LETTERS = "transfer-events.dlq";
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private LedgerFixtures fixtures;
+
+    @Autowired
+    private DbTransactionUtil db;
+
+    @Autowired
+    private TransferStateMachine stateMachine;
+
+    @Autowired
+    private StreamBridge streamBridge;
+
+    @Autowired
+    private OutputDestination outputDestination;
+
+    @Autowired
+    private NaiveTransferRepository transferRepository;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Test
+    void shouldCompleteTransferAndMoveTheBalances() {
+        // Given
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+        NaiveTransfer transfer = createPendingTransfer(alice, bob, "30.00");
+
+        // When
+        processor(db).process(List.of(TransferCommand.from(transfer))).block();
+
+        // Then
+        assertThat(transferRepository.findById(transfer.id()).block().state()).isEqualTo(TransferState.COMPLETED);
+        assertThat(openBalance(alice)).isEqualByComparingTo("70.00");
+        assertThat(openBalance(bob)).isEqualByComparingTo("30.00");
+    }
+
+    @Test
+    void shouldFailTransferTheSenderCannotCover() {
+        // Given
+        UUID alice = fixtures.createUser();
+        NaiveTransfer transfer = createPendingTransfer(alice, fixtures.createUser(), "30.00");
+
+        // When
+        processor(db).process(List.of(TransferCommand.from(transfer))).block();
+
+        // Then
+        NaiveTransfer failed = transferRepository.findById(transfer.id()).block();
+        assertThat(failed.state()).isEqualTo(TransferState.FAILED);
+        assertThat(failed.failureReason()).isEqualTo("Insufficient funds");
+    }
+
+    @Test
+    void shouldFailAndDeadLetterATransferThatKeepsFailing() {
+        // Given: every settle transaction fails, the claim itself still goes through
+        DbTransactionUtil failing = mock(DbTransactionUtil.class);
+        when(failing.runInTransaction(any())).thenReturn(Mono.error(new DataAccessResourceFailureException("down")));
+        NaiveTransfer transfer = createPendingTransfer(fixtures.createUser(), fixtures.createUser(), "30.00");
+
+        // When
+        processor(failing).process(List.of(TransferCommand.from(transfer))).block();
+
+        // Then
+        NaiveTransfer failed = transferRepository.findById(transfer.id()).block();
+        assertThat(failed.state()).isEqualTo(TransferState.FAILED);
+        assertThat(failed.failureReason()).startsWith("Dead-lettered: ");
+        Message<byte[]> deadLetter = outputDestination.receive(1000, DEAD_LETTERS);
+        assertThat(jsonMapper.readValue(deadLetter.getPayload(), TransferCommand.class).transferId())
+            .isEqualTo(transfer.id());
+    }
+
+    @Test
+    void shouldSubmitToTheBankAndRecordItsReference() {
+        // Given
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+        NaiveTransfer transfer = createPendingTransfer(alice, bob, "30.00");
+
+        try (BankStubServer stub = BankStubServer.start(0)) {
+            // When
+            processor(db, bank(stub)).process(List.of(TransferCommand.from(transfer))).block();
+
+            // Then
+            NaiveTransfer completed = transferRepository.findById(transfer.id()).block();
+            assertThat(completed.state()).isEqualTo(TransferState.COMPLETED);
+            assertThat(completed.bankReference()).isNotBlank();
+            assertThat(stub.requests()).isEqualTo(1);
+            assertThat(openBalance(alice)).isEqualByComparingTo("70.00");
+            assertThat(openBalance(bob)).isEqualByComparingTo("30.00");
+        }
+    }
+
+    @Test
+    void shouldFailTransferTheBankRejectsWithoutTouchingTheLedger() {
+        // Given
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+        NaiveTransfer transfer = createPendingTransfer(alice, bob, "30.00");
+
+        try (BankStubServer stub = BankStubServer.start(0)) {
+            stub.reject(422);
+
+            // When
+            processor(db, bank(stub)).process(List.of(TransferCommand.from(transfer))).block();
+
+            // Then
+            NaiveTransfer failed = transferRepository.findById(transfer.id()).block();
+            assertThat(failed.state()).isEqualTo(TransferState.FAILED);
+            assertThat(failed.failureReason()).startsWith("Rejected by bank: 422");
+            assertThat(stub.requests()).isEqualTo(1);
+            assertThat(openBalance(alice)).isEqualByComparingTo("100.00");
+            assertThat(openBalance(bob)).isNull();
+        }
+    }
+
+    @Test
+    void shouldHoldNoRowLocksWhileTheBankIsCalled() {
+        // Given
+        UUID alice = fixtures.createUser();
+        UUID bob = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+        NaiveTransfer transfer = createPendingTransfer(alice, bob, "30.00");
+
+        try (BankStubServer stub = BankStubServer.start(0)) {
+            stub.latency(Duration.ofSeconds(1));
+            CompletableFuture<Void> processing = processor(db, bank(stub))
+                .process(List.of(TransferCommand.from(transfer)))
+                .toFuture();
+
+            // When: the bank is still answering
+            awaitState(transfer.id(), TransferState.SUBMITTING);
+
+            // Then: nothing holds the sender's or recipient's row
+            assertThat(lockNowait(alice)).isEqualTo(alice);
+            assertThat(lockNowait(bob)).isEqualTo(bob);
+            Mono.fromFuture(processing).block(Duration.ofSeconds(5));
+            assertThat(transferRepository.findById(transfer.id()).block().state()).isEqualTo(TransferState.COMPLETED);
+        }
+    }
+
+    @Test
+    void shouldNameTheMissingRecipient() {
+        // Given
+        UUID alice = fixtures.createUser();
+        fixtures.deposit(alice, new BigDecimal("100.00"));
+        NaiveTransfer transfer = createPendingTransfer(alice, UUID.randomUUID(), "30.00");
+
+        // When
+        processor(db).process(List.of(TransferCommand.from(transfer))).block();
+
+        // Then
+        NaiveTransfer failed = transferRepository.findById(transfer.id()).block();
+        assertThat(failed.state()).isEqualTo(TransferState.FAILED);
+        assertThat(failed.failureReason()).isEqualTo("Recipient not found");
+    }
+
+    private TransferCommandProcessor processor(DbTransactionUtil db) {
+        return processor(db, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private TransferCommandProcessor processor(DbTransactionUtil db, BankApiClient bankApiClient) {
+        ObjectProvider<BankApiClient> bank = mock(ObjectProvider.class);
+        when(bank.getIfAvailable()).thenReturn(bankApiClient);
+        return new TransferCommandProcessor(
+            databaseClient, db, stateMachine, streamBridge, new SimpleMeterRegistry(), bank,
+            mock(ObjectProvider.class), 4, 1, Duration.ofMillis(1));
+    }
+
+    // No retries and no hedging, so the stub counts exactly the calls the processor made
+    private static BankApiClient bank(BankStubServer stub) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+            "bank-api", new SimpleMeterRegistry(), 20, 1, 200, 0.9, Duration.ofSeconds(10), 100, Duration.ofSeconds(5),
+            BankApiClient::isDrop);
+        return new BankApiClient(
+            WebClient.builder(),
+            new SimpleMeterRegistry(),
+            limiter,
+            stub.baseUrl(),
+            16,
+            Duration.ofSeconds(1),
+            Duration.ofSeconds(30),
+            Duration.ofSeconds(1),
+            Duration.ofSeconds(10),
+            Duration.ofSeconds(30),
+            0,
+            Duration.ofMillis(10),
+            50,
+            10,
+            Duration.ofMinutes(1));
+    }
+
+    private void awaitState(UUID transferId, TransferState state) {
+        for (int i = 0; i < 50; i++) {
+            if (transferRepository.findById(transferId).block().state() == state) {
+                return;
+            }
+            Mono.delay(Duration.ofMillis(20)).block();
+        }
+        throw new AssertionError("Transfer " + transferId + " never reached " + state);
+    }
+
+    // Fails straight away instead of waiting when another transaction holds the row
+    private UUID lockNowait(UUID userId) {
+        return databaseClient.sql("select id from users where id = :userId for update nowait")
+            .bind("userId", userId)
+            .map((row, metadata) -> row.get("id", UUID.class))
+            .one()
+            .block();
+    }
+
+    private NaiveTransfer createPendingTransfer(UUID senderId, UUID recipientId, String amount) {
+        return databaseClient.sql("""
+                insert into naive_transfer (user_id, recipient_id, amount, state)
+                values (:senderId, :recipientId, :amount, 'PENDING')
+                returning id
+                """)
+            .bind("senderId", senderId)
+            .bind("recipientId", recipientId)
+            .bind("amount", new BigDecimal(amount))
+            .map((row, metadata) -> NaiveTransfer.builder()
+                .id(row.get("id", UUID.class))
+                .userId(senderId)
+                .recipientId(recipientId)
+                .amount(new BigDecimal(amount))
+                .build())
+            .one()
+            .block();
+    }
+
+    private BigDecimal openBalance(UUID userId) {
+        return databaseClient.sql("select amount from naive_balance where user_id = :userId and close_ledger_id is null")
+            .bind("userId", userId)
+            .map((row, metadata) -> row.get("amount", BigDecimal.class))
+            .one()
+            .block();
+    }
+}